@@ -0,0 +1,144 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Student;
+import edu.ccrm.io.BackupService;
+import edu.ccrm.io.ExportOptions;
+import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.ImportOptions;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.*;
+
+// The I/O cases of IoBenchmark, under JMH: the time to export or import size students as
+// CSV, where more than one thread turns on the parallel paths, and to back up an export of
+// size students. Backups are measured once per size. Full backups and archives start from
+// an empty backup folder each iteration, so they run as single shots. Run with
+//   java -jar jmh/build/libs/ccrm-jmh.jar IoJmhBenchmark -p size=1000,100000 -p threads=1,4
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IoJmhBenchmark {
+    @State(Scope.Benchmark)
+    public static class Csv {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"1", "4"})
+        public int threads;
+
+        final ImportExportService io = new ImportExportService();
+        List<Student> students;
+        Path root;
+        Path exportDir;
+        Path file;
+        ExportOptions exportOptions;
+        ImportOptions importOptions;
+
+        @Setup(Level.Trial)
+        public void prepare() throws Exception {
+            students = Arrays.asList(BenchData.students(size));
+            root = Files.createTempDirectory("ccrm-jmh-csv");
+            exportDir = Files.createDirectories(root.resolve("export"));
+            file = io.exportStudents(students, Files.createDirectories(root.resolve("import")), ExportOptions.defaults());
+            exportOptions = new ExportOptions.Builder().parallel(threads > 1).build();
+            importOptions = new ImportOptions.Builder().parallel(threads > 1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void remove() {
+            BenchData.delete(root);
+        }
+    }
+
+    // A data directory of its own, holding one export of size students and one of the courses.
+    @State(Scope.Benchmark)
+    public static class Backups {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int size;
+
+        Path dataDir;
+        BackupService backups;
+
+        @Setup(Level.Trial)
+        public void prepare() throws Exception {
+            ImportExportService io = new ImportExportService();
+            dataDir = Files.createTempDirectory("ccrm-jmh-backup");
+            Path exports = Files.createDirectories(dataDir.resolve("exports"));
+            io.exportStudents(Arrays.asList(BenchData.students(size)), exports, ExportOptions.defaults());
+            io.exportCourses(Arrays.asList(BenchData.courses(Math.max(100, size / 50))), exports,
+                    ExportOptions.defaults());
+            AppConfig.getInstance().setDataDirectory(dataDir.toString());
+            backups = new BackupService();
+            prepared();
+        }
+
+        // For subclasses. JMH runs a subclass's own trial setup before this one's.
+        void prepared() throws Exception {
+        }
+
+        @TearDown(Level.Trial)
+        public void remove() {
+            BenchData.delete(dataDir);
+        }
+    }
+
+    // Each backup after the first finds every export unchanged.
+    public static class BackedUp extends Backups {
+        @Override
+        void prepared() throws Exception {
+            backups.createBackup();
+        }
+    }
+
+    // The backup folder is removed before every iteration, so each starts from nothing.
+    public static class Empty extends Backups {
+        @Setup(Level.Iteration)
+        public void clear() {
+            Path backupDir = dataDir.resolve("backups");
+            if (Files.exists(backupDir)) {
+                BenchData.delete(backupDir);
+            }
+        }
+    }
+
+    @Benchmark
+    public void exportStudents(Csv state) throws Exception {
+        Files.delete(state.io.exportStudents(state.students, state.exportDir, state.exportOptions));
+    }
+
+    @Benchmark
+    public long importStudents(Csv state) throws Exception {
+        LongAdder rows = new LongAdder();
+        state.io.importStudents(state.file, student -> rows.increment(), state.importOptions);
+        if (rows.sum() != state.size) throw new IllegalStateException("Imported " + rows.sum() + " of " + state.size);
+        return rows.sum();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public BackupService.BackupInfo createBackupFull(Empty state) throws Exception {
+        return state.backups.createBackup();
+    }
+
+    @Benchmark
+    public BackupService.BackupInfo createBackupIncremental(BackedUp state) throws Exception {
+        return state.backups.createBackup();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public BackupService.BackupInfo createArchive(Empty state) throws Exception {
+        return state.backups.createArchive();
+    }
+}
@@ -0,0 +1,159 @@
+package edu.ccrm.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The service-layer cases of ServiceBenchmark, under JMH. Lookups, grading and transcripts
+// are measured as calls per second, each invocation a batch of BATCH calls split across the
+// threads. Adding students and enrolling them change what they measure, so those are timed
+// as a single shot filling a fresh data set of size students. Run with
+//   java -jar jmh/build/libs/ccrm-jmh.jar ServiceJmhBenchmark -p size=1000,100000 -p threads=1,4
+// A size of 1000000 needs a heap of several GB: add -jvmArgsAppend -Xmx8g.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceJmhBenchmark {
+    static final int BATCH = 4096;
+
+    @State(Scope.Benchmark)
+    public abstract static class Sized {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"1", "4"})
+        public int threads;
+
+        Workers workers;
+        BenchData data;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void startWorkers() {
+            workers = new Workers(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void stopWorkers() {
+            workers.close();
+        }
+
+        // The first index of the next batch; batches carry on where the last one stopped.
+        int nextBatch() {
+            int from = cursor;
+            cursor = (cursor + BATCH) % size;
+            return from;
+        }
+
+        // The student for a batch index, visiting every one once per pass in an order that
+        // defeats the caches a sequential scan would warm; 7919 is prime.
+        int student(int index) {
+            return (int) ((long) index * 7919 % size);
+        }
+    }
+
+    public static class Loaded extends Sized {
+        @Setup(Level.Trial)
+        public void load() throws Exception {
+            data = BenchData.loaded(size);
+        }
+    }
+
+    public static class Enrolled extends Sized {
+        @Setup(Level.Trial)
+        public void load() throws Exception {
+            data = BenchData.enrolled(size);
+        }
+    }
+
+    // Rebuilt before every iteration, with the courses added but no students.
+    public static class Unloaded extends Sized {
+        @Setup(Level.Iteration)
+        public void load() throws Exception {
+            data = null;
+            data = BenchData.unloaded(size);
+        }
+    }
+
+    // Rebuilt before every iteration, with the students added but nobody enrolled.
+    public static class LoadedEachIteration extends Sized {
+        @Setup(Level.Iteration)
+        public void load() throws Exception {
+            data = null;
+            data = BenchData.loaded(size);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public void addStudent(Unloaded state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(0, state.size, i -> data.studentService.addStudent(data.students[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void findStudentByRegNo(Loaded state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(state.nextBatch(), BATCH, i -> Bench.consume(
+                data.studentService.findStudentByRegNo(data.students[state.student(i)].getRegNo())));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public void enrollStudent(LoadedEachIteration state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(0, state.size, i -> data.enrollmentService.enrollStudent(
+                data.students[i].getId(), data.courseFor(i, 0).getCode()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void recordGrade(Enrolled state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(state.nextBatch(), BATCH, i -> {
+            int s = state.student(i);
+            data.enrollmentService.recordGrade(data.students[s].getId(),
+                    data.courseFor(s, i % BenchData.ENROLLMENTS_PER_STUDENT).getCode(), (i * 37) % 101);
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void searchByDepartment(Loaded state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(state.nextBatch(), BATCH, i -> Bench.consume(
+                data.courseService.searchByDepartment(BenchData.DEPARTMENTS[i % BenchData.DEPARTMENTS.length])));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void search(Loaded state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(state.nextBatch(), BATCH, i -> Bench.consume(
+                data.courseService.search("Instructor " + (i % 200))));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void generateTranscript(Enrolled state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(state.nextBatch(), BATCH, i -> Bench.consume(
+                data.transcriptService.generateTranscript(data.students[state.student(i)])));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void calculateGPA(Enrolled state) throws Exception {
+        BenchData data = state.data;
+        state.workers.run(state.nextBatch(), BATCH, i -> Bench.consume(
+                data.transcriptService.calculateGPA(data.students[state.student(i)])));
+    }
+}
@@ -0,0 +1,67 @@
+package edu.ccrm.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Splits a run of calls across a fixed number of threads, one contiguous range of indexes
+// each, and waits for all of them; a single thread runs the calls on the caller. This is what
+// lets the thread count be a benchmark @Param like the data-set size, where JMH's own thread
+// count cannot vary within one run.
+final class Workers implements AutoCloseable {
+    @FunctionalInterface
+    interface Call {
+        void run(int index) throws Exception;
+    }
+
+    private final int threads;
+    private final ExecutorService pool;
+
+    Workers(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+        this.threads = threads;
+        this.pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    }
+
+    // Calls call with every index from from up to from + count. The first failure is thrown.
+    void run(int from, int count, Call call) throws Exception {
+        if (pool == null) {
+            for (int i = from; i < from + count; i++) {
+                call.run(i);
+            }
+            return;
+        }
+        int chunk = (count + threads - 1) / threads;
+        List<Future<?>> parts = new ArrayList<>(threads);
+        for (int start = from; start < from + count; start += chunk) {
+            int first = start;
+            int end = Math.min(from + count, start + chunk);
+            parts.add(pool.submit(() -> {
+                for (int i = first; i < end; i++) {
+                    call.run(i);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> part : parts) {
+                part.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
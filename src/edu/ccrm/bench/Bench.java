@@ -0,0 +1,281 @@
+package edu.ccrm.bench;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Small harness shared by the suite benchmarks. A case is set up for every combination of
+// data-set size and thread count, run for a few untimed warm-up iterations and then a few
+// timed ones, and reported as the mean items per second with the spread across iterations.
+// Each combination runs in a JVM of its own, started with this JVM's options, so the JIT
+// profile and heap one case leaves behind do not shape the next.
+// Arguments, all optional:
+//   sizes=1000,10000,100000   data-set sizes; 1000000 needs a heap of several GB
+//   threads=1,2,4             thread counts; default 1 doubling up to the processor count
+//   warmup=2                  untimed iterations
+//   iterations=5              timed iterations
+//   forks=1                   JVMs per combination, pooled; 0 runs everything in this one
+//   only=transcript           run only cases whose name contains this
+//
+// The jmh/ module of the Gradle build runs the service and I/O cases under JMH. This harness
+// needs nothing beyond plain javac, for quick comparisons, but does not control for
+// everything JMH does (compiler blackholes, per-invocation timing, profilers); compare its
+// numbers between runs on one machine, not with JMH results.
+final class Bench {
+    enum Mode {
+        // The harness splits an iteration's calls across the threads.
+        SPLIT,
+        // One call per iteration; the case is given the thread count to parallelise itself.
+        INTERNAL,
+        // One call per iteration, run once whatever the thread count.
+        SINGLE
+    }
+
+    @FunctionalInterface
+    interface Setup<S> {
+        S create(int size, int threads) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Operation<S> {
+        void run(S state, int index) throws Exception;
+    }
+
+    static final class Case<S> {
+        final String name;
+        final Mode mode;
+        final Setup<S> setup;
+        final Operation<S> operation;
+        boolean freshState;
+        int maxCalls = Integer.MAX_VALUE;
+
+        Case(String name, Mode mode, Setup<S> setup, Operation<S> operation) {
+            this.name = name;
+            this.mode = mode;
+            this.setup = setup;
+            this.operation = operation;
+        }
+
+        // Set up again before every iteration, for operations that change what they measure.
+        Case<S> freshState() {
+            this.freshState = true;
+            return this;
+        }
+
+        // Caps the calls per SPLIT iteration, which default to the data-set size.
+        Case<S> maxCalls(int maxCalls) {
+            this.maxCalls = maxCalls;
+            return this;
+        }
+    }
+
+    // A forked JVM reports each timed iteration on a line of its own with this prefix.
+    private static final String RATE = "#rate ";
+
+    // Never the same as anything a benchmark produces, and volatile so the JIT cannot assume so.
+    private static volatile Object sentinel = new Object();
+    private static volatile double sentinelValue = Double.NaN;
+
+    private final Class<?> main;
+    private final Map<String, String> options;
+    private final int[] sizes;
+    private final int[] threads;
+    private final int warmup;
+    private final int iterations;
+    private final int forks;
+    private final String only;
+    // Set in a forked JVM: the one case it runs, reporting bare rates.
+    private final String forkedCase;
+    private final List<Case<?>> cases;
+
+    // main is the benchmark class, which forked JVMs run with the same arguments.
+    Bench(Class<?> main, String[] args) {
+        this.main = main;
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected name=value, got " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        this.sizes = ints(options.getOrDefault("sizes", "1000,10000,100000"));
+        this.threads = options.containsKey("threads") ? ints(options.get("threads")) : defaultThreads();
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        this.iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        this.forks = Integer.parseInt(options.getOrDefault("forks", "1"));
+        this.only = options.get("only");
+        this.forkedCase = options.get("forked");
+        this.options = options;
+        this.cases = new ArrayList<>();
+        if (forks < 0) throw new IllegalArgumentException("forks cannot be negative");
+    }
+
+    // Operations pass any result they would otherwise drop through here, so the JIT cannot
+    // discard the work that produced it. Comparing against a volatile leaves each thread
+    // reading a shared field, where a store would bounce its cache line between them.
+    static void consume(Object value) {
+        if (value == sentinel) {
+            throw new IllegalStateException("Consumed the sentinel");
+        }
+    }
+
+    static void consume(double value) {
+        if (value == sentinelValue) {
+            throw new IllegalStateException("Consumed the sentinel");
+        }
+    }
+
+    <S> Bench add(Case<S> benchmarkCase) {
+        cases.add(benchmarkCase);
+        return this;
+    }
+
+    void run() throws Exception {
+        if (forkedCase == null) {
+            System.out.printf("%-32s %9s %7s %14s %8s%n", "benchmark", "size", "threads", "items/sec", "spread");
+        }
+        for (Case<?> benchmarkCase : cases) {
+            if (forkedCase != null ? !benchmarkCase.name.equals(forkedCase)
+                    : only != null && !benchmarkCase.name.contains(only)) {
+                continue;
+            }
+            for (int size : sizes) {
+                for (int threadCount : threads) {
+                    if (benchmarkCase.mode == Mode.SINGLE && threadCount != threads[0]) {
+                        continue;
+                    }
+                    if (forkedCase != null) {
+                        for (double rate : measure(benchmarkCase, size, threadCount)) {
+                            System.out.println(RATE + rate);
+                        }
+                        continue;
+                    }
+                    double[] rates = forks > 0
+                            ? fork(benchmarkCase, size, threadCount)
+                            : measure(benchmarkCase, size, threadCount);
+                    double mean = Arrays.stream(rates).average().orElse(0);
+                    double spread = mean > 0
+                            ? (Arrays.stream(rates).max().orElse(0) - Arrays.stream(rates).min().orElse(0)) / 2 / mean
+                            : 0;
+                    System.out.printf("%-32s %9d %7d %,14.0f %7.1f%%%n", benchmarkCase.name, size,
+                            benchmarkCase.mode == Mode.SINGLE ? 1 : threadCount, mean, spread * 100);
+                }
+            }
+        }
+    }
+
+    // Runs one combination in forks JVMs, one after the other, and pools their timed
+    // iterations. A fork's standard error passes through; a fork that fails fails the run.
+    private double[] fork(Case<?> benchmarkCase, int size, int threadCount) throws Exception {
+        Map<String, String> forkOptions = new LinkedHashMap<>(options);
+        forkOptions.put("sizes", Integer.toString(size));
+        forkOptions.put("threads", Integer.toString(threadCount));
+        forkOptions.put("forks", "0");
+        forkOptions.put("forked", benchmarkCase.name);
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(main.getName());
+        forkOptions.forEach((name, value) -> command.add(name + "=" + value));
+
+        List<Double> rates = new ArrayList<>();
+        for (int f = 0; f < forks; f++) {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = out.readLine(); line != null; line = out.readLine()) {
+                    if (line.startsWith(RATE)) {
+                        rates.add(Double.parseDouble(line.substring(RATE.length())));
+                    }
+                }
+            }
+            int exit = process.waitFor();
+            if (exit != 0) {
+                throw new IllegalStateException(benchmarkCase.name + " fork exited with status " + exit);
+            }
+        }
+        if (rates.size() != forks * iterations) {
+            throw new IllegalStateException(benchmarkCase.name + " forks reported " + rates.size()
+                    + " iterations, expected " + forks * iterations);
+        }
+        return rates.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private <S> double[] measure(Case<S> benchmarkCase, int size, int threadCount) throws Exception {
+        double[] rates = new double[iterations];
+        ExecutorService executor = benchmarkCase.mode == Mode.SPLIT && threadCount > 1
+                ? Executors.newFixedThreadPool(threadCount) : null;
+        try {
+            S state = null;
+            for (int i = 0; i < warmup + iterations; i++) {
+                if (state == null || benchmarkCase.freshState) {
+                    state = null;
+                    System.gc();
+                    state = benchmarkCase.setup.create(size, threadCount);
+                }
+                long items;
+                long begin = System.nanoTime();
+                if (benchmarkCase.mode == Mode.SPLIT) {
+                    items = Math.min(size, benchmarkCase.maxCalls);
+                    split(benchmarkCase.operation, state, (int) items, threadCount, executor);
+                } else {
+                    benchmarkCase.operation.run(state, size);
+                    items = size;
+                }
+                long elapsed = System.nanoTime() - begin;
+                if (i >= warmup) {
+                    rates[i - warmup] = items / (elapsed / 1e9);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+        return rates;
+    }
+
+    // Thread t makes calls t, t + threads, t + 2 * threads and so on, all released together.
+    private static <S> void split(Operation<S> operation, S state, int calls, int threadCount,
+                                  ExecutorService executor) throws Exception {
+        if (executor == null) {
+            for (int i = 0; i < calls; i++) {
+                operation.run(state, i);
+            }
+            return;
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int first = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = first; i < calls; i += threadCount) {
+                    operation.run(state, i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<Void> result : results) {
+            result.get();
+        }
+    }
+
+    private static int[] ints(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static int[] defaultThreads() {
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t <= Runtime.getRuntime().availableProcessors(); t *= 2) {
+            counts.add(t);
+        }
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
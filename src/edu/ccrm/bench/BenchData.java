@@ -0,0 +1,119 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+// Data sets for the suite benchmarks: size students, one course per 50 of them (at least
+// 100), and, when asked for, five graded enrollments per student spread over the semesters.
+final class BenchData {
+    static final String[] DEPARTMENTS = {"Computer Science", "Mathematics", "Physics", "Chemistry",
+            "Biology", "Economics", "History", "Philosophy"};
+    static final int ENROLLMENTS_PER_STUDENT = 5;
+
+    final StudentService studentService;
+    final CourseService courseService;
+    final EnrollmentService enrollmentService;
+    final TranscriptService transcriptService;
+    final Student[] students;
+    final Course[] courses;
+
+    private BenchData(int size, boolean load, boolean enroll) throws Exception {
+        this.studentService = new StudentService();
+        this.courseService = new CourseService();
+        this.enrollmentService = new EnrollmentService(studentService, courseService);
+        this.transcriptService = new TranscriptService(enrollmentService);
+        this.students = students(size);
+        this.courses = courses(Math.max(100, size / 50));
+
+        for (Course course : courses) {
+            courseService.addCourse(course);
+        }
+        if (load) {
+            studentService.addAll(Arrays.asList(students), false);
+        }
+        if (enroll) {
+            for (int s = 0; s < students.length; s++) {
+                for (int i = 0; i < ENROLLMENTS_PER_STUDENT; i++) {
+                    String courseCode = courseFor(s, i).getCode();
+                    enrollmentService.enrollStudent(students[s].getId(), courseCode);
+                    enrollmentService.recordGrade(students[s].getId(), courseCode, (s * 31 + i * 17) % 101);
+                }
+            }
+        }
+    }
+
+    // Courses and students built, but only the courses added to the services.
+    static BenchData unloaded(int size) throws Exception {
+        return new BenchData(size, false, false);
+    }
+
+    static BenchData loaded(int size) throws Exception {
+        return new BenchData(size, true, false);
+    }
+
+    static BenchData enrolled(int size) throws Exception {
+        return new BenchData(size, true, true);
+    }
+
+    // The i-th course of a student; consecutive ones fall in different semesters, so five
+    // three-credit courses never exceed the per-semester limit.
+    Course courseFor(int student, int i) {
+        return courses[(student * 7 + i * 13) % courses.length];
+    }
+
+    static Student[] students(int count) {
+        Student[] students = new Student[count];
+        for (int s = 0; s < count; s++) {
+            students[s] = new Student.Builder(String.format("STU%07d", s), String.format("REG%07d", s))
+                    .fullName(new Name("First" + s, "Last" + s))
+                    .email(String.format("student%07d@campus.edu", s))
+                    .department(DEPARTMENTS[s % DEPARTMENTS.length])
+                    .build();
+        }
+        return students;
+    }
+
+    static Course[] courses(int count) {
+        Course[] courses = new Course[count];
+        for (int c = 0; c < count; c++) {
+            courses[c] = new Course.Builder(String.format("CRS%05d", c), "Course " + c)
+                    .credits(3)
+                    .instructor("Instructor " + (c % 200))
+                    .department(DEPARTMENTS[c % DEPARTMENTS.length])
+                    .semester(Semester.values()[c % Semester.values().length])
+                    .build();
+        }
+        return courses;
+    }
+
+    // A scratch directory removed when the JVM exits.
+    static Path tempDirectory() throws IOException {
+        Path dir = Files.createTempDirectory("ccrm-bench");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(dir)));
+        return dir;
+    }
+
+    static void delete(Path dir) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                    Files.delete(d);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // Left for the OS to clean up.
+        }
+    }
+}
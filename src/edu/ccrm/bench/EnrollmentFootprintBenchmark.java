@@ -0,0 +1,82 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+import java.lang.ref.Reference;
+import java.time.LocalDateTime;
+
+public class EnrollmentFootprintBenchmark {
+    private static final int COURSES = 2_000;
+    private static final int ENROLLMENTS_PER_STUDENT = 5;
+
+    public static void main(String[] args) throws Exception {
+        int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        StudentService studentService = new StudentService();
+        CourseService courseService = new CourseService();
+        EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
+
+        String[] courseCodes = new String[COURSES];
+        for (int c = 0; c < COURSES; c++) {
+            courseCodes[c] = String.format("CRS%05d", c);
+            courseService.addCourse(new Course.Builder(courseCodes[c], "Course " + c)
+                    .credits(3)
+                    .semester(Semester.values()[c % Semester.values().length])
+                    .build());
+        }
+
+        String[] studentIds = new String[studentCount];
+        for (int s = 0; s < studentCount; s++) {
+            studentIds[s] = String.format("STU%07d", s);
+            studentService.addStudent(new Student.Builder(studentIds[s], String.format("REG%07d", s))
+                    .fullName(new Name("First" + s, "Last" + s))
+                    .build());
+        }
+
+        long before = usedHeap();
+        CompactEnrollmentStore store = new CompactEnrollmentStore();
+        for (int s = 0; s < studentCount; s++) {
+            for (int i = 0; i < ENROLLMENTS_PER_STUDENT; i++) {
+                String courseCode = courseCodes[(s * 7 + i * 13) % COURSES];
+                store.add(studentIds[s], courseCode, LocalDateTime.now());
+                store.recordGrade(studentIds[s], courseCode, (s + i) % 101);
+            }
+        }
+        long compactBytes = usedHeap() - before;
+
+        before = usedHeap();
+        for (int s = 0; s < studentCount; s++) {
+            for (int i = 0; i < ENROLLMENTS_PER_STUDENT; i++) {
+                String courseCode = courseCodes[(s * 7 + i * 13) % COURSES];
+                enrollmentService.enrollStudent(studentIds[s], courseCode);
+                enrollmentService.recordGrade(studentIds[s], courseCode, (s + i) % 101);
+            }
+        }
+        long serviceBytes = usedHeap() - before;
+
+        System.out.printf("Enrollments:               %,d%n", store.size());
+        System.out.printf("EnrollmentService (heap):  %,d bytes (%.1f bytes/row)%n",
+                serviceBytes, (double) serviceBytes / store.size());
+        System.out.printf("Compact store (heap):      %,d bytes (%.1f bytes/row)%n",
+                compactBytes, (double) compactBytes / store.size());
+        System.out.printf("Compact store (estimated): %,d bytes%n", store.estimatedFootprintBytes());
+        System.out.printf("Savings:                   %.1fx%n", (double) serviceBytes / compactBytes);
+
+        // Keep both stores strongly reachable until every measurement has been taken.
+        Reference.reachabilityFence(enrollmentService);
+        Reference.reachabilityFence(store);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,76 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class EnrollmentThroughputBenchmark {
+    private static final int STUDENTS_PER_THREAD = 5_000;
+    private static final int COURSES = 400;
+    private static final int ENROLLMENTS_PER_STUDENT = 5;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("threads  enrollments  elapsed(ms)  ops/sec");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(threads);
+        }
+    }
+
+    private static void run(int threads) throws Exception {
+        StudentService studentService = new StudentService();
+        CourseService courseService = new CourseService();
+        EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
+
+        String[] courseCodes = new String[COURSES];
+        for (int c = 0; c < COURSES; c++) {
+            courseCodes[c] = String.format("CRS%04d", c);
+            courseService.addCourse(new Course.Builder(courseCodes[c], "Course " + c)
+                    .credits(3)
+                    .semester(Semester.values()[c % Semester.values().length])
+                    .build());
+        }
+
+        int studentCount = threads * STUDENTS_PER_THREAD;
+        String[] studentIds = new String[studentCount];
+        for (int s = 0; s < studentCount; s++) {
+            studentIds[s] = String.format("STU%07d", s);
+            studentService.addStudent(new Student.Builder(studentIds[s], String.format("REG%07d", s))
+                    .fullName(new Name("First" + s, "Last" + s))
+                    .build());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int first = t * STUDENTS_PER_THREAD;
+            results.add(executor.submit(() -> {
+                start.await();
+                int done = 0;
+                for (int s = first; s < first + STUDENTS_PER_THREAD; s++) {
+                    for (int i = 0; i < ENROLLMENTS_PER_STUDENT; i++) {
+                        enrollmentService.enrollStudent(studentIds[s], courseCodes[(s * 7 + i * 13) % COURSES]);
+                        done++;
+                    }
+                }
+                return done;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        System.out.printf("%7d  %11d  %11.1f  %,.0f%n",
+                threads, total, elapsedNanos / 1e6, total / (elapsedNanos / 1e9));
+    }
+}
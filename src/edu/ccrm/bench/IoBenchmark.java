@@ -0,0 +1,89 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rows per second through CSV export and import, and through the backup modes, by data-set
+// size. A thread count above one turns on the parallel import and export paths; backups are
+// measured once per size. Writes to a temporary directory that is removed on exit.
+public class IoBenchmark {
+    public static void main(String[] args) throws Exception {
+        Path root = BenchData.tempDirectory();
+        ImportExportService io = new ImportExportService();
+
+        new Bench(IoBenchmark.class, args)
+                .add(new Bench.Case<>("csv.exportStudents", Bench.Mode.INTERNAL,
+                        (size, threads) -> new ExportState(root, size, threads),
+                        (state, size) -> Files.delete(io.exportStudents(state.students, state.dir, state.options))))
+                .add(new Bench.Case<>("csv.importStudents", Bench.Mode.INTERNAL,
+                        (size, threads) -> new ImportState(io, root, size, threads),
+                        (state, size) -> {
+                            LongAdder rows = new LongAdder();
+                            io.importStudents(state.file, student -> rows.increment(), state.options);
+                            if (rows.sum() != size) throw new IllegalStateException("Imported " + rows.sum() + " of " + size);
+                        }))
+                .add(new Bench.Case<>("backup.createBackup.full", Bench.Mode.SINGLE,
+                        (size, threads) -> new BackupState(io, root, size),
+                        (state, size) -> state.backups.createBackup())
+                        .freshState())
+                .add(new Bench.Case<>("backup.createBackup.incremental", Bench.Mode.SINGLE,
+                        (size, threads) -> new BackupState(io, root, size).withFirstBackup(),
+                        (state, size) -> state.backups.createBackup()))
+                .add(new Bench.Case<>("backup.createArchive", Bench.Mode.SINGLE,
+                        (size, threads) -> new BackupState(io, root, size),
+                        (state, size) -> state.backups.createArchive()))
+                .run();
+    }
+
+    private static final class ExportState {
+        final List<Student> students;
+        final Path dir;
+        final ExportOptions options;
+
+        ExportState(Path root, int size, int threads) throws Exception {
+            this.students = Arrays.asList(BenchData.students(size));
+            this.dir = Files.createDirectories(root.resolve("export-" + size + "-" + threads));
+            this.options = new ExportOptions.Builder().parallel(threads > 1).build();
+        }
+    }
+
+    private static final class ImportState {
+        final Path file;
+        final ImportOptions options;
+
+        ImportState(ImportExportService io, Path root, int size, int threads) throws Exception {
+            Path dir = Files.createDirectories(root.resolve("import-" + size));
+            Path existing = dir.resolve("students.csv");
+            if (!Files.exists(existing)) {
+                Files.move(io.exportStudents(Arrays.asList(BenchData.students(size)), dir, ExportOptions.defaults()),
+                        existing);
+            }
+            this.file = existing;
+            this.options = new ImportOptions.Builder().parallel(threads > 1).build();
+        }
+    }
+
+    // A data directory of its own, holding one export of size students and one of the courses.
+    private static final class BackupState {
+        final BackupService backups;
+
+        BackupState(ImportExportService io, Path root, int size) throws Exception {
+            Path dataDir = Files.createTempDirectory(root, "backup-" + size + "-");
+            Path exports = Files.createDirectories(dataDir.resolve("exports"));
+            io.exportStudents(Arrays.asList(BenchData.students(size)), exports, ExportOptions.defaults());
+            io.exportCourses(Arrays.asList(BenchData.courses(Math.max(100, size / 50))), exports,
+                    ExportOptions.defaults());
+            AppConfig.getInstance().setDataDirectory(dataDir.toString());
+            this.backups = new BackupService();
+        }
+
+        BackupState withFirstBackup() throws Exception {
+            backups.createBackup();
+            return this;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.*;
+
+// Throughput of the service layer by data-set size and thread count. Run with
+//   java -cp bin edu.ccrm.bench.ServiceBenchmark sizes=1000,100000 threads=1,8
+// (see Bench for every option).
+public class ServiceBenchmark {
+    private static final int MAX_TRANSCRIPTS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        new Bench(ServiceBenchmark.class, args)
+                .add(new Bench.Case<>("student.addStudent", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.unloaded(size),
+                        (data, i) -> data.studentService.addStudent(data.students[i]))
+                        .freshState())
+                .add(new Bench.Case<>("student.findStudentByRegNo", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.loaded(size),
+                        (data, i) -> Bench.consume(data.studentService.findStudentByRegNo(
+                                data.students[scatter(i, data.students.length)].getRegNo()))))
+                .add(new Bench.Case<>("enrollment.enrollStudent", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.loaded(size),
+                        (data, i) -> data.enrollmentService.enrollStudent(
+                                data.students[i].getId(), data.courseFor(i, 0).getCode()))
+                        .freshState())
+                .add(new Bench.Case<>("enrollment.recordGrade", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.enrolled(size),
+                        (data, i) -> data.enrollmentService.recordGrade(
+                                data.students[i].getId(), data.courseFor(i, i % BenchData.ENROLLMENTS_PER_STUDENT).getCode(),
+                                (i * 37) % 101)))
+                .add(new Bench.Case<>("course.searchByDepartment", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.loaded(size),
+                        (data, i) -> Bench.consume(data.courseService.searchByDepartment(
+                                BenchData.DEPARTMENTS[i % BenchData.DEPARTMENTS.length]))))
+                .add(new Bench.Case<>("course.search", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.loaded(size),
+                        (data, i) -> Bench.consume(data.courseService.search("Instructor " + (i % 200)))))
+                .add(new Bench.Case<>("transcript.generateTranscript", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.enrolled(size),
+                        (data, i) -> Bench.consume(data.transcriptService.generateTranscript(
+                                data.students[scatter(i, data.students.length)])))
+                        .maxCalls(MAX_TRANSCRIPTS))
+                .add(new Bench.Case<>("transcript.calculateGPA", Bench.Mode.SPLIT,
+                        (size, threads) -> BenchData.enrolled(size),
+                        (data, i) -> Bench.consume(data.transcriptService.calculateGPA(
+                                data.students[scatter(i, data.students.length)]))))
+                .run();
+    }
+
+    // Visits every index once, in an order that defeats the caches a sequential scan would
+    // warm; 7919 is prime, so it is coprime with every size that is not a multiple of it.
+    private static int scatter(int i, int size) {
+        return (int) ((long) i * 7919 % size);
+    }
+}
@@ -0,0 +1,612 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.io.CsvWriter;
+import edu.ccrm.service.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// Seeded generator of large, realistic data sets for load testing: students across the
+// departments, courses across departments and semesters, and enrollments whose course
+// popularity follows a Zipf distribution and whose marks are normally distributed around a
+// per-student ability. Every student, course and enrollment list is drawn from its own random
+// stream, derived from the seed and its index, so the data depends only on the seed and the
+// sizes: any subset can be generated on any thread, in any order, and comes out the same.
+// Enrollments respect the per-semester credit limit, so loading them into the services fails
+// none. Courses have unlimited capacity; a waitlist would make the outcome depend on the
+// order the enrollments arrived in.
+public class SyntheticDataGenerator {
+    // Marks of an enrollment that has not been graded.
+    public static final double UNGRADED = Double.NaN;
+
+    private static final String[] STUDENT_HEADER = {"ID", "RegNo", "FirstName", "LastName", "Email", "Status", "CreatedAt",
+            "Department"};
+    private static final String[] COURSE_HEADER = {"Code", "Title", "Credits", "Instructor", "Department", "Semester", "Active",
+            "CreatedAt", "Capacity"};
+    private static final String[] ENROLLMENT_HEADER = {"StudentId", "CourseCode", "Marks"};
+
+    private static final String[] DEPARTMENT_PREFIXES = {"CS", "MATH", "PHYS", "CHEM", "BIO", "ECON", "HIST", "PHIL"};
+    private static final String[][] TOPICS = {
+            {"Programming", "Algorithms", "Data Structures", "Operating Systems", "Databases", "Networks", "Compilers", "Machine Learning"},
+            {"Calculus", "Linear Algebra", "Probability", "Statistics", "Number Theory", "Topology", "Real Analysis", "Combinatorics"},
+            {"Mechanics", "Electromagnetism", "Thermodynamics", "Optics", "Quantum Physics", "Relativity", "Astrophysics", "Solid State Physics"},
+            {"General Chemistry", "Organic Chemistry", "Inorganic Chemistry", "Biochemistry", "Spectroscopy", "Polymers", "Kinetics", "Electrochemistry"},
+            {"Cell Biology", "Genetics", "Ecology", "Evolution", "Microbiology", "Physiology", "Neuroscience", "Immunology"},
+            {"Microeconomics", "Macroeconomics", "Econometrics", "Game Theory", "Public Finance", "Labour Economics", "Trade", "Development"},
+            {"Ancient History", "Medieval Europe", "Modern Europe", "World Wars", "Economic History", "Colonial History", "Historiography", "Asian History"},
+            {"Logic", "Ethics", "Epistemology", "Metaphysics", "Philosophy of Mind", "Aesthetics", "Political Philosophy", "Philosophy of Science"}};
+    private static final String[] LEVELS = {"Introduction to", "Foundations of", "Topics in", "Advanced", "Seminar in"};
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael",
+            "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas",
+            "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Sandra",
+            "Aarav", "Priya", "Wei", "Mei", "Hiroshi", "Yuki", "Omar", "Fatima", "Carlos", "Sofia", "Ivan", "Olga"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore",
+            "Jackson", "Martin", "Lee", "Thompson", "White", "Harris", "Clark", "Lewis", "Walker", "Hall", "Young",
+            "Sharma", "Patel", "Wang", "Chen", "Tanaka", "Sato", "Hassan", "Ali", "Silva", "Santos", "Petrov", "Novak"};
+    // Credit values and their cumulative weights out of 100.
+    private static final int[] CREDITS = {2, 3, 4, 5};
+    private static final int[] CREDIT_WEIGHTS = {15, 65, 95, 100};
+    private static final int MAX_CREDITS_PER_SEMESTER = 20;
+    private static final int FIRST_YEAR = 2019;
+    private static final int YEARS = 6;
+
+    // Marks have one decimal place, so each is rendered from this table rather than formatted.
+    private static final String[] MARKS;
+
+    static {
+        MARKS = new String[1001];
+        for (int i = 0; i <= 1000; i++) {
+            MARKS[i] = (i / 10) + "." + (i % 10);
+        }
+    }
+
+    // Random streams, so that the draws for one purpose never shift those for another.
+    private static final long STUDENT_STREAM = 1;
+    private static final long COURSE_STREAM = 2;
+    private static final long ENROLLMENT_STREAM = 3;
+    private static final long STATUS_STREAM = 4;
+    private static final long POPULARITY_STREAM = 5;
+
+    @FunctionalInterface
+    public interface EnrollmentSink {
+        // marks is UNGRADED when the enrollment has no grade.
+        void accept(int studentIndex, int courseIndex, double marks);
+    }
+
+    public static class Builder {
+        private long seed = 42;
+        private int students = 100_000;
+        private int courses = 2_000;
+        private int minEnrollments = 3;
+        private int maxEnrollments = 7;
+        private double popularitySkew = 1.0;
+        private double activeFraction = 0.9;
+        private double gradedFraction = 0.8;
+        private double markMean = 68;
+        private double markStdDev = 14;
+        private int chunkRows = 20_000;
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder students(int students) {
+            if (students < 0) throw new IllegalArgumentException("Student count cannot be negative");
+            this.students = students;
+            return this;
+        }
+
+        public Builder courses(int courses) {
+            if (courses <= 0) throw new IllegalArgumentException("Course count must be positive");
+            this.courses = courses;
+            return this;
+        }
+
+        // Each active student is given between min and max enrollments, inclusive.
+        public Builder enrollmentsPerStudent(int min, int max) {
+            if (min < 0 || max < min) throw new IllegalArgumentException("Invalid enrollment range");
+            this.minEnrollments = min;
+            this.maxEnrollments = max;
+            return this;
+        }
+
+        // Zipf exponent of course popularity: 0 is uniform, and at 1 the most popular course
+        // draws twice the enrollments of the second.
+        public Builder popularitySkew(double popularitySkew) {
+            if (popularitySkew < 0) throw new IllegalArgumentException("Skew cannot be negative");
+            this.popularitySkew = popularitySkew;
+            return this;
+        }
+
+        // Students that are not active are split between the other statuses and not enrolled.
+        public Builder activeFraction(double activeFraction) {
+            this.activeFraction = fraction(activeFraction);
+            return this;
+        }
+
+        public Builder gradedFraction(double gradedFraction) {
+            this.gradedFraction = fraction(gradedFraction);
+            return this;
+        }
+
+        public Builder marks(double mean, double stdDev) {
+            if (stdDev < 0) throw new IllegalArgumentException("Standard deviation cannot be negative");
+            this.markMean = mean;
+            this.markStdDev = stdDev;
+            return this;
+        }
+
+        // Students per unit of parallel work, both when loading and when writing.
+        public Builder chunkRows(int chunkRows) {
+            if (chunkRows <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+            this.chunkRows = chunkRows;
+            return this;
+        }
+
+        public SyntheticDataGenerator build() {
+            return new SyntheticDataGenerator(this);
+        }
+
+        private static double fraction(double value) {
+            if (value < 0 || value > 1) throw new IllegalArgumentException("Fraction must be between 0 and 1");
+            return value;
+        }
+    }
+
+    public static class LoadReport {
+        private final int students;
+        private final int courses;
+        private final long enrollments;
+        private final long graded;
+        private final long failed;
+        private final long elapsedNanos;
+
+        public LoadReport(int students, int courses, long enrollments, long graded, long failed, long elapsedNanos) {
+            this.students = students;
+            this.courses = courses;
+            this.enrollments = enrollments;
+            this.graded = graded;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getStudentCount() { return students; }
+        public int getCourseCount() { return courses; }
+        public long getEnrollmentCount() { return enrollments; }
+        public long getGradedCount() { return graded; }
+        // Students, courses or enrollments the services turned down, as duplicates of what
+        // they already held.
+        public long getFailedCount() { return failed; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("Load[%d students, %d courses, %d enrollments, %d graded, %d failed, %d ms]",
+                    students, courses, enrollments, graded, failed, elapsedNanos / 1_000_000);
+        }
+    }
+
+    public static class WriteReport {
+        private final List<Path> files;
+        private final long rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        public WriteReport(List<Path> files, long rows, long bytes, long elapsedNanos) {
+            this.files = files;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<Path> getFiles() { return files; }
+        public long getRowCount() { return rows; }
+        public long getBytes() { return bytes; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getBytesPerSecond() {
+            return elapsedNanos > 0 ? bytes / (elapsedNanos / 1e9) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Write[%d files, %d rows, %d bytes, %d ms, %.1f MB/s]",
+                    files.size(), rows, bytes, elapsedNanos / 1_000_000, getBytesPerSecond() / (1024 * 1024));
+        }
+    }
+
+    private final long seed;
+    private final int studentCount;
+    private final int courseCount;
+    private final int minEnrollments;
+    private final int maxEnrollments;
+    private final double activeFraction;
+    private final double gradedFraction;
+    private final double markMean;
+    private final double markStdDev;
+    private final int chunkRows;
+    // What enrollment needs to know of each course, kept rather than rebuilding the course.
+    private final String[] courseCodes;
+    private final int[] courseCredits;
+    private final int[] courseSemesters;
+    // Course indexes by popularity rank, and the cumulative Zipf weight of each rank.
+    private final int[] byRank;
+    private final double[] cumulativeWeights;
+
+    private SyntheticDataGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.studentCount = builder.students;
+        this.courseCount = builder.courses;
+        this.minEnrollments = builder.minEnrollments;
+        this.maxEnrollments = builder.maxEnrollments;
+        this.activeFraction = builder.activeFraction;
+        this.gradedFraction = builder.gradedFraction;
+        this.markMean = builder.markMean;
+        this.markStdDev = builder.markStdDev;
+        this.chunkRows = builder.chunkRows;
+
+        this.courseCodes = new String[courseCount];
+        this.courseCredits = new int[courseCount];
+        this.courseSemesters = new int[courseCount];
+        for (int c = 0; c < courseCount; c++) {
+            Course course = course(c);
+            courseCodes[c] = course.getCode();
+            courseCredits[c] = course.getCredits();
+            courseSemesters[c] = course.getSemester().ordinal();
+        }
+
+        // Popularity is shuffled across the courses, so the favourites are not all in one
+        // department or semester.
+        this.byRank = IntStream.range(0, courseCount).toArray();
+        SplittableRandom random = random(POPULARITY_STREAM, 0);
+        for (int i = courseCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = byRank[i];
+            byRank[i] = byRank[j];
+            byRank[j] = swap;
+        }
+        this.cumulativeWeights = new double[courseCount];
+        double total = 0;
+        for (int rank = 0; rank < courseCount; rank++) {
+            total += 1 / Math.pow(rank + 1, builder.popularitySkew);
+            cumulativeWeights[rank] = total;
+        }
+    }
+
+    public int getStudentCount() {
+        return studentCount;
+    }
+
+    public int getCourseCount() {
+        return courseCount;
+    }
+
+    public Course course(int index) {
+        SplittableRandom random = random(COURSE_STREAM, index);
+        int department = index % DEPARTMENT_PREFIXES.length;
+        String[] topics = TOPICS[department];
+        String title = LEVELS[random.nextInt(LEVELS.length)] + " " + topics[random.nextInt(topics.length)];
+        int weight = random.nextInt(100);
+        int credits = CREDITS[0];
+        for (int i = 0; weight >= CREDIT_WEIGHTS[i]; i++) {
+            credits = CREDITS[i + 1];
+        }
+        LocalDateTime created = timestamp(random);
+        return new Course.Builder(DEPARTMENT_PREFIXES[department] + (100 + index / DEPARTMENT_PREFIXES.length), title)
+                .credits(credits)
+                .instructor("Dr. " + LAST_NAMES[random.nextInt(LAST_NAMES.length)])
+                .department(BenchData.DEPARTMENTS[department])
+                .semester(Semester.values()[random.nextInt(Semester.values().length)])
+                .createdAt(created)
+                .updatedAt(created)
+                .build();
+    }
+
+    public Student student(int index) {
+        SplittableRandom random = random(STUDENT_STREAM, index);
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        LocalDateTime enrolled = timestamp(random);
+        return new Student.Builder(studentId(index), "REG" + enrolled.getYear() + pad(index))
+                .fullName(new Name(firstName, lastName))
+                .email((firstName + "." + lastName).toLowerCase(Locale.ROOT) + index + "@campus.edu")
+                .department(BenchData.DEPARTMENTS[random.nextInt(BenchData.DEPARTMENTS.length)])
+                .status(status(index))
+                .enrollmentDate(enrolled)
+                .createdAt(enrolled)
+                .updatedAt(enrolled)
+                .build();
+    }
+
+    public List<Course> courses() {
+        List<Course> courses = new ArrayList<>(courseCount);
+        for (int c = 0; c < courseCount; c++) {
+            courses.add(course(c));
+        }
+        return courses;
+    }
+
+    // Students from (inclusive) to to (exclusive).
+    public List<Student> students(int from, int to) {
+        List<Student> students = new ArrayList<>(to - from);
+        for (int s = from; s < to; s++) {
+            students.add(student(s));
+        }
+        return students;
+    }
+
+    // Passes each enrollment of one student to the sink, in the order they were drawn. A
+    // course drawn twice, or one that would take its semester over the credit limit, is
+    // skipped and another drawn in its place, a bounded number of times.
+    public void enrollments(int studentIndex, EnrollmentSink sink) {
+        if (status(studentIndex) != Student.Status.ACTIVE) {
+            return;
+        }
+        SplittableRandom random = random(ENROLLMENT_STREAM, studentIndex);
+        int wanted = minEnrollments + random.nextInt(maxEnrollments - minEnrollments + 1);
+        double ability = random.nextGaussian() * markStdDev * 0.6;
+        int[] chosen = new int[wanted];
+        int[] semesterCredits = new int[Semester.values().length];
+        int count = 0;
+        for (int attempt = 0; count < wanted && attempt < wanted * 4; attempt++) {
+            int course = popularCourse(random);
+            if (contains(chosen, count, course)
+                    || semesterCredits[courseSemesters[course]] + courseCredits[course] > MAX_CREDITS_PER_SEMESTER) {
+                continue;
+            }
+            chosen[count++] = course;
+            semesterCredits[courseSemesters[course]] += courseCredits[course];
+            double marks = UNGRADED;
+            if (random.nextDouble() < gradedFraction) {
+                double drawn = markMean + ability + random.nextGaussian() * markStdDev * 0.8;
+                marks = Math.round(Math.max(0, Math.min(100, drawn)) * 10) / 10.0;
+            }
+            sink.accept(studentIndex, course, marks);
+        }
+    }
+
+    // Adds every course, then the students and their enrollments a chunk at a time, the
+    // chunks in parallel on the common pool. Each student's enrollments are in the same
+    // batch, so the credit limit is checked against all of them.
+    public LoadReport loadInto(StudentService studentService, CourseService courseService,
+                               EnrollmentService enrollmentService) {
+        long begin = System.nanoTime();
+        BulkResult courseResult = courseService.addAll(courses(), false);
+        long failed = courseResult.getDuplicateCount() + courseResult.getInvalidCount();
+
+        int chunks = (studentCount + chunkRows - 1) / chunkRows;
+        long[] studentFailures = new long[chunks];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            BulkResult result = studentService.addAll(
+                    students(chunk * chunkRows, Math.min(studentCount, (chunk + 1) * chunkRows)), false);
+            studentFailures[chunk] = result.getDuplicateCount() + result.getInvalidCount();
+        });
+
+        long[] enrolled = new long[chunks];
+        long[] graded = new long[chunks];
+        long[] enrollmentFailures = new long[chunks];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            List<EnrollmentRequest> requests = new ArrayList<>();
+            List<Double> marks = new ArrayList<>();
+            for (int s = chunk * chunkRows; s < Math.min(studentCount, (chunk + 1) * chunkRows); s++) {
+                enrollments(s, (student, course, mark) -> {
+                    requests.add(new EnrollmentRequest(studentId(student), courseCodes[course]));
+                    marks.add(mark);
+                });
+            }
+            EnrollmentService.BatchResult result = enrollmentService.enrollBatch(requests);
+            for (int i = 0; i < result.size(); i++) {
+                if (result.getOutcome(i) != EnrollmentOutcome.OK) {
+                    enrollmentFailures[chunk]++;
+                    continue;
+                }
+                enrolled[chunk]++;
+                if (Double.isNaN(marks.get(i))) {
+                    continue;
+                }
+                EnrollmentRequest request = requests.get(i);
+                try {
+                    enrollmentService.recordGrade(request.getStudentId(), request.getCourseCode(), marks.get(i));
+                    graded[chunk]++;
+                } catch (Exception e) {
+                    enrollmentFailures[chunk]++;
+                }
+            }
+        });
+
+        return new LoadReport(studentCount, courseCount, Arrays.stream(enrolled).sum(), Arrays.stream(graded).sum(),
+                failed + Arrays.stream(studentFailures).sum() + Arrays.stream(enrollmentFailures).sum(),
+                System.nanoTime() - begin);
+    }
+
+    // Writes students.csv and courses.csv, which ImportExportService imports, and
+    // enrollments.csv, one row per enrollment with empty marks where ungraded.
+    public WriteReport writeCsv(Path dir) throws IOException {
+        long begin = System.nanoTime();
+        Files.createDirectories(dir);
+        List<Path> files = List.of(dir.resolve("students.csv"), dir.resolve("courses.csv"), dir.resolve("enrollments.csv"));
+        long rows = studentCount + courseCount;
+        long bytes = writeChunked(files.get(0), STUDENT_HEADER, studentCount, (s, out) -> {
+            Student student = student(s);
+            out.field(student.getId())
+                    .field(student.getRegNo())
+                    .field(student.getFullName().getFirstName())
+                    .field(student.getFullName().getLastName())
+                    .field(student.getEmail())
+                    .field(student.getStatus())
+                    .field(student.getCreatedAt())
+                    .field(student.getDepartment())
+                    .endRow();
+        });
+        bytes += writeChunked(files.get(1), COURSE_HEADER, courseCount, (c, out) -> {
+            Course course = course(c);
+            out.field(course.getCode())
+                    .field(course.getTitle())
+                    .field(course.getCredits())
+                    .field(course.getInstructor())
+                    .field(course.getDepartment())
+                    .field(course.getSemester())
+                    .field(course.isActive())
+                    .field(course.getCreatedAt())
+                    .field(course.getCapacity())
+                    .endRow();
+        });
+        AtomicInteger enrollmentRows = new AtomicInteger();
+        bytes += writeChunked(files.get(2), ENROLLMENT_HEADER, studentCount, (s, out) -> {
+            enrollments(s, (student, course, marks) -> {
+                out.field(studentId(student))
+                        .field(courseCodes[course])
+                        .field(Double.isNaN(marks) ? null : MARKS[(int) Math.round(marks * 10)])
+                        .endRow();
+                enrollmentRows.incrementAndGet();
+            });
+        });
+        rows += enrollmentRows.get();
+        return new WriteReport(files, rows, bytes, System.nanoTime() - begin);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(int index, CsvWriter out);
+    }
+
+    // Chunks of rows are rendered concurrently but written strictly in order, with at most a
+    // few per worker in flight so memory stays bounded, as ImportExportService exports do.
+    private long writeChunked(Path file, String[] header, int count, RowWriter rows) throws IOException {
+        int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+        long written = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            CsvWriter headerRow = new CsvWriter(256);
+            for (String column : header) {
+                headerRow.field(column);
+            }
+            headerRow.endRow();
+            headerRow.writeTo(out);
+            written += headerRow.size();
+
+            for (int start = 0; start < count; start += chunkRows) {
+                int from = start;
+                int to = Math.min(count, start + chunkRows);
+                pending.add(CompletableFuture.supplyAsync(() -> {
+                    CsvWriter writer = new CsvWriter((to - from) * 96);
+                    for (int i = from; i < to; i++) {
+                        rows.write(i, writer);
+                    }
+                    return writer.toByteArray();
+                }));
+                if (pending.size() >= window) {
+                    written += write(out, pending.poll());
+                }
+            }
+            while (!pending.isEmpty()) {
+                written += write(out, pending.poll());
+            }
+        }
+        return written;
+    }
+
+    private static int write(OutputStream out, CompletableFuture<byte[]> chunk) throws IOException {
+        byte[] bytes = chunk.join();
+        out.write(bytes);
+        return bytes.length;
+    }
+
+    private int popularCourse(SplittableRandom random) {
+        double target = random.nextDouble() * cumulativeWeights[courseCount - 1];
+        int rank = Arrays.binarySearch(cumulativeWeights, target);
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+        return byRank[Math.min(rank, courseCount - 1)];
+    }
+
+    private Student.Status status(int index) {
+        double draw = random(STATUS_STREAM, index).nextDouble();
+        if (draw < activeFraction) {
+            return Student.Status.ACTIVE;
+        }
+        // The rest split evenly between the other three.
+        int other = (int) ((draw - activeFraction) / (1 - activeFraction) * 3);
+        return switch (Math.min(other, 2)) {
+            case 0 -> Student.Status.GRADUATED;
+            case 1 -> Student.Status.INACTIVE;
+            default -> Student.Status.SUSPENDED;
+        };
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static LocalDateTime timestamp(SplittableRandom random) {
+        return LocalDateTime.of(FIRST_YEAR + random.nextInt(YEARS), 1, 1, 9, 0)
+                .plusDays(random.nextInt(365))
+                .plusMinutes(random.nextInt(8 * 60));
+    }
+
+    private static String studentId(int index) {
+        return "STU" + pad(index);
+    }
+
+    // Eight digits, or more once the index needs them.
+    private static String pad(int value) {
+        String digits = Integer.toString(value);
+        return digits.length() >= 8 ? digits : "00000000".substring(digits.length()) + digits;
+    }
+
+    // SplitMix64's finaliser over the seed, stream and index, so neighbouring indexes get
+    // unrelated streams.
+    private SplittableRandom random(long stream, long index) {
+        long z = seed + stream * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    // Arguments, all optional:
+    //   seed=42  students=100000  courses=2000  enrollments=3-7  skew=1.0
+    //   out=DIR  write the CSV files there instead of loading the services
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected name=value, got " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        String[] range = options.getOrDefault("enrollments", "3-7").split("-");
+        SyntheticDataGenerator generator = new Builder()
+                .seed(Long.parseLong(options.getOrDefault("seed", "42")))
+                .students(Integer.parseInt(options.getOrDefault("students", "100000")))
+                .courses(Integer.parseInt(options.getOrDefault("courses", "2000")))
+                .enrollmentsPerStudent(Integer.parseInt(range[0]), Integer.parseInt(range[range.length - 1]))
+                .popularitySkew(Double.parseDouble(options.getOrDefault("skew", "1.0")))
+                .build();
+
+        if (options.containsKey("out")) {
+            System.out.println(generator.writeCsv(Paths.get(options.get("out"))));
+        } else {
+            StudentService studentService = new StudentService();
+            CourseService courseService = new CourseService();
+            EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
+            System.out.println(generator.loadInto(studentService, courseService, enrollmentService));
+            System.out.println(studentService.getServiceStats());
+        }
+    }
+}
@@ -6,7 +6,9 @@ import edu.ccrm.service.*;
 import edu.ccrm.io.*;
 import edu.ccrm.util.*;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,8 +21,13 @@ public class CCRMApplication {
     private static CourseService courseService;
     private static EnrollmentService enrollmentService;
     private static TranscriptService transcriptService;
+    private static GpaLeaderboard leaderboard;
+    private static GpaDistribution gpaDistribution;
     private static ImportExportService ioService;
     private static BackupService backupService;
+    private static SnapshotService snapshotService;
+    private static Journal journal;
+    private static List<Instructor> instructors = new ArrayList<>();
 
     public static void main(String[] args) {
         try {
@@ -50,9 +57,41 @@ public class CCRMApplication {
         studentService = new StudentService();
         courseService = new CourseService();
         enrollmentService = new EnrollmentService(studentService, courseService);
-        transcriptService = new TranscriptService();
+        AppConfig config = AppConfig.getInstance();
+        transcriptService = new TranscriptService(enrollmentService, config.getTranscriptCacheEntries(),
+                config.getTranscriptCacheChars());
+        leaderboard = new GpaLeaderboard();
+        enrollmentService.addListener(leaderboard);
+        studentService.addListener(leaderboard);
+        gpaDistribution = new GpaDistribution();
+        enrollmentService.addListener(gpaDistribution);
+        studentService.addListener(gpaDistribution);
         ioService = new ImportExportService();
         backupService = new BackupService();
+        snapshotService = new SnapshotService(studentService, courseService, enrollmentService);
+
+        Path snapshot = snapshotPath();
+        if (Files.exists(snapshot)) {
+            SnapshotService.SnapshotInfo info = snapshotService.load(snapshot);
+            instructors = new ArrayList<>(info.getInstructors());
+            System.out.println("Loaded " + info);
+        }
+
+        journal = new Journal.Builder(Paths.get(config.getDataDirectory(), "journal"))
+                .fsync(Journal.FsyncPolicy.valueOf(config.getJournalFsync().toUpperCase(Locale.ROOT)))
+                .fsyncInterval(config.getJournalFsyncIntervalMillis())
+                .open();
+        Journal.ReplayResult replay = journal.replay(studentService, courseService, enrollmentService);
+        if (replay.getRecordCount() > 0 || replay.getTruncatedBytes() > 0) {
+            System.out.println("Recovered " + replay);
+        }
+        studentService.setMutationLog(journal);
+        courseService.setMutationLog(journal);
+        enrollmentService.setMutationLog(journal);
+    }
+
+    private static Path snapshotPath() {
+        return Paths.get(AppConfig.getInstance().getDataDirectory(), "snapshot.bin");
     }
 
     private static void runMainMenu() {
@@ -73,6 +112,8 @@ public class CCRMApplication {
                     case 5 -> fileOperations();
                     case 6 -> generateReports();
                     case 7 -> {
+                        saveSnapshot();
+                        closeJournal();
                         System.out.println("Goodbye!");
                         running = false;
                         break mainLoop;
@@ -114,6 +155,7 @@ public class CCRMApplication {
         System.out.println("3. Update Student");
         System.out.println("4. Deactivate Student");
         System.out.println("5. View Student Profile");
+        System.out.println("6. Search Students");
         System.out.print("Enter choice: ");
 
         int choice = scanner.nextInt();
@@ -135,6 +177,9 @@ public class CCRMApplication {
             case 5:
                 viewStudentProfile();
                 break;
+            case 6:
+                searchStudents();
+                break;
             default:
                 System.out.println("Invalid choice.");
         }
@@ -206,8 +251,14 @@ public class CCRMApplication {
                 String newEmail = scanner.nextLine();
 
                 if (!newEmail.trim().isEmpty()) {
+                    String oldEmail = student.getEmail();
                     student.setEmail(newEmail);
-                    studentService.updateStudent(student);
+                    try {
+                        studentService.updateStudent(student);
+                    } catch (Exception e) {
+                        student.setEmail(oldEmail);
+                        throw e;
+                    }
                     System.out.println("Student updated successfully!");
                 }
             } else {
@@ -252,6 +303,35 @@ public class CCRMApplication {
         }
     }
 
+    private static void searchStudents() {
+        System.out.print("Enter name (blank for any): ");
+        String name = scanner.nextLine().trim();
+        System.out.print("Enter status (ACTIVE/INACTIVE/GRADUATED/SUSPENDED, blank for any): ");
+        String statusName = scanner.nextLine().trim();
+        System.out.print("Enter department (blank for any): ");
+        String dept = scanner.nextLine().trim();
+
+        try {
+            StudentService.SearchCriteria criteria = studentService.createSearchCriteria();
+            if (!name.isEmpty()) {
+                criteria.setNamePattern(name);
+            }
+            if (!statusName.isEmpty()) {
+                criteria.setStatus(Student.Status.valueOf(statusName.toUpperCase()));
+            }
+            if (!dept.isEmpty()) {
+                criteria.setDepartment(dept);
+            }
+
+            List<Student> results = criteria.search();
+            System.out.println("\n=== SEARCH RESULTS ===");
+            results.forEach(System.out::println);
+            System.out.println("Found " + results.size() + " students.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid status.");
+        }
+    }
+
     private static void manageCourses() {
         System.out.println("\n=== COURSE MANAGEMENT ===");
         System.out.println("1. Add Course");
@@ -290,6 +370,10 @@ public class CCRMApplication {
             System.out.print("Enter instructor name: ");
             String instructorName = scanner.nextLine();
 
+            System.out.print("Enter capacity (" + Course.UNLIMITED_CAPACITY + " for unlimited): ");
+            int capacity = scanner.nextInt();
+            scanner.nextLine();
+
             // Display semester options using enum
             System.out.println("Available semesters:");
             Semester[] semesters = Semester.values();
@@ -307,6 +391,7 @@ public class CCRMApplication {
                         .credits(credits)
                         .department(department)
                         .instructor(instructorName)
+                        .capacity(capacity)
                         .semester(semesters[semesterChoice])
                         .build();
 
@@ -344,6 +429,7 @@ public class CCRMApplication {
         System.out.println("1. Department");
         System.out.println("2. Instructor");
         System.out.println("3. Semester");
+        System.out.println("4. Keyword (title, department or instructor)");
         System.out.print("Enter choice: ");
 
         int choice = scanner.nextInt();
@@ -374,6 +460,11 @@ public class CCRMApplication {
                         return;
                     }
                     break;
+                case 4:
+                    System.out.print("Enter keywords: ");
+                    String keywords = scanner.nextLine();
+                    results = courseService.search(keywords);
+                    break;
                 default:
                     System.out.println("Invalid choice.");
                     return;
@@ -437,8 +528,13 @@ public class CCRMApplication {
             System.out.print("Enter course code: ");
             String courseCode = scanner.nextLine();
 
-            enrollmentService.enrollStudent(studentId, courseCode);
-            System.out.println("Student enrolled successfully!");
+            EnrollmentOutcome outcome = enrollmentService.enrollStudent(studentId, courseCode);
+            if (outcome == EnrollmentOutcome.WAITLISTED) {
+                System.out.println("Course is full. Student added to waitlist (position "
+                        + enrollmentService.getWaitlist(courseCode).size() + ").");
+            } else {
+                System.out.println("Student enrolled successfully!");
+            }
 
         } catch (Exception e) {
             System.err.println("Enrollment error: " + e.getMessage());
@@ -568,6 +664,9 @@ public class CCRMApplication {
         System.out.println("2. Export Data");
         System.out.println("3. Backup Data");
         System.out.println("4. Show Backup Size");
+        System.out.println("5. Save Snapshot");
+        System.out.println("6. Backup Data to Compressed Archive");
+        System.out.println("7. Verify Backup Catalog");
         System.out.print("Enter choice: ");
 
         int choice = scanner.nextInt();
@@ -578,6 +677,9 @@ public class CCRMApplication {
             case 2 -> exportData();
             case 3 -> backupData();
             case 4 -> showBackupSize();
+            case 5 -> saveSnapshot();
+            case 6 -> archiveData();
+            case 7 -> verifyBackups();
             default -> System.out.println("Invalid choice.");
         }
     }
@@ -594,23 +696,36 @@ public class CCRMApplication {
             System.out.print("Enter file path: ");
             String filePath = scanner.nextLine();
 
+            ImportSummary summary;
             switch (choice) {
                 case 1:
-                    List<Student> students = ioService.importStudents(Paths.get(filePath));
-                    for (Student student : students) {
-                        studentService.addStudent(student);
-                    }
-                    System.out.println("Students imported successfully!");
+                    summary = ImportPipeline.forStudents(studentService)
+                            .progress(ImportOptions.DEFAULT_PROGRESS_INTERVAL, CCRMApplication::printImportProgress)
+                            .build()
+                            .run(Paths.get(filePath));
                     break;
                 case 2:
-                    List<Course> courses = ioService.importCourses(Paths.get(filePath));
-                    for (Course course : courses) {
-                        courseService.addCourse(course);
-                    }
-                    System.out.println("Courses imported successfully!");
+                    summary = ImportPipeline.forCourses(courseService)
+                            .progress(ImportOptions.DEFAULT_PROGRESS_INTERVAL, CCRMApplication::printImportProgress)
+                            .build()
+                            .run(Paths.get(filePath));
                     break;
                 default:
                     System.out.println("Invalid choice.");
+                    return;
+            }
+
+            System.out.print(summary);
+            for (ImportReport.ImportError skipped : summary.getSkippedRecords()) {
+                System.out.println("  Skipped " + skipped);
+            }
+            for (ImportReport.ImportError failure : summary.getFailures()) {
+                System.err.println("  Failed " + failure);
+            }
+            long unlisted = summary.getSkipped() + summary.getFailed()
+                    - summary.getSkippedRecords().size() - summary.getFailures().size();
+            if (unlisted > 0) {
+                System.err.println("  ... " + unlisted + " more not listed");
             }
 
         } catch (Exception e) {
@@ -618,6 +733,10 @@ public class CCRMApplication {
         }
     }
 
+    private static void printImportProgress(ImportSummary summary) {
+        System.out.println("  " + summary.getRecordsRead() + " records read...");
+    }
+
     private static void exportData() {
         try {
             AppConfig config = AppConfig.getInstance();
@@ -635,27 +754,70 @@ public class CCRMApplication {
 
     private static void backupData() {
         try {
-            Path backupPath = backupService.createBackup();
-            System.out.println("Backup created at: " + backupPath);
+            BackupService.BackupInfo info = backupService.createBackup();
+            System.out.println("Backup created at: " + info.getPath());
+            System.out.println(info);
 
         } catch (Exception e) {
             System.err.println("Backup error: " + e.getMessage());
         }
     }
 
+    private static void archiveData() {
+        try {
+            BackupService.BackupInfo info = backupService.createArchive();
+            System.out.println("Backup archive created at: " + info.getPath());
+            System.out.printf("%d files, %d bytes -> %d bytes (ratio %.2f) in %.2f s, %.1f MB/s%n",
+                    info.getFileCount(), info.getLogicalBytes(), info.getStoredBytes(), info.getCompressionRatio(),
+                    info.getElapsedNanos() / 1e9, info.getBytesPerSecond() / (1024.0 * 1024.0));
+
+        } catch (Exception e) {
+            System.err.println("Backup error: " + e.getMessage());
+        }
+    }
+
+    private static void saveSnapshot() {
+        try {
+            // The snapshot is a checkpoint: journal segments it covers are dropped once it is saved.
+            SnapshotService.SnapshotInfo info = journal.checkpoint(
+                    () -> snapshotService.save(snapshotPath(), instructors));
+            System.out.println("Saved " + info);
+
+        } catch (Exception e) {
+            System.err.println("Snapshot error: " + e.getMessage());
+        }
+    }
+
+    private static void closeJournal() {
+        try {
+            journal.close();
+            System.out.printf("Journal: %d records in %d writes, %d forces%n",
+                    journal.getRecordCount(), journal.getWriteCount(), journal.getForceCount());
+        } catch (IOException e) {
+            System.err.println("Journal error: " + e.getMessage());
+        }
+    }
+
     private static void showBackupSize() {
         try {
             AppConfig config = AppConfig.getInstance();
             Path backupDir = Paths.get(config.getDataDirectory(), "backups");
 
             if (Files.exists(backupDir)) {
-                long totalSize = RecursiveUtil.calculateDirectorySize(backupDir);
-                System.out.printf("Total backup size: %d bytes (%.2f MB)%n",
-                        totalSize, totalSize / (1024.0 * 1024.0));
-
-
-                System.out.println("\nBackup directory structure:");
-                RecursiveUtil.printDirectoryStructure(backupDir, 0);
+                // Served from the backup catalog; option 7 checks it against the disk.
+                BackupCatalog catalog = backupService.openCatalog();
+                long logical = catalog.getLogicalBytes();
+                long physical = catalog.getPhysicalBytes();
+                System.out.printf("Total backup size: %d bytes (%.2f MB) logical, %d bytes (%.2f MB) on disk%n",
+                        logical, logical / (1024.0 * 1024.0), physical, physical / (1024.0 * 1024.0));
+
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+                System.out.println("\nBackups:");
+                for (BackupCatalog.Entry backup : catalog.list()) {
+                    LocalDateTime created = LocalDateTime.ofInstant(
+                            Instant.ofEpochMilli(backup.getCreatedMillis()), ZoneId.systemDefault());
+                    System.out.printf("  %s  %s%n", created.format(formatter), backup);
+                }
             } else {
                 System.out.println("No backup directory found.");
             }
@@ -665,11 +827,26 @@ public class CCRMApplication {
         }
     }
 
+    private static void verifyBackups() {
+        try {
+            BackupCatalog.VerifyReport report = backupService.verifyCatalog();
+            System.out.println(report);
+            report.getMissing().forEach(name -> System.out.println("  Missing from disk: " + name));
+            report.getDamaged().forEach(name -> System.out.println("  Checksum mismatch: " + name));
+            report.getUntracked().forEach(name -> System.out.println("  Added to catalog: " + name));
+
+        } catch (Exception e) {
+            System.err.println("Verify error: " + e.getMessage());
+        }
+    }
+
     private static void generateReports() {
         System.out.println("\n=== REPORTS ===");
         System.out.println("1. Top Students by GPA");
         System.out.println("2. GPA Distribution");
         System.out.println("3. Course Enrollment Statistics");
+        System.out.println("4. Print Cohort Transcripts");
+        System.out.println("5. Transcript Cache Statistics");
         System.out.print("Enter choice: ");
 
         int choice = scanner.nextInt();
@@ -679,29 +856,27 @@ public class CCRMApplication {
             case 1 -> showTopStudents();
             case 2 -> showGPADistribution();
             case 3 -> showEnrollmentStats();
+            case 4 -> printCohortTranscripts();
+            case 5 -> System.out.println(transcriptService.getCacheStats());
             default -> System.out.println("Invalid choice.");
         }
     }
 
     private static void showTopStudents() {
         try {
-            List<Student> students = studentService.getAllStudents();
+            System.out.print("Semester (blank for overall): ");
+            String semesterName = scanner.nextLine().trim();
+            Semester semester = semesterName.isEmpty() ? null : Semester.valueOf(semesterName.toUpperCase());
 
+            System.out.print("Department (blank for all): ");
+            String department = scanner.nextLine().trim();
 
-            List<Student> topStudents = students.stream()
-                    .filter(s -> s.getStatus() == Student.Status.ACTIVE)
-                    .sorted((s1, s2) -> Double.compare(
-                            transcriptService.calculateGPA(s2),
-                            transcriptService.calculateGPA(s1)))
-                    .limit(10)
-                    .collect(Collectors.toList());
+            List<GpaLeaderboard.Ranking> topStudents = leaderboard.getTopStudents(10, semester,
+                    department.isEmpty() ? null : department);
 
             System.out.println("\n=== TOP 10 STUDENTS BY GPA ===");
-            int rank = 1;
-            for (Student student : topStudents) {
-                double gpa = transcriptService.calculateGPA(student);
-                System.out.printf("%d. %s - GPA: %.2f%n",
-                        rank++, student.getFullName(), gpa);
+            for (GpaLeaderboard.Ranking ranking : topStudents) {
+                System.out.println(ranking);
             }
 
         } catch (Exception e) {
@@ -711,25 +886,13 @@ public class CCRMApplication {
 
     private static void showGPADistribution() {
         try {
-            List<Student> students = studentService.getAllStudents();
-
-            Map<String, Long> gpaDistribution = students.stream()
-                    .filter(s -> s.getStatus() == Student.Status.ACTIVE)
-                    .mapToDouble(transcriptService::calculateGPA)
-                    .boxed()
-                    .collect(Collectors.groupingBy(
-                            gpa -> {
-                                if (gpa >= 3.5) return "Excellent (3.5-4.0)";
-                                else if (gpa >= 3.0) return "Good (3.0-3.49)";
-                                else if (gpa >= 2.0) return "Average (2.0-2.99)";
-                                else return "Below Average (<2.0)";
-                            },
-                            Collectors.counting()
-                    ));
+            Map<String, Integer> buckets = gpaDistribution.getBucketCounts();
+            int ungraded = studentService.getServiceStats().getActiveStudents() - gpaDistribution.getTotal();
 
             System.out.println("\n=== GPA DISTRIBUTION ===");
-            gpaDistribution.forEach((range, count) ->
+            buckets.forEach((range, count) ->
                     System.out.printf("%s: %d students%n", range, count));
+            System.out.printf("Not yet graded: %d students%n", ungraded);
 
         } catch (Exception e) {
             System.err.println("Error generating report: " + e.getMessage());
@@ -754,6 +917,42 @@ public class CCRMApplication {
         }
     }
 
+    private static void printCohortTranscripts() {
+        try {
+            System.out.print("Department (blank for all): ");
+            String department = scanner.nextLine().trim();
+            System.out.print("Status (blank for all): ");
+            String statusName = scanner.nextLine().trim();
+            Student.Status status = statusName.isEmpty() ? null : Student.Status.valueOf(statusName.toUpperCase());
+            System.out.println("1. One file per student");
+            System.out.println("2. One archive");
+            System.out.print("Enter choice: ");
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            Path transcriptDir = Paths.get(AppConfig.getInstance().getDataDirectory(), "transcripts");
+            TranscriptExporter.Layout layout = choice == 2
+                    ? TranscriptExporter.Layout.ARCHIVE : TranscriptExporter.Layout.FILES;
+            Path target = layout == TranscriptExporter.Layout.ARCHIVE
+                    ? transcriptDir.resolve("transcripts_" + timestamp + ".zip")
+                    : transcriptDir.resolve("transcripts_" + timestamp);
+
+            List<Student> students = new ArrayList<>(studentService.getAllStudents());
+            students.sort(Comparator.comparing(Student::getId));
+            TranscriptExporter.CohortReport report = new TranscriptExporter(transcriptService).exportCohort(
+                    students,
+                    student -> (department.isEmpty() || department.equalsIgnoreCase(student.getDepartment()))
+                            && (status == null || student.getStatus() == status),
+                    target, layout);
+            System.out.println("Transcripts written to: " + report.getPath());
+            System.out.println(report);
+
+        } catch (Exception e) {
+            System.err.println("Error generating report: " + e.getMessage());
+        }
+    }
+
     private static String getJavaPlatformInfo() {
         return "Java SE - Standard Edition (Desktop/Server applications)";
     }
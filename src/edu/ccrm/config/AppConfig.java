@@ -13,6 +13,10 @@ public class AppConfig {
     private int maxCreditsPerSemester;
     private String applicationName;
     private String version;
+    private String journalFsync;
+    private long journalFsyncIntervalMillis;
+    private int transcriptCacheEntries;
+    private long transcriptCacheChars;
 
     private AppConfig() {
         loadConfiguration();
@@ -35,6 +39,10 @@ public class AppConfig {
         this.maxCreditsPerSemester = 20;
         this.applicationName = "Campus Course & Records Manager";
         this.version = "1.0.0";
+        this.journalFsync = "always";
+        this.journalFsyncIntervalMillis = 100;
+        this.transcriptCacheEntries = 1000;
+        this.transcriptCacheChars = 4L * 1024 * 1024;
 
         try (InputStream input = getClass().getClassLoader().getResourceAsStream("application.properties")) {
             if (input != null) {
@@ -46,6 +54,13 @@ public class AppConfig {
                         props.getProperty("max.credits.per.semester", "20"));
                 this.applicationName = props.getProperty("application.name", this.applicationName);
                 this.version = props.getProperty("application.version", this.version);
+                this.journalFsync = props.getProperty("journal.fsync", this.journalFsync);
+                this.journalFsyncIntervalMillis = Long.parseLong(
+                        props.getProperty("journal.fsync.interval.ms", "100"));
+                this.transcriptCacheEntries = Integer.parseInt(
+                        props.getProperty("transcript.cache.entries", "1000"));
+                this.transcriptCacheChars = Long.parseLong(
+                        props.getProperty("transcript.cache.chars", String.valueOf(4L * 1024 * 1024)));
             }
         } catch (IOException | NumberFormatException e) {
             System.err.println("Warning: Could not load configuration file. Using defaults.");
@@ -62,6 +77,12 @@ public class AppConfig {
     public int getMaxCreditsPerSemester() { return maxCreditsPerSemester; }
     public String getApplicationName() { return applicationName; }
     public String getVersion() { return version; }
+    // One of always, interval or never; see Journal.FsyncPolicy.
+    public String getJournalFsync() { return journalFsync; }
+    public long getJournalFsyncIntervalMillis() { return journalFsyncIntervalMillis; }
+    // Bounds of the rendered transcript cache; 0 entries turns it off.
+    public int getTranscriptCacheEntries() { return transcriptCacheEntries; }
+    public long getTranscriptCacheChars() { return transcriptCacheChars; }
 
 
     public void setDataDirectory(String dataDirectory) {
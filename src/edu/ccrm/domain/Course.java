@@ -1,9 +1,15 @@
 package edu.ccrm.domain;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Course {
+    public enum Field {
+        TITLE, CREDITS, INSTRUCTOR, SEMESTER, DEPARTMENT, ACTIVE, CAPACITY
+    }
+
     private final String code;
     private String title;
     private int credits;
@@ -11,8 +17,10 @@ public class Course {
     private Semester semester;
     private String department;
     private boolean active;
+    private int capacity;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private final List<CourseChangeListener> listeners;
 
 
     private Course(Builder builder) {
@@ -23,11 +31,16 @@ public class Course {
         this.semester = builder.semester;
         this.department = builder.department;
         this.active = builder.active;
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
+        this.capacity = builder.capacity;
+        this.createdAt = builder.createdAt != null ? builder.createdAt : LocalDateTime.now();
+        this.updatedAt = builder.updatedAt != null ? builder.updatedAt : LocalDateTime.now();
+        this.listeners = new CopyOnWriteArrayList<>();
     }
 
 
+    // Any capacity from 0 up is a limit, 0 closing the course to new enrollments.
+    public static final int UNLIMITED_CAPACITY = -1;
+
     public static class Builder {
         private final String code;
         private final String title;
@@ -36,6 +49,9 @@ public class Course {
         private Semester semester = Semester.SPRING;
         private String department = "";
         private boolean active = true;
+        private int capacity = UNLIMITED_CAPACITY;
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
 
         public Builder(String code, String title) {
             this.code = Objects.requireNonNull(code, "Course code cannot be null");
@@ -68,6 +84,22 @@ public class Course {
             return this;
         }
 
+        public Builder capacity(int capacity) {
+            this.capacity = checkCapacity(capacity);
+            return this;
+        }
+
+        // Timestamps default to the moment of construction; these restore saved ones.
+        public Builder createdAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        public Builder updatedAt(LocalDateTime updatedAt) {
+            this.updatedAt = updatedAt;
+            return this;
+        }
+
         public Course build() {
             return new Course(this);
         }
@@ -81,37 +113,73 @@ public class Course {
     public Semester getSemester() { return semester; }
     public String getDepartment() { return department; }
     public boolean isActive() { return active; }
+    public int getCapacity() { return capacity; }
+    public boolean hasCapacityLimit() { return capacity != UNLIMITED_CAPACITY; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
 
     public void setTitle(String title) {
         this.title = title;
         this.updatedAt = LocalDateTime.now();
+        fireChanged(Field.TITLE);
     }
 
     public void setCredits(int credits) {
         this.credits = credits;
         this.updatedAt = LocalDateTime.now();
+        fireChanged(Field.CREDITS);
     }
 
     public void setInstructor(String instructor) {
         this.instructor = instructor;
         this.updatedAt = LocalDateTime.now();
+        fireChanged(Field.INSTRUCTOR);
     }
 
     public void setSemester(Semester semester) {
         this.semester = semester;
         this.updatedAt = LocalDateTime.now();
+        fireChanged(Field.SEMESTER);
     }
 
     public void setDepartment(String department) {
         this.department = department;
         this.updatedAt = LocalDateTime.now();
+        fireChanged(Field.DEPARTMENT);
     }
 
     public void setActive(boolean active) {
         this.active = active;
         this.updatedAt = LocalDateTime.now();
+        fireChanged(Field.ACTIVE);
+    }
+
+    // Students already enrolled keep their seats if the capacity drops below their number.
+    public void setCapacity(int capacity) {
+        this.capacity = checkCapacity(capacity);
+        this.updatedAt = LocalDateTime.now();
+        fireChanged(Field.CAPACITY);
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity < 0 && capacity != UNLIMITED_CAPACITY) {
+            throw new IllegalArgumentException("Capacity cannot be negative, other than UNLIMITED_CAPACITY");
+        }
+        return capacity;
+    }
+
+    public void addChangeListener(CourseChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(CourseChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged(Field field) {
+        for (CourseChangeListener listener : listeners) {
+            listener.onCourseChanged(this, field);
+        }
     }
 
     @Override
@@ -0,0 +1,5 @@
+package edu.ccrm.domain;
+
+public interface CourseChangeListener {
+    void onCourseChanged(Course course, Course.Field field);
+}
@@ -12,9 +12,13 @@ public class Enrollment {
     private LocalDateTime gradeDate;
 
     public Enrollment(Student student, Course course) {
+        this(student, course, LocalDateTime.now());
+    }
+
+    public Enrollment(Student student, Course course, LocalDateTime enrollmentDate) {
         this.student = Objects.requireNonNull(student, "Student cannot be null");
         this.course = Objects.requireNonNull(course, "Course cannot be null");
-        this.enrollmentDate = LocalDateTime.now();
+        this.enrollmentDate = Objects.requireNonNull(enrollmentDate, "Enrollment date cannot be null");
         this.marks = -1; // Indicates no marks recorded
     }
 
@@ -26,12 +30,16 @@ public class Enrollment {
     public LocalDateTime getGradeDate() { return gradeDate; }
 
     public void setGrade(double marks) {
+        setGrade(marks, LocalDateTime.now());
+    }
+
+    public void setGrade(double marks, LocalDateTime gradeDate) {
         if (marks < 0 || marks > 100) {
             throw new IllegalArgumentException("Marks must be between 0 and 100");
         }
         this.marks = marks;
         this.grade = Grade.fromMarks(marks);
-        this.gradeDate = LocalDateTime.now();
+        this.gradeDate = gradeDate;
     }
 
     public boolean hasGrade() {
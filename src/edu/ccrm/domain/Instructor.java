@@ -9,10 +9,15 @@ public class Instructor extends Person {
     private LocalDateTime hireDate;
 
     public Instructor(String id, Name fullName, String email, String department) {
+        this(id, fullName, email, department, LocalDateTime.now(), Collections.emptySet());
+    }
+
+    public Instructor(String id, Name fullName, String email, String department,
+                      LocalDateTime hireDate, Set<String> assignedCourses) {
         super(id, fullName, email);
         this.department = department;
-        this.assignedCourses = new HashSet<>();
-        this.hireDate = LocalDateTime.now();
+        this.assignedCourses = new HashSet<>(assignedCourses);
+        this.hireDate = hireDate;
     }
 
     public String getDepartment() { return department; }
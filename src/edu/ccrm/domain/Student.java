@@ -9,6 +9,7 @@ public class Student extends Person {
     }
 
     private final String regNo;
+    private final String department;
     private Status status;
     private final Set<String> enrolledCourses;
     private LocalDateTime enrollmentDate;
@@ -16,9 +17,16 @@ public class Student extends Person {
     private Student(Builder builder) {
         super(builder.id, builder.fullName, builder.email);
         this.regNo = builder.regNo;
+        this.department = builder.department;
         this.status = builder.status;
         this.enrolledCourses = new HashSet<>(builder.enrolledCourses);
         this.enrollmentDate = builder.enrollmentDate;
+        if (builder.createdAt != null) {
+            this.createdAt = builder.createdAt;
+        }
+        if (builder.updatedAt != null) {
+            this.updatedAt = builder.updatedAt;
+        }
     }
 
     public static class Builder {
@@ -26,9 +34,12 @@ public class Student extends Person {
         private final String regNo;
         private Name fullName;
         private String email;
+        private String department = "";
         private Status status = Status.ACTIVE;
         private Set<String> enrolledCourses = new HashSet<>();
         private LocalDateTime enrollmentDate = LocalDateTime.now();
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
 
         public Builder(String id, String regNo) {
             this.id = Objects.requireNonNull(id, "ID cannot be null");
@@ -45,6 +56,11 @@ public class Student extends Person {
             return this;
         }
 
+        public Builder department(String department) {
+            this.department = department;
+            return this;
+        }
+
         public Builder status(Status status) {
             this.status = status;
             return this;
@@ -60,12 +76,24 @@ public class Student extends Person {
             return this;
         }
 
+        // Timestamps default to the moment of construction; these restore saved ones.
+        public Builder createdAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        public Builder updatedAt(LocalDateTime updatedAt) {
+            this.updatedAt = updatedAt;
+            return this;
+        }
+
         public Student build() {
             return new Student(this);
         }
     }
 
     public String getRegNo() { return regNo; }
+    public String getDepartment() { return department; }
     public Status getStatus() { return status; }
     public Set<String> getEnrolledCourses() { return new HashSet<>(enrolledCourses); }
     public LocalDateTime getEnrollmentDate() { return enrollmentDate; }
@@ -103,6 +131,7 @@ public class Student extends Person {
         sb.append("Registration No: ").append(regNo).append("\n");
         sb.append("Name: ").append(fullName).append("\n");
         sb.append("Email: ").append(email).append("\n");
+        sb.append("Department: ").append(department).append("\n");
         sb.append("Status: ").append(status).append("\n");
         sb.append("Enrollment Date: ").append(enrollmentDate).append("\n");
         sb.append("Enrolled Courses: ").append(enrolledCourses.size()).append("\n");
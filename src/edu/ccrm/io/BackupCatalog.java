@@ -0,0 +1,286 @@
+package edu.ccrm.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Append-only index of the backups under one directory, kept in catalog.log beside them, so
+// that listing, sizing and retention cost one read of the catalog instead of a walk of the
+// backup tree. One line per event:
+//   ADD <name> <kind> <created-millis> <files> <logical-bytes> <stored-bytes> <sha256>
+//   DELETE <name>
+//   STORE <delta>     correction to the size of the incremental object store
+// An incremental backup's stored bytes are what it added to the object store; for the other
+// kinds they are the backup itself. The checksum covers a backup folder's manifest or a whole archive.
+// Every line ends in a newline, so a last line without one was cut short by a crash: it is
+// skipped, and cut off the file before the next line is appended, so that what is left of it
+// (STORE 12 for STORE 12345) is never read as a line of its own. Once deleted backups make up
+// most of the file it is rewritten, through a temporary file, with only the live entries.
+public class BackupCatalog {
+    public static final String FILE_NAME = "catalog.log";
+
+    public enum Kind {
+        // Links into the shared object store.
+        INCREMENTAL,
+        // A folder of full copies, from before backups were incremental.
+        FULL,
+        ARCHIVE
+    }
+
+    public static class Entry {
+        private final String name;
+        private final Kind kind;
+        private final long createdMillis;
+        private final int files;
+        private final long logicalBytes;
+        private final long storedBytes;
+        private final String checksum;
+
+        public Entry(String name, Kind kind, long createdMillis, int files, long logicalBytes,
+                     long storedBytes, String checksum) {
+            this.name = name;
+            this.kind = kind;
+            this.createdMillis = createdMillis;
+            this.files = files;
+            this.logicalBytes = logicalBytes;
+            this.storedBytes = storedBytes;
+            this.checksum = checksum;
+        }
+
+        public String getName() { return name; }
+        public Kind getKind() { return kind; }
+        public long getCreatedMillis() { return createdMillis; }
+        public int getFileCount() { return files; }
+        public long getLogicalBytes() { return logicalBytes; }
+        public long getStoredBytes() { return storedBytes; }
+        public String getChecksum() { return checksum; }
+
+        @Override
+        public String toString() {
+            return String.format("%s [%s, %d files, %d bytes, %d bytes stored]",
+                    name, kind, files, logicalBytes, storedBytes);
+        }
+    }
+
+    // Outcome of reconciling the catalog with the disk.
+    public static class VerifyReport {
+        private final int checked;
+        private final List<String> missing;
+        private final List<String> damaged;
+        private final List<String> untracked;
+        private final long storeCorrection;
+
+        public VerifyReport(int checked, List<String> missing, List<String> damaged, List<String> untracked,
+                            long storeCorrection) {
+            this.checked = checked;
+            this.missing = missing;
+            this.damaged = damaged;
+            this.untracked = untracked;
+            this.storeCorrection = storeCorrection;
+        }
+
+        public int getCheckedCount() { return checked; }
+        // Catalogued but gone from disk; dropped from the catalog.
+        public List<String> getMissing() { return missing; }
+        // On disk, but the checksum no longer matches; left in the catalog.
+        public List<String> getDamaged() { return damaged; }
+        // On disk but not catalogued; added to the catalog.
+        public List<String> getUntracked() { return untracked; }
+        // Bytes the object store total was off by.
+        public long getStoreCorrection() { return storeCorrection; }
+
+        public boolean isClean() {
+            return missing.isEmpty() && damaged.isEmpty() && untracked.isEmpty() && storeCorrection == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Verify[%d checked, %d missing, %d damaged, %d untracked, store off by %d bytes]",
+                    checked, missing.size(), damaged.size(), untracked.size(), storeCorrection);
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+    private long objectStoreBytes;
+    private int lines;
+    // Set when the file ends in a partial line; intactBytes is where that line starts.
+    private boolean torn;
+    private long intactBytes;
+
+    private BackupCatalog(Path file) {
+        this.file = file;
+        this.entries = new HashMap<>();
+    }
+
+    public static BackupCatalog open(Path backupDir) throws IOException {
+        BackupCatalog catalog = new BackupCatalog(backupDir.resolve(FILE_NAME));
+        if (Files.exists(catalog.file)) {
+            byte[] content = Files.readAllBytes(catalog.file);
+            int intact = content.length;
+            while (intact > 0 && content[intact - 1] != '\n') {
+                intact--;
+            }
+            for (String line : new String(content, 0, intact, StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    catalog.lines++;
+                    catalog.apply(line);
+                }
+            }
+            catalog.torn = intact < content.length;
+            catalog.intactBytes = intact;
+        }
+        return catalog;
+    }
+
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    public synchronized void recordAdded(Entry entry) throws IOException {
+        append(format(entry));
+    }
+
+    public synchronized void recordDeleted(String name) throws IOException {
+        if (entries.containsKey(name)) {
+            append("DELETE " + name);
+        }
+    }
+
+    public synchronized void recordStoreChange(long delta) throws IOException {
+        if (delta != 0) {
+            append("STORE " + delta);
+        }
+    }
+
+    // Oldest first.
+    public synchronized List<Entry> list() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::getCreatedMillis));
+        return list;
+    }
+
+    public synchronized Entry get(String name) {
+        return entries.get(name);
+    }
+
+    public synchronized long getLogicalBytes() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.logicalBytes;
+        }
+        return total;
+    }
+
+    // Bytes on disk: the object store plus every backup that is not linked into it.
+    public synchronized long getPhysicalBytes() {
+        long total = objectStoreBytes;
+        for (Entry entry : entries.values()) {
+            if (entry.kind != Kind.INCREMENTAL) {
+                total += entry.storedBytes;
+            }
+        }
+        return total;
+    }
+
+    public synchronized long getObjectStoreBytes() {
+        return objectStoreBytes;
+    }
+
+    public synchronized void compactIfSparse() throws IOException {
+        if (lines <= 2 * entries.size() + 16) {
+            return;
+        }
+        List<String> live = new ArrayList<>();
+        long listed = 0;
+        for (Entry entry : entries.values()) {
+            live.add(format(entry));
+            if (entry.kind == Kind.INCREMENTAL) {
+                listed += entry.storedBytes;
+            }
+        }
+        // Content added by deleted backups and still referenced stays in the store total.
+        live.add("STORE " + (objectStoreBytes - listed));
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        Files.write(temp, live, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lines = live.size();
+        torn = false;
+    }
+
+    private static String format(Entry entry) {
+        return String.format("ADD %s %s %d %d %d %d %s", entry.name, entry.kind, entry.createdMillis,
+                entry.files, entry.logicalBytes, entry.storedBytes, entry.checksum);
+    }
+
+    private void append(String line) throws IOException {
+        Files.createDirectories(file.getParent());
+        if (torn) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(intactBytes);
+            }
+            torn = false;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.write('\n');
+        }
+        lines++;
+        apply(line);
+    }
+
+    private void apply(String line) {
+        String[] fields = line.split(" ");
+        try {
+            switch (fields[0]) {
+                case "ADD" -> {
+                    if (fields.length != 8 || !isSha256(fields[7])) {
+                        return;
+                    }
+                    Entry entry = new Entry(fields[1], Kind.valueOf(fields[2]), Long.parseLong(fields[3]),
+                            Integer.parseInt(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]),
+                            fields[7]);
+                    Entry replaced = entries.put(entry.name, entry);
+                    if (replaced != null && replaced.kind == Kind.INCREMENTAL) {
+                        objectStoreBytes -= replaced.storedBytes;
+                    }
+                    if (entry.kind == Kind.INCREMENTAL) {
+                        objectStoreBytes += entry.storedBytes;
+                    }
+                }
+                case "DELETE" -> {
+                    if (fields.length == 2) {
+                        entries.remove(fields[1]);
+                    }
+                }
+                case "STORE" -> {
+                    if (fields.length == 2) {
+                        objectStoreBytes += Long.parseLong(fields[1]);
+                    }
+                }
+                default -> { }
+            }
+        } catch (IllegalArgumentException e) {
+            // A torn or foreign line.
+        }
+    }
+
+    private static boolean isSha256(String checksum) {
+        if (checksum.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < checksum.length(); i++) {
+            if (!HexFormat.isHexDigit(checksum.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
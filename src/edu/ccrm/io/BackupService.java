@@ -1,81 +1,467 @@
 package edu.ccrm.io;
 
 import edu.ccrm.config.AppConfig;
+import edu.ccrm.util.RecursiveUtil;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+// Backups are incremental. Every exported file is hashed with SHA-256 and its content stored
+// once, under backups/objects/<first two hex digits>/<hash>. A timestamped backup folder holds
+// hard links to those objects, or copies where the file system has no hard links, plus a
+// manifest recording each file's hash, size and modification time. A file whose size and
+// modification time match the previous backup's manifest reuses that hash without being read.
+// Stored objects are shared between backups: a write through any backup's link would change
+// the object and every backup that links to it. Objects are therefore made read-only when
+// stored, which their links share; anything restoring from a backup must copy the files out
+// rather than use them in place. Every backup is recorded in a BackupCatalog, from which
+// listing, sizing and retention are served.
 public class BackupService {
+    public static final String MANIFEST = "backup_manifest.txt";
+
+    private static final String BACKUP_PREFIX = "backup_";
+    private static final String OBJECTS = "objects";
+    private static final int MANIFEST_VERSION = 2;
+    // Larger exports are streamed into an archive rather than read whole.
+    private static final long ARCHIVE_IN_MEMORY_BYTES = 4L * 1024 * 1024;
+    // Bytes of exports read and deflating at once while an archive is written.
+    private static final long ARCHIVE_WINDOW_BYTES = 32L * 1024 * 1024;
+
     private final AppConfig config;
 
+    public static class BackupInfo {
+        private final Path path;
+        private final int files;
+        private final int newFiles;
+        private final long logicalBytes;
+        private final long storedBytes;
+        private final long elapsedNanos;
+
+        public BackupInfo(Path path, int files, int newFiles, long logicalBytes, long storedBytes,
+                          long elapsedNanos) {
+            this.path = path;
+            this.files = files;
+            this.newFiles = newFiles;
+            this.logicalBytes = logicalBytes;
+            this.storedBytes = storedBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getPath() { return path; }
+        public int getFileCount() { return files; }
+        // Files whose content was not in the store yet.
+        public int getNewFileCount() { return newFiles; }
+        public long getLogicalBytes() { return logicalBytes; }
+        // Bytes actually added to the store by this backup.
+        public long getStoredBytes() { return storedBytes; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        // Bytes backed up per second of wall-clock time.
+        public double getBytesPerSecond() {
+            return elapsedNanos > 0 ? logicalBytes * 1e9 / elapsedNanos : 0;
+        }
+
+        // Backed-up bytes per byte stored, from compression or from content already stored.
+        public double getCompressionRatio() {
+            return storedBytes > 0 ? (double) logicalBytes / storedBytes : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Backup[%s: %d files (%d new), %d bytes, %d bytes stored, ratio %.2f, %.1f MB/s, %.0f ms]",
+                    path.getFileName(), files, newFiles, logicalBytes, storedBytes, getCompressionRatio(),
+                    getBytesPerSecond() / (1024.0 * 1024.0), elapsedNanos / 1e6);
+        }
+    }
+
+    // One line of a manifest.
+    static class ManifestEntry {
+        final String hash;
+        final long size;
+        final long modifiedMillis;
+        final String path;
+
+        ManifestEntry(String hash, long size, long modifiedMillis, String path) {
+            this.hash = hash;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.path = path;
+        }
+    }
+
+    // A file being read and deflated for the archive, and the size it had when listed.
+    private static final class Pending {
+        final long size;
+        final CompletableFuture<ZipArchiveWriter.Entry> entry;
+
+        Pending(long size, CompletableFuture<ZipArchiveWriter.Entry> entry) {
+            this.size = size;
+            this.entry = entry;
+        }
+    }
+
+    // The content's hash and the bytes added to the store, or -1 if it was already there.
+    private static final class Stored {
+        final String hash;
+        final long addedBytes;
+
+        Stored(String hash, long addedBytes) {
+            this.hash = hash;
+            this.addedBytes = addedBytes;
+        }
+    }
+
     public BackupService() {
         this.config = AppConfig.getInstance();
     }
 
-    public Path createBackup() throws IOException {
+    public BackupInfo createBackup() throws IOException {
+        long start = System.nanoTime();
         Path dataDir = Paths.get(config.getDataDirectory());
         Path exportDir = dataDir.resolve("exports");
         Path backupDir = dataDir.resolve("backups");
+        Path objectDir = backupDir.resolve(OBJECTS);
+
+        BackupCatalog catalog = openCatalog();
+        Map<String, ManifestEntry> previous = new HashMap<>();
+        List<BackupCatalog.Entry> catalogued = catalog.list();
+        for (int i = catalogued.size() - 1; i >= 0; i--) {
+            if (catalogued.get(i).getKind() == BackupCatalog.Kind.INCREMENTAL) {
+                for (ManifestEntry entry : readManifest(backupDir.resolve(catalogued.get(i).getName()))) {
+                    previous.put(entry.path, entry);
+                }
+                break;
+            }
+        }
 
+        Path timestampedBackupDir = newBackupDirectory(backupDir);
+        Files.createDirectories(objectDir);
 
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        Path timestampedBackupDir = backupDir.resolve("backup_" + timestamp);
+        List<ManifestEntry> entries = new ArrayList<>();
+        int newFiles = 0;
+        long logicalBytes = 0;
+        long storedBytes = 0;
+        if (Files.exists(exportDir)) {
+            List<Path> sources;
+            try (Stream<Path> paths = Files.walk(exportDir)) {
+                sources = paths.filter(Files::isRegularFile).sorted().toList();
+            }
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[64 * 1024];
+            for (Path sourcePath : sources) {
+                try {
+                    String relative = exportDir.relativize(sourcePath).toString().replace('\\', '/');
+                    BasicFileAttributes attrs = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+                    long size = attrs.size();
+                    long modified = attrs.lastModifiedTime().toMillis();
+
+                    ManifestEntry before = previous.get(relative);
+                    String hash = null;
+                    if (before != null && before.size == size && before.modifiedMillis == modified
+                            && Files.exists(objectPath(objectDir, before.hash))) {
+                        hash = before.hash;
+                    }
+                    if (hash == null) {
+                        Stored stored = store(sourcePath, objectDir, digest, buffer);
+                        hash = stored.hash;
+                        if (stored.addedBytes >= 0) {
+                            newFiles++;
+                            storedBytes += stored.addedBytes;
+                        }
+                    }
+
+                    Path targetPath = timestampedBackupDir.resolve(relative);
+                    Files.createDirectories(targetPath.getParent());
+                    link(objectPath(objectDir, hash), targetPath);
+                    entries.add(new ManifestEntry(hash, size, modified, relative));
+                    logicalBytes += size;
+                } catch (IOException e) {
+                    System.err.println("Error copying file: " + e.getMessage());
+                }
+            }
+        }
+
+        writeManifest(timestampedBackupDir, entries, logicalBytes, storedBytes);
+        catalog.recordAdded(new BackupCatalog.Entry(timestampedBackupDir.getFileName().toString(),
+                BackupCatalog.Kind.INCREMENTAL, System.currentTimeMillis(), entries.size(), logicalBytes,
+                storedBytes, checksum(timestampedBackupDir.resolve(MANIFEST))));
+
+        return new BackupInfo(timestampedBackupDir, entries.size(), newFiles, logicalBytes, storedBytes,
+                System.nanoTime() - start);
+    }
+
+    // Writes the exports into a single zip archive, backups/backup_<timestamp>.zip. Files up to
+    // ARCHIVE_IN_MEMORY_BYTES are read and deflated on the common pool, at most a few per worker
+    // and ARCHIVE_WINDOW_BYTES in flight; larger ones are deflated from a stream on this thread.
+    // Either way memory stays bounded, and entries are added strictly in path order. The
+    // manifest is collected as entries are added and stored last, so nothing walks the backup
+    // afterwards. The archive is written to a temporary file and renamed into place when complete.
+    public BackupInfo createArchive() throws IOException {
+        long start = System.nanoTime();
+        Path dataDir = Paths.get(config.getDataDirectory());
+        Path exportDir = dataDir.resolve("exports");
+        Path backupDir = dataDir.resolve("backups");
+        Files.createDirectories(backupDir);
 
-        Files.createDirectories(timestampedBackupDir);
+        LocalDateTime now = LocalDateTime.now();
+        String timestamp = now.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        Path archive = backupDir.resolve(BACKUP_PREFIX + timestamp + ".zip");
+        for (int suffix = 2; Files.exists(archive); suffix++) {
+            archive = backupDir.resolve(BACKUP_PREFIX + timestamp + "_" + suffix + ".zip");
+        }
 
+        List<Path> sources = new ArrayList<>();
         if (Files.exists(exportDir)) {
-            copyDirectoryContents(exportDir, timestampedBackupDir);
+            try (Stream<Path> paths = Files.walk(exportDir)) {
+                sources = paths.filter(Files::isRegularFile).sorted().toList();
+            }
+        }
+
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("CCRM Backup Manifest\n");
+        manifest.append("====================\n");
+        manifest.append("Created: ").append(now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))).append("\n");
+        manifest.append("Backup Archive: ").append(archive).append("\n\n");
+        manifest.append("Files included (size compressed-size crc32 path):\n");
+
+        int files;
+        long logicalBytes;
+        long storedBytes;
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        MessageDigest digest = sha256();
+        try (ZipArchiveWriter zip = new ZipArchiveWriter(new BufferedOutputStream(
+                new DigestOutputStream(Files.newOutputStream(temp), digest), 256 * 1024), now)) {
+            int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+            Deque<Pending> pending = new ArrayDeque<>();
+            long pendingBytes = 0;
+            for (Path source : sources) {
+                String relative = exportDir.relativize(source).toString().replace('\\', '/');
+                long size;
+                try {
+                    size = Files.size(source);
+                } catch (IOException e) {
+                    System.err.println("Error copying file: " + e.getMessage());
+                    continue;
+                }
+                if (size > ARCHIVE_IN_MEMORY_BYTES) {
+                    while (!pending.isEmpty()) {
+                        addToArchive(zip, pending.poll().entry.join(), manifest);
+                    }
+                    pendingBytes = 0;
+                    addStreamed(zip, source, relative, manifest);
+                    continue;
+                }
+                while (!pending.isEmpty() && (pending.size() >= window || pendingBytes + size > ARCHIVE_WINDOW_BYTES)) {
+                    Pending done = pending.poll();
+                    pendingBytes -= done.size;
+                    addToArchive(zip, done.entry.join(), manifest);
+                }
+                pending.add(new Pending(size, CompletableFuture.supplyAsync(() -> compress(source, relative))));
+                pendingBytes += size;
+            }
+            while (!pending.isEmpty()) {
+                addToArchive(zip, pending.poll().entry.join(), manifest);
+            }
+            files = zip.getEntryCount();
+            logicalBytes = zip.getUncompressedBytes();
+            zip.add(ZipArchiveWriter.compress(MANIFEST, manifest.toString().getBytes(StandardCharsets.UTF_8),
+                    Deflater.DEFAULT_COMPRESSION));
+            zip.finish();
+            storedBytes = zip.getBytesWritten();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
         }
+        Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE);
+        openCatalog().recordAdded(new BackupCatalog.Entry(archive.getFileName().toString(),
+                BackupCatalog.Kind.ARCHIVE, System.currentTimeMillis(), files, logicalBytes, storedBytes,
+                HexFormat.of().formatHex(digest.digest())));
 
-        createBackupManifest(timestampedBackupDir);
+        return new BackupInfo(archive, files, files, logicalBytes, storedBytes, System.nanoTime() - start);
+    }
 
-        return timestampedBackupDir;
+    // Null if the file could not be read; the archive goes ahead without it, as copying does.
+    private static ZipArchiveWriter.Entry compress(Path source, String name) {
+        try {
+            return ZipArchiveWriter.compress(name, Files.readAllBytes(source), Deflater.DEFAULT_COMPRESSION);
+        } catch (IOException e) {
+            System.err.println("Error copying file: " + e.getMessage());
+            return null;
+        }
     }
 
-    private void copyDirectoryContents(Path source, Path target) throws IOException {
-        try (Stream<Path> paths = Files.walk(source)) {
-            paths.filter(Files::isRegularFile)
-                    .forEach(sourcePath -> {
-                        try {
-                            Path targetPath = target.resolve(source.relativize(sourcePath));
-                            Files.createDirectories(targetPath.getParent());
-                            Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                        } catch (IOException e) {
-                            System.err.println("Error copying file: " + e.getMessage());
-                        }
-                    });
+    // A file that cannot be opened is left out, as compress does. Once its data has started
+    // going into the archive a read error fails the archive, which cannot drop the entry.
+    private static void addStreamed(ZipArchiveWriter zip, Path source, String name, StringBuilder manifest)
+            throws IOException {
+        InputStream in;
+        try {
+            in = Files.newInputStream(source);
+        } catch (IOException e) {
+            System.err.println("Error copying file: " + e.getMessage());
+            return;
+        }
+        try (in) {
+            appendToManifest(manifest, zip.add(name, in, Deflater.DEFAULT_COMPRESSION));
+        }
+    }
+
+    private static void addToArchive(ZipArchiveWriter zip, ZipArchiveWriter.Entry entry, StringBuilder manifest)
+            throws IOException {
+        if (entry == null) {
+            return;
+        }
+        zip.add(entry);
+        appendToManifest(manifest, entry);
+    }
+
+    private static void appendToManifest(StringBuilder manifest, ZipArchiveWriter.Entry entry) {
+        manifest.append(String.format("- %d %d %08x %s\n", entry.getSize(), entry.getCompressedSize(),
+                entry.getCrc(), entry.name));
+    }
+
+    // Copies the file into the store while hashing it. The copy lands in a temporary file that
+    // is renamed into place, so a crash never leaves a partial object under a valid hash.
+    private static Stored store(Path source, Path objectDir, MessageDigest digest, byte[] buffer) throws IOException {
+        Path temp = Files.createTempFile(objectDir, "incoming", ".tmp");
+        try {
+            long copied = 0;
+            digest.reset();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest);
+                 OutputStream out = Files.newOutputStream(temp, StandardOpenOption.TRUNCATE_EXISTING)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    copied += read;
+                }
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path object = objectPath(objectDir, hash);
+            if (Files.exists(object)) {
+                return new Stored(hash, -1);
+            }
+            Files.createDirectories(object.getParent());
+            try {
+                Files.move(temp, object, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                return new Stored(hash, -1);
+            }
+            object.toFile().setReadOnly();
+            return new Stored(hash, copied);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void link(Path object, Path target) throws IOException {
+        try {
+            Files.createLink(target, object);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(object, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path objectPath(Path objectDir, String hash) {
+        return objectDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // Two backups within the same second get a numeric suffix rather than sharing a folder.
+    private static Path newBackupDirectory(Path backupDir) throws IOException {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        Path candidate = backupDir.resolve(BACKUP_PREFIX + timestamp);
+        for (int suffix = 2; Files.exists(candidate); suffix++) {
+            candidate = backupDir.resolve(BACKUP_PREFIX + timestamp + "_" + suffix);
+        }
+        return Files.createDirectories(candidate);
+    }
+
+    // Backup folders and archives oldest first; their timestamped names sort chronologically.
+    private static List<Path> listBackups(Path backupDir) throws IOException {
+        if (!Files.isDirectory(backupDir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> children = Files.list(backupDir)) {
+            return children.filter(p -> p.getFileName().toString().startsWith(BACKUP_PREFIX))
+                    .filter(p -> Files.isDirectory(p) || p.getFileName().toString().endsWith(".zip"))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
         }
     }
 
-    private void createBackupManifest(Path backupDir) throws IOException {
-        Path manifestPath = backupDir.resolve("backup_manifest.txt");
+    private void writeManifest(Path backupDir, List<ManifestEntry> entries, long logicalBytes,
+                               long storedBytes) throws IOException {
+        Path manifestPath = backupDir.resolve(MANIFEST);
 
         try (var writer = Files.newBufferedWriter(manifestPath)) {
             writer.write("CCRM Backup Manifest\n");
             writer.write("====================\n");
             writer.write("Created: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "\n");
-            writer.write("Backup Directory: " + backupDir.toString() + "\n\n");
-            writer.write("Files included:\n");
+            writer.write("Backup Directory: " + backupDir.toString() + "\n");
+            writer.write("Format: " + MANIFEST_VERSION + "\n");
+            writer.write("Logical Bytes: " + logicalBytes + "\n");
+            writer.write("Stored Bytes: " + storedBytes + "\n\n");
+            writer.write("Files included (sha256 size modified-millis path):\n");
 
-            try (Stream<Path> files = Files.walk(backupDir)) {
-                files.filter(Files::isRegularFile)
-                        .filter(p -> !p.getFileName().toString().equals("backup_manifest.txt"))
-                        .forEach(file -> {
-                            try {
-                                long size = Files.size(file);
-                                writer.write(String.format("- %s (%d bytes)\n",
-                                        backupDir.relativize(file), size));
-                            } catch (IOException e) {
-                                System.err.println("Error reading file size: " + e.getMessage());
-                            }
-                        });
+            for (ManifestEntry entry : entries) {
+                writer.write(String.format("- %s %d %d %s\n", entry.hash, entry.size, entry.modifiedMillis, entry.path));
+            }
+        }
+    }
+
+    // Entries of a format 2 manifest; older manifests list no hashes and yield nothing.
+    static List<ManifestEntry> readManifest(Path backupDir) throws IOException {
+        List<ManifestEntry> entries = new ArrayList<>();
+        Path manifestPath = backupDir.resolve(MANIFEST);
+        if (!Files.exists(manifestPath)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(manifestPath)) {
+            if (!line.startsWith("- ")) {
+                continue;
+            }
+            String[] fields = line.substring(2).split(" ", 4);
+            if (fields.length < 4 || fields[0].length() != 64) {
+                continue;
+            }
+            try {
+                entries.add(new ManifestEntry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+            } catch (NumberFormatException e) {
+                // Not an entry line.
             }
         }
+        return entries;
     }
 
+    // The backup catalog for the current data directory. If there is none yet but backups
+    // exist, it is built from them first.
+    public BackupCatalog openCatalog() throws IOException {
+        Path backupDir = Paths.get(config.getDataDirectory(), "backups");
+        BackupCatalog catalog = BackupCatalog.open(backupDir);
+        if (!catalog.exists() && !listBackups(backupDir).isEmpty()) {
+            reconcile(backupDir, catalog);
+        }
+        return catalog;
+    }
+
+    // Keeps the newest keepCount backups, choosing them from the catalog, then drops stored
+    // objects no remaining manifest refers to.
     public void cleanOldBackups(int keepCount) throws IOException {
         Path backupDir = Paths.get(config.getDataDirectory(), "backups");
 
@@ -83,27 +469,159 @@ public class BackupService {
             return;
         }
 
-        try (Stream<Path> backupDirs = Files.list(backupDir)) {
-            backupDirs.filter(Files::isDirectory)
-                    .sorted((p1, p2) -> {
-                        try {
-                            return Files.getLastModifiedTime(p2)
-                                    .compareTo(Files.getLastModifiedTime(p1));
-                        } catch (IOException e) {
-                            return 0;
+        BackupCatalog catalog = openCatalog();
+        List<BackupCatalog.Entry> backups = catalog.list();
+        boolean droppedIncremental = false;
+        for (int i = 0; i < backups.size() - keepCount; i++) {
+            BackupCatalog.Entry backup = backups.get(i);
+            Path path = backupDir.resolve(backup.getName());
+            if (backup.getKind() == BackupCatalog.Kind.ARCHIVE) {
+                Files.deleteIfExists(path);
+            } else {
+                deleteDirectoryRecursively(path);
+                droppedIncremental |= backup.getKind() == BackupCatalog.Kind.INCREMENTAL;
+            }
+            catalog.recordDeleted(backup.getName());
+        }
+
+        if (droppedIncremental) {
+            catalog.recordStoreChange(-collectGarbage(backupDir, catalog));
+        }
+        catalog.compactIfSparse();
+    }
+
+    // Checks every catalogued backup against the disk: its checksum is recomputed, backups
+    // gone from disk are dropped, backups the catalog lacks are added, and the object store
+    // total is corrected to what the store holds. Unlike everything else this reads the tree.
+    public BackupCatalog.VerifyReport verifyCatalog() throws IOException {
+        Path backupDir = Paths.get(config.getDataDirectory(), "backups");
+        return reconcile(backupDir, BackupCatalog.open(backupDir));
+    }
+
+    private BackupCatalog.VerifyReport reconcile(Path backupDir, BackupCatalog catalog) throws IOException {
+        List<String> missing = new ArrayList<>();
+        List<String> damaged = new ArrayList<>();
+        List<String> untracked = new ArrayList<>();
+        int checked = 0;
+
+        for (BackupCatalog.Entry backup : catalog.list()) {
+            Path path = backupDir.resolve(backup.getName());
+            Path checksummed = backup.getKind() == BackupCatalog.Kind.ARCHIVE ? path : path.resolve(MANIFEST);
+            checked++;
+            if (!Files.isRegularFile(checksummed)) {
+                missing.add(backup.getName());
+                catalog.recordDeleted(backup.getName());
+            } else if (!checksum(checksummed).equals(backup.getChecksum())) {
+                damaged.add(backup.getName());
+            }
+        }
+
+        for (Path path : listBackups(backupDir)) {
+            String name = path.getFileName().toString();
+            if (catalog.get(name) != null) {
+                continue;
+            }
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            if (Files.isDirectory(path)) {
+                // The manifest is written last, so a folder without one is an unfinished backup.
+                Path manifest = path.resolve(MANIFEST);
+                if (!Files.exists(manifest)) {
+                    continue;
+                }
+                untracked.add(name);
+                RecursiveUtil.DirectorySize size = RecursiveUtil.measureDirectory(path);
+                long manifestBytes = Files.size(manifest);
+                // Folders from before incremental backups hold full copies rather than links.
+                boolean full = readManifest(path).isEmpty();
+                catalog.recordAdded(new BackupCatalog.Entry(name,
+                        full ? BackupCatalog.Kind.FULL : BackupCatalog.Kind.INCREMENTAL,
+                        attrs.lastModifiedTime().toMillis(), (int) size.getFileCount() - 1,
+                        size.getLogicalBytes() - manifestBytes, full ? size.getLogicalBytes() : 0, checksum(manifest)));
+            } else {
+                untracked.add(name);
+                int files = 0;
+                long logicalBytes = 0;
+                try (ZipFile zip = new ZipFile(path.toFile())) {
+                    for (ZipEntry entry : Collections.list(zip.entries())) {
+                        if (!entry.getName().equals(MANIFEST)) {
+                            files++;
+                            logicalBytes += entry.getSize();
+                        }
+                    }
+                }
+                catalog.recordAdded(new BackupCatalog.Entry(name, BackupCatalog.Kind.ARCHIVE,
+                        attrs.lastModifiedTime().toMillis(), files, logicalBytes, attrs.size(), checksum(path)));
+            }
+        }
+
+        // Measured afresh: the correction is written to the catalog for good, so it must not
+        // rest on a cached listing.
+        long storeBytes = RecursiveUtil.measureDirectory(backupDir.resolve(OBJECTS)).getLogicalBytes();
+        long correction = storeBytes - catalog.getObjectStoreBytes();
+        catalog.recordStoreChange(correction);
+        return new BackupCatalog.VerifyReport(checked, missing, damaged, untracked, correction);
+    }
+
+    // Deletes stored objects that no catalogued backup's manifest lists and returns the bytes freed.
+    private static long collectGarbage(Path backupDir, BackupCatalog catalog) throws IOException {
+        Set<String> live = new HashSet<>();
+        for (BackupCatalog.Entry backup : catalog.list()) {
+            if (backup.getKind() == BackupCatalog.Kind.INCREMENTAL) {
+                for (ManifestEntry entry : readManifest(backupDir.resolve(backup.getName()))) {
+                    live.add(entry.hash);
+                }
+            }
+        }
+
+        long freed = 0;
+        Path objectDir = backupDir.resolve(OBJECTS);
+        if (Files.isDirectory(objectDir)) {
+            try (Stream<Path> objects = Files.walk(objectDir)) {
+                for (Path object : objects.filter(Files::isRegularFile).toList()) {
+                    if (!live.contains(object.getFileName().toString())) {
+                        long size = Files.size(object);
+                        if (delete(object)) {
+                            freed += size;
                         }
-                    })
-                    .skip(keepCount)
-                    .forEach(this::deleteDirectoryRecursively);
+                    } else {
+                        // Deleting a link may have made its object writable where read-only
+                        // files cannot be deleted, and objects stored before they were made
+                        // read-only are covered too.
+                        object.toFile().setReadOnly();
+                    }
+                }
+            }
+        }
+        return freed;
+    }
+
+    // Some platforms refuse to delete a read-only file, as objects and their links are.
+    private static boolean delete(Path file) throws IOException {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (AccessDeniedException e) {
+            file.toFile().setWritable(true);
+            return Files.deleteIfExists(file);
         }
     }
 
+    private static String checksum(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            while (in.read(buffer) != -1) {
+                // The digest sees every byte read.
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     private void deleteDirectoryRecursively(Path directory) {
         try {
             Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Files.delete(file);
+                    delete(file);
                     return FileVisitResult.CONTINUE;
                 }
 
@@ -117,5 +635,12 @@ public class BackupService {
             System.err.println("Error deleting directory: " + e.getMessage());
         }
     }
-}
 
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
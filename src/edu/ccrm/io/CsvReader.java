@@ -0,0 +1,413 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+// RFC 4180 reader that tokenizes the memory-mapped bytes of a UTF-8 file directly. A row only
+// records where its fields start and end; Strings are built when a field is asked for. The file
+// can be split into chunks that end on record boundaries, and chunks parse independently, so
+// callers may hand them to different threads.
+public class CsvReader implements Closeable {
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private static final int SCAN_WINDOW = 64 << 20;
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte LF = '\n';
+
+    // Scanner states of split, mirroring parseRecord.
+    private static final int FIELD_START = 0;
+    private static final int IN_FIELD = 1;
+    private static final int IN_QUOTES = 2;
+    private static final int CLOSING_QUOTE = 3;
+
+    private final Path path;
+    private final Path inflated;
+    private final FileChannel channel;
+    private final long size;
+    private final long dataStart;
+
+    public static final class Chunk {
+        private final long start;
+        private final long end;
+        private final long firstLine;
+
+        Chunk(long start, long end, long firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public long getFirstLine() { return firstLine; }
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(CsvRow row);
+    }
+
+    public CsvReader(Path path) throws IOException {
+        this(path, null);
+    }
+
+    private CsvReader(Path path, Path inflated) throws IOException {
+        this.path = path;
+        this.inflated = inflated;
+        this.channel = FileChannel.open(inflated != null ? inflated : path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.dataStart = bomLength();
+    }
+
+    // Opens a plain file, or a gzip file such as a compressed export, which is recognised by its
+    // magic bytes rather than its name. Compressed bytes cannot be mapped, so every member is
+    // inflated into a temporary file first, and that file is deleted on close.
+    public static CsvReader open(Path path) throws IOException {
+        if (!isGzip(path)) {
+            return new CsvReader(path);
+        }
+        Path inflated = Files.createTempFile("ccrm-import-", ".csv");
+        try {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path), 64 * 1024)) {
+                Files.copy(in, inflated, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new CsvReader(path, inflated);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(inflated);
+            throw e;
+        }
+    }
+
+    public static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Cuts the file into chunks of roughly chunkSize bytes. Boundaries are found with a single
+    // pass that follows the parser's quoting rule: a quote opens a quoted field only at the start
+    // of a field, so a stray quote inside an unquoted field cannot shift a boundary, and a newline
+    // inside a quoted field never ends a chunk. The same pass counts newlines so each chunk knows
+    // the line it starts on.
+    public List<Chunk> split(int chunkSize) throws IOException {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+
+        List<Chunk> chunks = new ArrayList<>();
+        long start = dataStart;
+        long startLine = 1;
+        long line = 1;
+        int state = FIELD_START;
+
+        for (long windowStart = start; windowStart < size; windowStart += SCAN_WINDOW) {
+            int length = (int) Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == LF) {
+                    line++;
+                }
+                switch (state) {
+                    case IN_QUOTES:
+                        if (b == QUOTE) {
+                            state = CLOSING_QUOTE;
+                        }
+                        continue;
+                    case CLOSING_QUOTE:
+                        // A doubled quote is an escaped one; anything else closed the field.
+                        if (b == QUOTE) {
+                            state = IN_QUOTES;
+                            continue;
+                        }
+                        state = IN_FIELD;
+                        break;
+                    case FIELD_START:
+                        if (b == QUOTE) {
+                            state = IN_QUOTES;
+                            continue;
+                        }
+                        if (!isBlank(b)) {
+                            state = IN_FIELD;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if (b == COMMA) {
+                    state = FIELD_START;
+                } else if (b == LF) {
+                    state = FIELD_START;
+                    long next = windowStart + i + 1;
+                    if (next - start >= chunkSize) {
+                        chunks.add(new Chunk(start, next, startLine));
+                        start = next;
+                        startLine = line;
+                    }
+                }
+            }
+        }
+        if (start < size) {
+            chunks.add(new Chunk(start, size, startLine));
+        }
+        return chunks;
+    }
+
+    public void forEach(RowVisitor visitor) throws IOException {
+        for (Chunk chunk : split(DEFAULT_CHUNK_SIZE)) {
+            read(chunk, visitor);
+        }
+    }
+
+    // Visits every record in the chunk. The row passed to the visitor is reused for the next
+    // record, so it must not be kept once visit returns.
+    public void read(Chunk chunk, RowVisitor visitor) throws IOException {
+        long length = chunk.end - chunk.start;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Record too large to map at offset " + chunk.start + " in " + path);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, length);
+        CsvRow row = new CsvRow(buffer, chunk.start == dataStart);
+        int limit = (int) length;
+        int pos = 0;
+        long line = chunk.firstLine;
+        while (pos < limit) {
+            row.reset(line);
+            pos = parseRecord(buffer, pos, limit, row);
+            line += row.lineBreaks;
+            visitor.visit(row);
+            row.first = false;
+        }
+    }
+
+    private long bomLength() throws IOException {
+        if (size < 3) {
+            return 0;
+        }
+        MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3);
+        return head.get(0) == (byte) 0xEF && head.get(1) == (byte) 0xBB && head.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+
+    // Parses one record starting at pos and returns the offset just past it.
+    private static int parseRecord(MappedByteBuffer buffer, int pos, int limit, CsvRow row) {
+        for (;;) {
+            while (pos < limit && isBlank(buffer.get(pos))) {
+                pos++;
+            }
+
+            if (pos < limit && buffer.get(pos) == QUOTE) {
+                int start = ++pos;
+                boolean escaped = false;
+                for (;;) {
+                    if (pos >= limit) {
+                        row.addField(start, pos, true, escaped);
+                        row.error = "Unterminated quoted field";
+                        return pos;
+                    }
+                    byte b = buffer.get(pos);
+                    if (b == QUOTE) {
+                        if (pos + 1 < limit && buffer.get(pos + 1) == QUOTE) {
+                            escaped = true;
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (b == LF) {
+                        row.lineBreaks++;
+                    }
+                    pos++;
+                }
+                row.addField(start, pos, true, escaped);
+                pos++;
+                while (pos < limit && isBlank(buffer.get(pos))) {
+                    pos++;
+                }
+                if (pos < limit && buffer.get(pos) != COMMA && buffer.get(pos) != LF && row.error == null) {
+                    row.error = "Unexpected character after closing quote in field " + row.size();
+                }
+                while (pos < limit && buffer.get(pos) != COMMA && buffer.get(pos) != LF) {
+                    pos++;
+                }
+            } else {
+                int start = pos;
+                while (pos < limit && buffer.get(pos) != COMMA && buffer.get(pos) != LF) {
+                    pos++;
+                }
+                int end = pos;
+                while (end > start && isBlank(buffer.get(end - 1))) {
+                    end--;
+                }
+                row.addField(start, end, false, false);
+            }
+
+            if (pos >= limit) {
+                return pos;
+            }
+            if (buffer.get(pos) == LF) {
+                row.lineBreaks++;
+                return pos + 1;
+            }
+            pos++;
+        }
+    }
+
+    // Spaces, tabs and the CR of a CRLF line ending.
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (inflated != null) {
+            try {
+                Files.deleteIfExists(inflated);
+            } catch (IOException e) {
+                // Still mapped on platforms that refuse to delete mapped files.
+                inflated.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    public static final class CsvRow {
+        private final MappedByteBuffer buffer;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private byte[] flags = new byte[8];
+        private byte[] scratch = new byte[64];
+        private int size;
+        private long lineNumber;
+        private int lineBreaks;
+        private boolean first;
+        private String error;
+
+        private static final byte QUOTED = 1;
+        private static final byte ESCAPED = 2;
+
+        CsvRow(MappedByteBuffer buffer, boolean first) {
+            this.buffer = buffer;
+            this.first = first;
+        }
+
+        void reset(long lineNumber) {
+            this.size = 0;
+            this.lineNumber = lineNumber;
+            this.lineBreaks = 0;
+            this.error = null;
+        }
+
+        void addField(int start, int end, boolean quoted, boolean escaped) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size << 1);
+                ends = Arrays.copyOf(ends, size << 1);
+                flags = Arrays.copyOf(flags, size << 1);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            flags[size] = (byte) ((quoted ? QUOTED : 0) | (escaped ? ESCAPED : 0));
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // The line the record starts on; a quoted field may carry it over several lines.
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        // True for the first record of the file, normally its header.
+        public boolean isFirst() {
+            return first;
+        }
+
+        // A line holding nothing but whitespace.
+        public boolean isBlank() {
+            return size == 1 && flags[0] == 0 && starts[0] == ends[0];
+        }
+
+        // Null unless the record broke the quoting rules; its fields are still readable.
+        public String getError() {
+            return error;
+        }
+
+        // Unquoted fields come back trimmed; quoted fields exactly as written, with doubled
+        // quotes collapsed.
+        public String get(int index) {
+            checkIndex(index);
+            int length = ends[index] - starts[index];
+            if (length == 0) {
+                return "";
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length << 1)];
+            }
+            buffer.get(starts[index], scratch, 0, length);
+            if ((flags[index] & ESCAPED) != 0) {
+                int out = 0;
+                for (int i = 0; i < length; i++) {
+                    scratch[out++] = scratch[i];
+                    if (scratch[i] == QUOTE) {
+                        i++;
+                    }
+                }
+                length = out;
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        // Parses a decimal integer straight from the bytes, without building a String.
+        public int getInt(int index) {
+            checkIndex(index);
+            int pos = starts[index];
+            int end = ends[index];
+            boolean negative = pos < end && buffer.get(pos) == '-';
+            if (negative || (pos < end && buffer.get(pos) == '+')) {
+                pos++;
+            }
+            if (pos == end || end - pos > 10) {
+                throw new NumberFormatException("For input string: \"" + get(index) + "\"");
+            }
+            long value = 0;
+            for (; pos < end; pos++) {
+                int digit = buffer.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("For input string: \"" + get(index) + "\"");
+                }
+                value = value * 10 + digit;
+            }
+            value = negative ? -value : value;
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("For input string: \"" + get(index) + "\"");
+            }
+            return (int) value;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Field " + index + " of " + size);
+            }
+        }
+    }
+}
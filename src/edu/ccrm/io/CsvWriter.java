@@ -0,0 +1,218 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+// Renders CSV rows straight into a growable UTF-8 byte buffer, with no per-field Strings or
+// format calls. Fields are quoted only when CsvReader would otherwise read them differently:
+// when they contain a comma, quote or line break, or start or end with whitespace that an
+// unquoted field would lose to trimming.
+public class CsvWriter {
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private byte[] buffer;
+    private int size;
+    private boolean rowStarted;
+    private LocalDate cachedDate;
+    private final byte[] cachedDateBytes = new byte[11];
+
+    public CsvWriter() {
+        this(8192);
+    }
+
+    public CsvWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public CsvWriter field(String value) {
+        separate();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (needsQuotes(value)) {
+            put((byte) '"');
+            appendUtf8(value, true);
+            put((byte) '"');
+        } else {
+            appendUtf8(value, false);
+        }
+        return this;
+    }
+
+    public CsvWriter field(int value) {
+        separate();
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                appendUtf8(Integer.toString(value), false);
+                return this;
+            }
+            put((byte) '-');
+            value = -value;
+        }
+        ensure(10);
+        int digits = digits(value);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+        return this;
+    }
+
+    public CsvWriter field(boolean value) {
+        separate();
+        append(value ? TRUE : FALSE);
+        return this;
+    }
+
+    public CsvWriter field(Enum<?> value) {
+        return field(value == null ? null : value.name());
+    }
+
+    // "yyyy-MM-dd HH:mm:ss". Rows are mostly created on a handful of days, so the date part is
+    // kept from the previous call and only the time digits are written each time.
+    public CsvWriter field(LocalDateTime value) {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        LocalDate date = value.toLocalDate();
+        if (!date.equals(cachedDate)) {
+            cachedDate = date;
+            int year = date.getYear();
+            cachedDateBytes[0] = (byte) ('0' + year / 1000 % 10);
+            cachedDateBytes[1] = (byte) ('0' + year / 100 % 10);
+            cachedDateBytes[2] = (byte) ('0' + year / 10 % 10);
+            cachedDateBytes[3] = (byte) ('0' + year % 10);
+            cachedDateBytes[4] = '-';
+            twoDigits(cachedDateBytes, 5, date.getMonthValue());
+            cachedDateBytes[7] = '-';
+            twoDigits(cachedDateBytes, 8, date.getDayOfMonth());
+            cachedDateBytes[10] = ' ';
+        }
+        ensure(19);
+        System.arraycopy(cachedDateBytes, 0, buffer, size, 11);
+        twoDigits(buffer, size + 11, value.getHour());
+        buffer[size + 13] = ':';
+        twoDigits(buffer, size + 14, value.getMinute());
+        buffer[size + 16] = ':';
+        twoDigits(buffer, size + 17, value.getSecond());
+        size += 19;
+        return this;
+    }
+
+    public CsvWriter endRow() {
+        put((byte) '\n');
+        rowStarted = false;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    // Empties the buffer but keeps its capacity for the next rows.
+    public void reset() {
+        size = 0;
+        rowStarted = false;
+    }
+
+    private void separate() {
+        if (rowStarted) {
+            put((byte) ',');
+        }
+        rowStarted = true;
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (isBlank(value.charAt(0)) || isBlank(value.charAt(value.length() - 1))) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private void appendUtf8(String value, boolean escapeQuotes) {
+        int length = value.length();
+        ensure(length * 3 + (escapeQuotes ? length : 0));
+        byte[] buf = buffer;
+        int pos = size;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' && escapeQuotes) {
+                    buf[pos++] = '"';
+                }
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        size = pos;
+    }
+
+    private void append(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buffer[size++] = b;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+        }
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void twoDigits(byte[] buf, int pos, int value) {
+        buf[pos] = (byte) ('0' + value / 10);
+        buf[pos + 1] = (byte) ('0' + value % 10);
+    }
+}
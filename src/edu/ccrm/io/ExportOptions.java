@@ -0,0 +1,52 @@
+package edu.ccrm.io;
+
+public class ExportOptions {
+    public static final int DEFAULT_CHUNK_ROWS = 50_000;
+
+    private final boolean gzip;
+    private final boolean parallel;
+    private final int chunkRows;
+
+    private ExportOptions(Builder builder) {
+        this.gzip = builder.gzip;
+        this.parallel = builder.parallel;
+        this.chunkRows = builder.chunkRows;
+    }
+
+    public static ExportOptions defaults() {
+        return new Builder().build();
+    }
+
+    public static class Builder {
+        private boolean gzip;
+        private boolean parallel;
+        private int chunkRows = DEFAULT_CHUNK_ROWS;
+
+        // Writes a .csv.gz file instead of plain CSV; the importers read either.
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        // Renders (and compresses) chunks of chunkRows rows on the common fork/join pool and
+        // writes them in order. Exports of a single chunk or less are always sequential.
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        public Builder chunkRows(int chunkRows) {
+            if (chunkRows <= 0) throw new IllegalArgumentException("Chunk rows must be positive");
+            this.chunkRows = chunkRows;
+            return this;
+        }
+
+        public ExportOptions build() {
+            return new ExportOptions(this);
+        }
+    }
+
+    public boolean isGzip() { return gzip; }
+    public boolean isParallel() { return parallel; }
+    public int getChunkRows() { return chunkRows; }
+}
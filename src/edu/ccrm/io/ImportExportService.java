@@ -7,155 +7,336 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 public class ImportExportService implements Persistable<Object> {
-    private static final String CSV_DELIMITER = ",";
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    static final int STUDENT_FIELDS = 4;
+    static final int COURSE_FIELDS = 6;
+    private static final int PROGRESS_BATCH = 1024;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final DateTimeFormatter CSV_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int EXPORT_BUFFER = 64 * 1024;
+    // Columns past the required ones were added over time, always at the end, so files
+    // exported before them still import with defaults for the missing fields.
+    private static final String[] STUDENT_HEADER = {"ID", "RegNo", "FirstName", "LastName", "Email", "Status", "CreatedAt",
+            "Department"};
+    private static final String[] COURSE_HEADER = {"Code", "Title", "Credits", "Instructor", "Department", "Semester", "Active",
+            "CreatedAt", "Capacity"};
 
 
     public List<Student> importStudents(Path filePath) throws IOException {
-        if (!Files.exists(filePath)) {
-            throw new FileNotFoundException("File not found: " + filePath);
-        }
-
         List<Student> students = new ArrayList<>();
+        printErrors(importStudents(filePath, students::add, ImportOptions.defaults()));
+        return students;
+    }
 
-        try (Stream<String> lines = Files.lines(filePath, StandardCharsets.UTF_8)) {
-            List<String> lineList = lines.collect(Collectors.toList());
-
-            if (lineList.isEmpty()) {
-                return students;
-            }
-
-            for (int i = 1; i < lineList.size(); i++) {
-                String line = lineList.get(i).trim();
-                if (line.isEmpty()) continue;
+    // Streams the memory-mapped file a chunk at a time, handing each student to the handler as
+    // soon as it is parsed, so memory use does not grow with the size of the file.
+    public ImportReport importStudents(Path filePath, RecordHandler<Student> handler,
+                                       ImportOptions options) throws IOException {
+        return importRecords(filePath, STUDENT_FIELDS, ImportExportService::parseStudent, handler, options);
+    }
 
-                try {
-                    String[] parts = line.split(CSV_DELIMITER);
-                    if (parts.length >= 4) {
-                        String id = parts[0].trim();
-                        String regNo = parts[1].trim();
-                        String firstName = parts[2].trim();
-                        String lastName = parts[3].trim();
-                        String email = parts.length > 4 ? parts[4].trim() : "";
-
-                        Name fullName = new Name(firstName, lastName);
-                        Student student = new Student.Builder(id, regNo)
-                                .fullName(fullName)
-                                .email(email)
-                                .build();
-
-                        students.add(student);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error parsing line " + (i + 1) + ": " + e.getMessage());
-                }
-            }
+    static Student parseStudent(CsvReader.CsvRow row) {
+        String id = row.get(0);
+        String regNo = row.get(1);
+        String firstName = row.get(2);
+        String lastName = row.get(3);
+        String email = row.size() > 4 ? row.get(4) : "";
+
+        Name fullName = new Name(firstName, lastName);
+        Student.Builder builder = new Student.Builder(id, regNo)
+                .fullName(fullName)
+                .email(email);
+        String status = optional(row, 5);
+        if (status != null) {
+            builder.status(Student.Status.valueOf(status.toUpperCase()));
+        }
+        String createdAt = optional(row, 6);
+        if (createdAt != null) {
+            builder.createdAt(LocalDateTime.parse(createdAt, CSV_TIMESTAMP));
         }
+        String department = optional(row, 7);
+        if (department != null) {
+            builder.department(department);
+        }
+        return builder.build();
+    }
 
-        return students;
+    // The field at index, or null when the row is too short for it or it is blank.
+    private static String optional(CsvReader.CsvRow row, int index) {
+        if (row.size() <= index) {
+            return null;
+        }
+        String value = row.get(index);
+        return value.isEmpty() ? null : value;
     }
 
     public void exportStudents(List<Student> students, Path exportDir) throws IOException {
-        Files.createDirectories(exportDir);
-        Path filePath = exportDir.resolve("students_" +
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv");
+        Path filePath = exportStudents(students, exportDir, ExportOptions.defaults());
+        System.out.println("Students exported to: " + filePath);
+    }
 
-        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+    public Path exportStudents(List<Student> students, Path exportDir, ExportOptions options) throws IOException {
+        return export(students, exportDir, "students_", STUDENT_HEADER,
+                (student, out) -> out
+                        .field(student.getId())
+                        .field(student.getRegNo())
+                        .field(student.getFullName().getFirstName())
+                        .field(student.getFullName().getLastName())
+                        .field(student.getEmail())
+                        .field(student.getStatus())
+                        .field(student.getCreatedAt())
+                        .field(student.getDepartment()),
+                options);
+    }
 
-            writer.write("ID,RegNo,FirstName,LastName,Email,Status,CreatedAt");
-            writer.newLine();
-
-            for (Student student : students) {
-                writer.write(String.format("%s,%s,%s,%s,%s,%s,%s",
-                        student.getId(),
-                        student.getRegNo(),
-                        student.getFullName().getFirstName(),
-                        student.getFullName().getLastName(),
-                        student.getEmail() != null ? student.getEmail() : "",
-                        student.getStatus(),
-                        student.getCreatedAt().format(DATE_FORMATTER)));
-                writer.newLine();
+    public List<Course> importCourses(Path filePath) throws IOException {
+        List<Course> courses = new ArrayList<>();
+        printErrors(importCourses(filePath, courses::add, ImportOptions.defaults()));
+        return courses;
+    }
+
+    public ImportReport importCourses(Path filePath, RecordHandler<Course> handler,
+                                      ImportOptions options) throws IOException {
+        return importRecords(filePath, COURSE_FIELDS, ImportExportService::parseCourse, handler, options);
+    }
+
+    static Course parseCourse(CsvReader.CsvRow row) {
+        String code = row.get(0);
+        String title = row.get(1);
+        int credits = row.getInt(2);
+        String instructor = row.get(3);
+        String department = row.get(4);
+        Semester semester = Semester.valueOf(row.get(5).toUpperCase());
+
+        Course.Builder builder = new Course.Builder(code, title)
+                .credits(credits)
+                .instructor(instructor)
+                .department(department)
+                .semester(semester);
+        String active = optional(row, 6);
+        if (active != null) {
+            if (!active.equalsIgnoreCase("true") && !active.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("Active must be true or false: " + active);
             }
+            builder.active(Boolean.parseBoolean(active));
+        }
+        String createdAt = optional(row, 7);
+        if (createdAt != null) {
+            builder.createdAt(LocalDateTime.parse(createdAt, CSV_TIMESTAMP));
+        }
+        if (optional(row, 8) != null) {
+            builder.capacity(row.getInt(8));
         }
+        return builder.build();
+    }
 
-        System.out.println("Students exported to: " + filePath);
+    interface RowParser<T> {
+        T parse(CsvReader.CsvRow row);
     }
 
-    public List<Course> importCourses(Path filePath) throws IOException {
+    private <T> ImportReport importRecords(Path filePath, int minFields, RowParser<T> parser,
+                                           RecordHandler<T> handler, ImportOptions options) throws IOException {
         if (!Files.exists(filePath)) {
             throw new FileNotFoundException("File not found: " + filePath);
         }
 
-        List<Course> courses = new ArrayList<>();
-
-        try (Stream<String> lines = Files.lines(filePath, StandardCharsets.UTF_8)) {
-            List<String> lineList = lines.collect(Collectors.toList());
-
-            if (lineList.isEmpty()) {
-                return courses;
+        ImportReport report = new ImportReport(filePath, options.getMaxRecordedErrors());
+        try (CsvReader reader = CsvReader.open(filePath)) {
+            List<CsvReader.Chunk> chunks = reader.split(options.getChunkSize());
+            if (options.isParallel() && chunks.size() > 1) {
+                try {
+                    chunks.parallelStream().forEach(chunk -> {
+                        try {
+                            importChunk(reader, chunk, minFields, parser, handler, options, report);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            } else {
+                for (CsvReader.Chunk chunk : chunks) {
+                    importChunk(reader, chunk, minFields, parser, handler, options, report);
+                }
             }
+        }
+        return report;
+    }
 
-            for (int i = 1; i < lineList.size(); i++) {
-                String line = lineList.get(i).trim();
-                if (line.isEmpty()) continue;
-
+    // Counts are kept locally and folded into the shared report in batches, so parallel
+    // chunks do not contend on it for every record.
+    private <T> void importChunk(CsvReader reader, CsvReader.Chunk chunk, int minFields, RowParser<T> parser,
+                                 RecordHandler<T> handler, ImportOptions options,
+                                 ImportReport report) throws IOException {
+        Consumer<ImportReport> progress = options.getProgressListener();
+        int interval = options.getProgressInterval();
+        int batch = Math.min(interval, PROGRESS_BATCH);
+        long[] counts = new long[2];
+
+        reader.read(chunk, row -> {
+            if (row.isFirst() || row.isBlank()) {
+                return;
+            }
+            counts[0]++;
+            if (row.getError() != null) {
+                report.error(row.getLineNumber(), row.getError());
+            } else if (row.size() < minFields) {
+                report.error(row.getLineNumber(), "Expected at least " + minFields + " fields but found " + row.size());
+            } else {
                 try {
-                    String[] parts = line.split(CSV_DELIMITER);
-                    if (parts.length >= 6) {
-                        String code = parts[0].trim();
-                        String title = parts[1].trim();
-                        int credits = Integer.parseInt(parts[2].trim());
-                        String instructor = parts[3].trim();
-                        String department = parts[4].trim();
-                        Semester semester = Semester.valueOf(parts[5].trim().toUpperCase());
-
-                        Course course = new Course.Builder(code, title)
-                                .credits(credits)
-                                .instructor(instructor)
-                                .department(department)
-                                .semester(semester)
-                                .build();
-
-                        courses.add(course);
-                    }
+                    handler.handle(parser.parse(row));
+                    counts[1]++;
                 } catch (Exception e) {
-                    System.err.println("Error parsing line " + (i + 1) + ": " + e.getMessage());
+                    report.error(row.getLineNumber(), e.getMessage());
                 }
             }
+            if (counts[0] == batch) {
+                flush(report, counts, interval, progress);
+            }
+        });
+        flush(report, counts, interval, progress);
+    }
+
+    private static void flush(ImportReport report, long[] counts, int interval, Consumer<ImportReport> progress) {
+        if (report.add(counts[0], counts[1], interval) && progress != null) {
+            progress.accept(report);
         }
+        counts[0] = 0;
+        counts[1] = 0;
+    }
 
-        return courses;
+    private static void printErrors(ImportReport report) {
+        for (ImportReport.ImportError error : report.getErrors()) {
+            System.err.println("Error parsing line " + error.getLineNumber() + ": " + error.getMessage());
+        }
     }
 
     public void exportCourses(List<Course> courses, Path exportDir) throws IOException {
-        Files.createDirectories(exportDir);
-        Path filePath = exportDir.resolve("courses_" +
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv");
+        Path filePath = exportCourses(courses, exportDir, ExportOptions.defaults());
+        System.out.println("Courses exported to: " + filePath);
+    }
 
-        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+    // Semesters are written by constant name (FALL rather than "Fall Semester") so the file
+    // can be read back by importCourses. Every field importCourses accepts is written, and a
+    // gzip export imports as it is.
+    public Path exportCourses(List<Course> courses, Path exportDir, ExportOptions options) throws IOException {
+        return export(courses, exportDir, "courses_", COURSE_HEADER,
+                (course, out) -> out
+                        .field(course.getCode())
+                        .field(course.getTitle())
+                        .field(course.getCredits())
+                        .field(course.getInstructor())
+                        .field(course.getDepartment())
+                        .field(course.getSemester())
+                        .field(course.isActive())
+                        .field(course.getCreatedAt())
+                        .field(course.getCapacity()),
+                options);
+    }
 
-            writer.write("Code,Title,Credits,Instructor,Department,Semester,Active,CreatedAt");
-            writer.newLine();
-
-            for (Course course : courses) {
-                writer.write(String.format("%s,%s,%d,%s,%s,%s,%s,%s",
-                        course.getCode(),
-                        course.getTitle(),
-                        course.getCredits(),
-                        course.getInstructor(),
-                        course.getDepartment(),
-                        course.getSemester(),
-                        course.isActive(),
-                        course.getCreatedAt().format(DATE_FORMATTER)));
-                writer.newLine();
+    interface RowRenderer<T> {
+        void render(T item, CsvWriter out);
+    }
+
+    private <T> Path export(List<T> items, Path exportDir, String prefix, String[] header,
+                            RowRenderer<T> renderer, ExportOptions options) throws IOException {
+        Files.createDirectories(exportDir);
+        Path filePath = exportDir.resolve(prefix + LocalDateTime.now().format(FILE_TIMESTAMP)
+                + (options.isGzip() ? ".csv.gz" : ".csv"));
+
+        try (OutputStream file = Files.newOutputStream(filePath)) {
+            if (options.isParallel() && items.size() > options.getChunkRows()) {
+                writeParallel(items, header, renderer, options, file);
+            } else {
+                OutputStream out = options.isGzip() ? new GZIPOutputStream(file, EXPORT_BUFFER) : file;
+                CsvWriter writer = new CsvWriter(EXPORT_BUFFER);
+                writeHeader(writer, header);
+                for (T item : items) {
+                    renderer.render(item, writer);
+                    writer.endRow();
+                    if (writer.size() >= EXPORT_BUFFER) {
+                        writer.writeTo(out);
+                        writer.reset();
+                    }
+                }
+                writer.writeTo(out);
+                if (out != file) {
+                    ((GZIPOutputStream) out).finish();
+                }
             }
         }
+        return filePath;
+    }
 
-        System.out.println("Courses exported to: " + filePath);
+    // Chunks are rendered concurrently but written strictly in order, with at most a few per
+    // worker in flight so memory stays bounded. Compressed chunks become separate gzip
+    // members; concatenated members form a valid gzip file that GZIPInputStream reads whole.
+    private <T> void writeParallel(List<T> items, String[] header, RowRenderer<T> renderer,
+                                   ExportOptions options, OutputStream file) throws IOException {
+        int chunkRows = options.getChunkRows();
+        int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+        for (int start = 0; start < items.size(); start += chunkRows) {
+            int from = start;
+            int to = Math.min(items.size(), start + chunkRows);
+            pending.add(CompletableFuture.supplyAsync(
+                    () -> renderChunk(items.subList(from, to), from == 0 ? header : null, renderer, options.isGzip())));
+            if (pending.size() >= window) {
+                file.write(await(pending.poll()));
+            }
+        }
+        while (!pending.isEmpty()) {
+            file.write(await(pending.poll()));
+        }
+    }
+
+    private static <T> byte[] renderChunk(List<T> items, String[] header, RowRenderer<T> renderer, boolean gzip) {
+        CsvWriter writer = new CsvWriter(items.size() * 64);
+        if (header != null) {
+            writeHeader(writer, header);
+        }
+        for (T item : items) {
+            renderer.render(item, writer);
+            writer.endRow();
+        }
+        if (!gzip) {
+            return writer.toByteArray();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(writer.size() / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, EXPORT_BUFFER)) {
+            writer.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void writeHeader(CsvWriter writer, String[] header) {
+        for (String column : header) {
+            writer.field(column);
+        }
+        writer.endRow();
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
     }
 
     @Override
@@ -0,0 +1,73 @@
+package edu.ccrm.io;
+
+import java.util.function.Consumer;
+
+public class ImportOptions {
+    public static final int DEFAULT_PROGRESS_INTERVAL = 10_000;
+    public static final int DEFAULT_MAX_RECORDED_ERRORS = 1_000;
+
+    private final int progressInterval;
+    private final Consumer<ImportReport> progressListener;
+    private final int maxRecordedErrors;
+    private final boolean parallel;
+    private final int chunkSize;
+
+    private ImportOptions(Builder builder) {
+        this.progressInterval = builder.progressInterval;
+        this.progressListener = builder.progressListener;
+        this.maxRecordedErrors = builder.maxRecordedErrors;
+        this.parallel = builder.parallel;
+        this.chunkSize = builder.chunkSize;
+    }
+
+    public static ImportOptions defaults() {
+        return new Builder().build();
+    }
+
+    public static class Builder {
+        private int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        private Consumer<ImportReport> progressListener;
+        private int maxRecordedErrors = DEFAULT_MAX_RECORDED_ERRORS;
+        private boolean parallel;
+        private int chunkSize = CsvReader.DEFAULT_CHUNK_SIZE;
+
+        // The listener sees the live report after every interval records.
+        public Builder progress(int interval, Consumer<ImportReport> listener) {
+            if (interval <= 0) throw new IllegalArgumentException("Progress interval must be positive");
+            this.progressInterval = interval;
+            this.progressListener = listener;
+            return this;
+        }
+
+        // Errors past this many are still counted, but their details are dropped so a badly
+        // broken file cannot fill the heap with error messages.
+        public Builder maxRecordedErrors(int maxRecordedErrors) {
+            if (maxRecordedErrors < 0) throw new IllegalArgumentException("Max recorded errors cannot be negative");
+            this.maxRecordedErrors = maxRecordedErrors;
+            return this;
+        }
+
+        // Parses chunks of the file on the common fork/join pool. The handler is then called
+        // from several threads at once and records arrive out of file order.
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        public Builder chunkSize(int chunkSize) {
+            if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public ImportOptions build() {
+            return new ImportOptions(this);
+        }
+    }
+
+    public int getProgressInterval() { return progressInterval; }
+    public Consumer<ImportReport> getProgressListener() { return progressListener; }
+    public int getMaxRecordedErrors() { return maxRecordedErrors; }
+    public boolean isParallel() { return parallel; }
+    public int getChunkSize() { return chunkSize; }
+}
@@ -0,0 +1,375 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.BulkResult;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.util.ValidationUtil;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Import in three stages connected by bounded queues: one thread parses the file into
+// batches, a pool of threads validates them, and one thread hands valid batches to the
+// service's bulk insert. A slow stage makes the ones before it block rather than buffer, so
+// memory stays bounded by the queue capacities whatever the file size.
+public class ImportPipeline<T> {
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+    private static final long POLL_MILLIS = 100;
+
+    private final int minFields;
+    private final ImportExportService.RowParser<T> parser;
+    private final Consumer<T> validator;
+    private final Function<List<T>, BulkResult> inserter;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int validatorThreads;
+    private final int maxRecordedErrors;
+    private final int progressInterval;
+    private final Consumer<ImportSummary> progressListener;
+
+    private static final class Batch<T> {
+        final List<T> items;
+        final long[] lines;
+
+        Batch(List<T> items, long[] lines) {
+            this.items = items;
+            this.lines = lines;
+        }
+    }
+
+    // Raised inside a stage when another stage has failed, to unwind it quietly.
+    private static final class Aborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Aborted() {
+            super(null, null, false, false);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    public static Builder<Student> forStudents(StudentService studentService) {
+        return new Builder<>(ImportExportService.STUDENT_FIELDS, ImportExportService::parseStudent,
+                ValidationUtil::validateStudent, batch -> studentService.addAll(batch, false));
+    }
+
+    public static Builder<Course> forCourses(CourseService courseService) {
+        return new Builder<>(ImportExportService.COURSE_FIELDS, ImportExportService::parseCourse,
+                ValidationUtil::validateCourse, batch -> courseService.addAll(batch, false));
+    }
+
+    public static class Builder<T> {
+        private final int minFields;
+        private final ImportExportService.RowParser<T> parser;
+        private final Consumer<T> validator;
+        private final Function<List<T>, BulkResult> inserter;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private int validatorThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        private int maxRecordedErrors = ImportOptions.DEFAULT_MAX_RECORDED_ERRORS;
+        private int progressInterval = ImportOptions.DEFAULT_PROGRESS_INTERVAL;
+        private Consumer<ImportSummary> progressListener;
+
+        private Builder(int minFields, ImportExportService.RowParser<T> parser, Consumer<T> validator,
+                        Function<List<T>, BulkResult> inserter) {
+            this.minFields = minFields;
+            this.parser = parser;
+            this.validator = validator;
+            this.inserter = inserter;
+        }
+
+        public Builder<T> batchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        // Batches each queue may hold before the stage feeding it blocks.
+        public Builder<T> queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) throw new IllegalArgumentException("Queue capacity must be positive");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder<T> validatorThreads(int validatorThreads) {
+            if (validatorThreads <= 0) throw new IllegalArgumentException("Validator threads must be positive");
+            this.validatorThreads = validatorThreads;
+            return this;
+        }
+
+        public Builder<T> maxRecordedErrors(int maxRecordedErrors) {
+            if (maxRecordedErrors < 0) throw new IllegalArgumentException("Max recorded errors cannot be negative");
+            this.maxRecordedErrors = maxRecordedErrors;
+            return this;
+        }
+
+        // The listener runs on the insert thread after every interval records read.
+        public Builder<T> progress(int interval, Consumer<ImportSummary> listener) {
+            if (interval <= 0) throw new IllegalArgumentException("Progress interval must be positive");
+            this.progressInterval = interval;
+            this.progressListener = listener;
+            return this;
+        }
+
+        public ImportPipeline<T> build() {
+            return new ImportPipeline<>(this);
+        }
+    }
+
+    private ImportPipeline(Builder<T> builder) {
+        this.minFields = builder.minFields;
+        this.parser = builder.parser;
+        this.validator = builder.validator;
+        this.inserter = builder.inserter;
+        this.batchSize = builder.batchSize;
+        this.queueCapacity = builder.queueCapacity;
+        this.validatorThreads = builder.validatorThreads;
+        this.maxRecordedErrors = builder.maxRecordedErrors;
+        this.progressInterval = builder.progressInterval;
+        this.progressListener = builder.progressListener;
+    }
+
+    public ImportSummary run(Path filePath) throws IOException {
+        if (!Files.exists(filePath)) {
+            throw new FileNotFoundException("File not found: " + filePath);
+        }
+        return new Run(filePath).execute();
+    }
+
+    // State of a single run; the pipeline itself is reusable.
+    private final class Run {
+        private final Path filePath;
+        private final ImportSummary summary;
+        private final BlockingQueue<Batch<T>> parsed;
+        private final BlockingQueue<Batch<T>> validated;
+        private final Batch<T> end;
+        private final AtomicInteger validatorsLeft;
+        private final AtomicReference<Throwable> failure;
+
+        Run(Path filePath) {
+            this.filePath = filePath;
+            this.summary = new ImportSummary(filePath, maxRecordedErrors);
+            this.parsed = new ArrayBlockingQueue<>(queueCapacity);
+            this.validated = new ArrayBlockingQueue<>(queueCapacity);
+            this.end = new Batch<>(new ArrayList<>(), new long[0]);
+            this.validatorsLeft = new AtomicInteger(validatorThreads);
+            this.failure = new AtomicReference<>();
+        }
+
+        ImportSummary execute() throws IOException {
+            long start = System.nanoTime();
+            List<Thread> threads = new ArrayList<>();
+            threads.add(start("import-parse", this::parse));
+            for (int i = 0; i < validatorThreads; i++) {
+                threads.add(start("import-validate-" + i, this::validate));
+            }
+            threads.add(start("import-insert", this::insert));
+
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+                Thread.currentThread().interrupt();
+            }
+            summary.finish(System.nanoTime() - start);
+
+            Throwable t = failure.get();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            if (t != null) {
+                throw new IOException("Import of " + filePath + " failed", t);
+            }
+            return summary;
+        }
+
+        private Thread start(String name, StageBody body) {
+            Thread thread = new Thread(() -> {
+                try {
+                    body.run();
+                } catch (Aborted e) {
+                    // Another stage failed first and has recorded why.
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, name);
+            thread.start();
+            return thread;
+        }
+
+        private void parse() throws IOException {
+            Batcher batcher = new Batcher();
+            try (CsvReader reader = CsvReader.open(filePath)) {
+                for (CsvReader.Chunk chunk : reader.split(CsvReader.DEFAULT_CHUNK_SIZE)) {
+                    reader.read(chunk, row -> {
+                        if (row.isFirst() || row.isBlank()) {
+                            return;
+                        }
+                        summary.recordsRead(1);
+                        long line = row.getLineNumber();
+                        if (row.getError() != null) {
+                            summary.fail(line, row.getError());
+                        } else if (row.size() < minFields) {
+                            summary.fail(line, "Expected at least " + minFields + " fields but found " + row.size());
+                        } else {
+                            try {
+                                batcher.add(parser.parse(row), line);
+                            } catch (RuntimeException e) {
+                                if (e instanceof Aborted) {
+                                    throw e;
+                                }
+                                summary.fail(line, e.getMessage());
+                            }
+                        }
+                    });
+                }
+            }
+            batcher.flush();
+            for (int i = 0; i < validatorThreads; i++) {
+                put(parsed, end);
+            }
+        }
+
+        // Collects parsed records into batches for the validators; time spent blocked handing
+        // a batch over is not counted as parse time.
+        private final class Batcher {
+            private List<T> items = new ArrayList<>(batchSize);
+            private long[] lines = new long[batchSize];
+            private long busySince = System.nanoTime();
+
+            void add(T item, long line) {
+                lines[items.size()] = line;
+                items.add(item);
+                if (items.size() == batchSize) {
+                    flush();
+                }
+            }
+
+            void flush() {
+                summary.stageTime(ImportSummary.Stage.PARSE, System.nanoTime() - busySince);
+                if (!items.isEmpty()) {
+                    put(parsed, new Batch<>(items, lines));
+                    items = new ArrayList<>(batchSize);
+                    lines = new long[batchSize];
+                }
+                busySince = System.nanoTime();
+            }
+        }
+
+        private void validate() {
+            for (;;) {
+                Batch<T> batch = take(parsed);
+                if (batch == end) {
+                    if (validatorsLeft.decrementAndGet() == 0) {
+                        put(validated, end);
+                    }
+                    return;
+                }
+
+                long started = System.nanoTime();
+                List<T> valid = new ArrayList<>(batch.items.size());
+                long[] lines = new long[batch.items.size()];
+                for (int i = 0; i < batch.items.size(); i++) {
+                    T item = batch.items.get(i);
+                    try {
+                        validator.accept(item);
+                        lines[valid.size()] = batch.lines[i];
+                        valid.add(item);
+                    } catch (IllegalArgumentException e) {
+                        summary.fail(batch.lines[i], e.getMessage());
+                    }
+                }
+                summary.stageTime(ImportSummary.Stage.VALIDATE, System.nanoTime() - started);
+                if (!valid.isEmpty()) {
+                    put(validated, new Batch<>(valid, lines));
+                }
+            }
+        }
+
+        private void insert() {
+            long reported = 0;
+            for (;;) {
+                Batch<T> batch = take(validated);
+                if (batch == end) {
+                    return;
+                }
+
+                long started = System.nanoTime();
+                BulkResult result = inserter.apply(batch.items);
+                for (int i = 0; i < result.size(); i++) {
+                    if (result.getOutcome(i) == BulkResult.Outcome.DUPLICATE) {
+                        summary.skip(batch.lines[i], result.getReason(i));
+                    } else if (result.getOutcome(i) == BulkResult.Outcome.INVALID) {
+                        summary.fail(batch.lines[i], result.getReason(i));
+                    }
+                }
+                summary.inserted(result.getInsertedCount());
+                summary.stageTime(ImportSummary.Stage.INSERT, System.nanoTime() - started);
+
+                long read = summary.getRecordsRead();
+                if (progressListener != null && read / progressInterval != reported / progressInterval) {
+                    progressListener.accept(summary);
+                }
+                reported = read;
+            }
+        }
+
+        private void put(BlockingQueue<Batch<T>> queue, Batch<T> batch) {
+            try {
+                while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        throw new Aborted();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+        }
+
+        private Batch<T> take(BlockingQueue<Batch<T>> queue) {
+            try {
+                for (;;) {
+                    Batch<T> batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (batch != null) {
+                        return batch;
+                    }
+                    if (failure.get() != null) {
+                        throw new Aborted();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+        }
+
+        private Aborted interrupted(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+            return new Aborted();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package edu.ccrm.io;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class ImportReport {
+    private final Path source;
+    private final int maxRecordedErrors;
+    private final List<ImportError> errors;
+    private long recordsRead;
+    private long recordsImported;
+    private long errorCount;
+
+    public static class ImportError {
+        private final long lineNumber;
+        private final String message;
+
+        public ImportError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public long getLineNumber() { return lineNumber; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+
+    ImportReport(Path source, int maxRecordedErrors) {
+        this.source = source;
+        this.maxRecordedErrors = maxRecordedErrors;
+        this.errors = new ArrayList<>();
+    }
+
+    // Adds a batch of counts and reports whether the total read crossed a multiple of interval.
+    synchronized boolean add(long read, long imported, int interval) {
+        long before = recordsRead;
+        recordsRead += read;
+        recordsImported += imported;
+        return before / interval != recordsRead / interval;
+    }
+
+    synchronized void error(long lineNumber, String message) {
+        errorCount++;
+        if (errors.size() < maxRecordedErrors) {
+            errors.add(new ImportError(lineNumber, message));
+        }
+    }
+
+    public Path getSource() { return source; }
+    public synchronized long getRecordsRead() { return recordsRead; }
+    public synchronized long getRecordsImported() { return recordsImported; }
+    public synchronized long getErrorCount() { return errorCount; }
+    public synchronized boolean hasErrors() { return errorCount > 0; }
+
+    // At most maxRecordedErrors entries, in line order; getErrorCount() has the full count. A
+    // parallel import records whichever errors it meets first, not necessarily the earliest.
+    public synchronized List<ImportError> getErrors() {
+        List<ImportError> sorted = new ArrayList<>(errors);
+        sorted.sort(Comparator.comparingLong(ImportError::getLineNumber));
+        return Collections.unmodifiableList(sorted);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Import[%s: %d records, %d imported, %d errors]",
+                source.getFileName(), recordsRead, recordsImported, errorCount);
+    }
+}
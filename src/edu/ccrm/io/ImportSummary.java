@@ -0,0 +1,107 @@
+package edu.ccrm.io;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class ImportSummary {
+    public enum Stage {
+        PARSE, VALIDATE, INSERT
+    }
+
+    private final Path source;
+    private final int maxRecordedErrors;
+    private final List<ImportReport.ImportError> skipped;
+    private final List<ImportReport.ImportError> failures;
+    private final long[] stageNanos;
+    private long recordsRead;
+    private long inserted;
+    private long skippedCount;
+    private long failedCount;
+    private long elapsedNanos;
+
+    ImportSummary(Path source, int maxRecordedErrors) {
+        this.source = source;
+        this.maxRecordedErrors = maxRecordedErrors;
+        this.skipped = new ArrayList<>();
+        this.failures = new ArrayList<>();
+        this.stageNanos = new long[Stage.values().length];
+    }
+
+    synchronized void recordsRead(long count) {
+        recordsRead += count;
+    }
+
+    synchronized void inserted(long count) {
+        inserted += count;
+    }
+
+    synchronized void skip(long lineNumber, String reason) {
+        skippedCount++;
+        if (skipped.size() < maxRecordedErrors) {
+            skipped.add(new ImportReport.ImportError(lineNumber, reason));
+        }
+    }
+
+    synchronized void fail(long lineNumber, String reason) {
+        failedCount++;
+        if (failures.size() < maxRecordedErrors) {
+            failures.add(new ImportReport.ImportError(lineNumber, reason));
+        }
+    }
+
+    synchronized void stageTime(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()] += nanos;
+    }
+
+    synchronized void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Path getSource() { return source; }
+    public synchronized long getRecordsRead() { return recordsRead; }
+    public synchronized long getInserted() { return inserted; }
+    // Well-formed, valid records that were already present, such as duplicate IDs.
+    public synchronized long getSkipped() { return skippedCount; }
+    // Records that could not be parsed or failed validation.
+    public synchronized long getFailed() { return failedCount; }
+    public synchronized long getElapsedNanos() { return elapsedNanos; }
+
+    // Time the stage's threads spent working, summed over its threads and excluding waits on
+    // the queues between stages.
+    public synchronized long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    public synchronized double getRecordsPerSecond() {
+        return elapsedNanos > 0 ? recordsRead * 1e9 / elapsedNanos : 0;
+    }
+
+    public synchronized List<ImportReport.ImportError> getSkippedRecords() {
+        return sorted(skipped);
+    }
+
+    public synchronized List<ImportReport.ImportError> getFailures() {
+        return sorted(failures);
+    }
+
+    private static List<ImportReport.ImportError> sorted(List<ImportReport.ImportError> errors) {
+        List<ImportReport.ImportError> copy = new ArrayList<>(errors);
+        copy.sort(Comparator.comparingLong(ImportReport.ImportError::getLineNumber));
+        return Collections.unmodifiableList(copy);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Import of %s: %d records in %.2fs (%.0f records/s)%n",
+                source.getFileName(), recordsRead, elapsedNanos / 1e9, getRecordsPerSecond()));
+        sb.append(String.format("  Inserted: %d, Skipped: %d, Failed: %d%n", inserted, skippedCount, failedCount));
+        for (Stage stage : Stage.values()) {
+            sb.append(String.format("  %-8s %8.1f ms busy%n", stage, stageNanos[stage.ordinal()] / 1e6));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,627 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.Mutation;
+import edu.ccrm.service.MutationLog;
+import edu.ccrm.service.StudentService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Write-ahead journal of every state change, in numbered segment files under one directory.
+// Appending only encodes the record into an in-memory buffer; a single flusher thread swaps
+// that buffer out, writes it with one call and, depending on the fsync policy, forces it, so
+// however many threads are waiting, one write and one force cover all of their records.
+//
+// Segment layout: "CCRMJRNL", varint version, then records of
+//   [payload length: 4 bytes][CRC32 of payload: 4 bytes][payload]
+// A crash can leave a torn record at the end of the newest segment; replay stops there and
+// truncates it. Each run appends to a new segment, and a checkpoint deletes the segments
+// sealed before its snapshot was taken.
+public class Journal implements MutationLog, Closeable {
+    public enum FsyncPolicy {
+        // A change is acknowledged once it has been forced to disk.
+        ALWAYS,
+        // Acknowledged once written to the OS, which is forced at least once per interval.
+        INTERVAL,
+        // Acknowledged once written to the OS, which flushes when it likes.
+        NEVER
+    }
+
+    // Version 2 stores course capacities shifted by one; version 1 segments still replay.
+    public static final int FORMAT_VERSION = 2;
+
+    private static final byte[] MAGIC = {'C', 'C', 'R', 'M', 'J', 'R', 'N', 'L'};
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER = 8;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final ReentrantLock lock;
+    private final Condition work;
+    private final Condition flushed;
+    private final CRC32 crc;
+    private final Thread flusher;
+    private final long firstSegment;
+    private RecordEncoder pending;
+    private RecordEncoder spare;
+    private FileChannel channel;
+    private long segment;
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean rotateRequested;
+    private boolean closed;
+    private IOException failure;
+    private long records;
+    private long writes;
+    private long forces;
+
+    @FunctionalInterface
+    public interface Checkpoint<T> {
+        T save() throws IOException;
+    }
+
+    public static class ReplayResult {
+        private final int segments;
+        private final long records;
+        private final long truncatedBytes;
+        private final long elapsedNanos;
+
+        public ReplayResult(int segments, long records, long truncatedBytes, long elapsedNanos) {
+            this.segments = segments;
+            this.records = records;
+            this.truncatedBytes = truncatedBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getSegmentCount() { return segments; }
+        public long getRecordCount() { return records; }
+        // Bytes of torn or damaged records cut from segment ends.
+        public long getTruncatedBytes() { return truncatedBytes; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("Replay[%d records from %d segments, %d bytes truncated, %.0f ms]",
+                    records, segments, truncatedBytes, elapsedNanos / 1e6);
+        }
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+        private long fsyncIntervalMillis = 100;
+
+        public Builder(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "Journal directory cannot be null");
+        }
+
+        public Builder fsync(FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = Objects.requireNonNull(fsyncPolicy, "Fsync policy cannot be null");
+            return this;
+        }
+
+        // Only used by FsyncPolicy.INTERVAL.
+        public Builder fsyncInterval(long millis) {
+            if (millis <= 0) throw new IllegalArgumentException("Fsync interval must be positive");
+            this.fsyncIntervalMillis = millis;
+            return this;
+        }
+
+        public Journal open() throws IOException {
+            return new Journal(this);
+        }
+    }
+
+    private Journal(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.fsyncPolicy = builder.fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.fsyncIntervalMillis);
+        this.lock = new ReentrantLock();
+        this.work = lock.newCondition();
+        this.flushed = lock.newCondition();
+        this.crc = new CRC32();
+        this.pending = new RecordEncoder(64 * 1024);
+        this.spare = new RecordEncoder(64 * 1024);
+
+        Files.createDirectories(directory);
+        List<Long> existing = listSegments();
+        this.firstSegment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        this.segment = firstSegment;
+        this.channel = createSegment(segment);
+
+        this.flusher = new Thread(this::flushLoop, "journal-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public long append(Mutation mutation) {
+        lock.lock();
+        try {
+            checkOpen();
+            int start = pending.size();
+            pending.fixed32(0);
+            pending.fixed32(0);
+            encode(mutation, pending);
+            int length = pending.size() - start - RECORD_HEADER;
+            crc.reset();
+            crc.update(pending.array(), start + RECORD_HEADER, length);
+            pending.putInt(start, length);
+            pending.putInt(start + 4, (int) crc.getValue());
+
+            records++;
+            // An empty buffer means the flusher may be idle; otherwise it is already due to run.
+            if (start == 0) {
+                work.signal();
+            }
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal write failed", failure);
+                }
+                work.signal();
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Seals the current segment, runs the snapshot, then deletes the sealed segments: their
+    // changes were all applied before the snapshot started, so it covers them. Changes made
+    // while the snapshot runs go to the new segment and are replayed on top of it; replay is
+    // idempotent, so any the snapshot already reflects do no harm.
+    public synchronized <T> T checkpoint(Checkpoint<T> snapshot) throws IOException {
+        long sealed = rotate();
+        T result = snapshot.save();
+        for (long number : listSegments()) {
+            if (number <= sealed) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+        return result;
+    }
+
+    // Applies the segments left by earlier runs, oldest first. Call once, after restoring the
+    // snapshot and before the services are given this journal.
+    public ReplayResult replay(StudentService studentService, CourseService courseService,
+                               EnrollmentService enrollmentService) throws IOException {
+        long start = System.nanoTime();
+        int segments = 0;
+        long replayed = 0;
+        long truncated = 0;
+        for (long number : listSegments()) {
+            if (number >= firstSegment) {
+                break;
+            }
+            segments++;
+            Path path = segmentPath(number);
+            long goodEnd;
+            long size;
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                size = in.size();
+                MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int version = readHeader(buffer, path);
+                goodEnd = buffer.position();
+                while (buffer.remaining() >= RECORD_HEADER) {
+                    int length = buffer.getInt();
+                    int expected = buffer.getInt();
+                    if (length < 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    ByteBuffer payload = buffer.slice();
+                    payload.limit(length);
+                    CRC32 check = new CRC32();
+                    check.update(payload.duplicate());
+                    if ((int) check.getValue() != expected) {
+                        break;
+                    }
+                    Mutation mutation = decode(new RecordDecoder(payload, path), version);
+                    switch (mutation.getType()) {
+                        case ADD_STUDENT, UPDATE_STUDENT, STUDENT_STATUS -> studentService.replay(mutation);
+                        case ADD_COURSE, UPDATE_COURSE -> courseService.replay(mutation);
+                        default -> enrollmentService.replay(mutation);
+                    }
+                    replayed++;
+                    buffer.position(buffer.position() + length);
+                    goodEnd = buffer.position();
+                }
+            }
+            if (goodEnd < size) {
+                try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    out.truncate(goodEnd);
+                    out.force(true);
+                }
+                truncated += size - goodEnd;
+            }
+        }
+        return new ReplayResult(segments, replayed, truncated, System.nanoTime() - start);
+    }
+
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writes and forces issued so far; far fewer than records under concurrent load.
+    public long getWriteCount() {
+        lock.lock();
+        try {
+            return writes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getForceCount() {
+        lock.lock();
+        try {
+            return forces;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Flushes and forces whatever is pending, then stops the flusher.
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            work.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Returns the number of the segment that was sealed.
+    private long rotate() throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            long sealed = segment;
+            rotateRequested = true;
+            work.signal();
+            while (segment == sealed) {
+                if (failure != null) {
+                    throw failure;
+                }
+                flushed.awaitUninterruptibly();
+            }
+            return sealed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    private void flushLoop() {
+        long lastForce = System.nanoTime();
+        boolean unforced = false;
+        for (;;) {
+            RecordEncoder batch;
+            long batchEnd;
+            boolean rotate;
+            boolean stop;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !rotateRequested && !closed) {
+                    if (fsyncPolicy == FsyncPolicy.INTERVAL && unforced) {
+                        long wait = fsyncIntervalNanos - (System.nanoTime() - lastForce);
+                        if (wait <= 0) {
+                            break;
+                        }
+                        try {
+                            work.awaitNanos(wait);
+                        } catch (InterruptedException e) {
+                            // Only close() stops the flusher.
+                        }
+                    } else {
+                        work.awaitUninterruptibly();
+                    }
+                }
+                batch = pending;
+                pending = spare;
+                spare = null;
+                batchEnd = appendedSequence;
+                rotate = rotateRequested;
+                stop = closed;
+            } finally {
+                lock.unlock();
+            }
+
+            long nextSegment = segment + 1;
+            boolean forced = false;
+            try {
+                if (batch.size() > 0) {
+                    writeFully(channel, batch.toBuffer());
+                    unforced = true;
+                }
+                if (unforced && (fsyncPolicy == FsyncPolicy.ALWAYS || rotate || stop
+                        || (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForce >= fsyncIntervalNanos))) {
+                    channel.force(false);
+                    lastForce = System.nanoTime();
+                    unforced = false;
+                    forced = true;
+                }
+                if (rotate) {
+                    channel.close();
+                    channel = createSegment(nextSegment);
+                }
+                if (stop) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failed.
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                if (batch.size() > 0) {
+                    writes++;
+                }
+                if (forced) {
+                    forces++;
+                }
+                batch.reset();
+                spare = batch;
+                durableSequence = batchEnd;
+                if (rotate) {
+                    segment = nextSegment;
+                    rotateRequested = false;
+                }
+                flushed.signalAll();
+                if (stop) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private FileChannel createSegment(long number) throws IOException {
+        FileChannel created = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        RecordEncoder header = new RecordEncoder(16);
+        header.bytes(MAGIC);
+        header.varint(FORMAT_VERSION);
+        writeFully(created, header.toBuffer());
+        created.force(true);
+        forceDirectory();
+        return created;
+    }
+
+    // Makes the new segment's directory entry durable. Not every platform can open a
+    // directory for this, and there it is left to the file system.
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Best effort.
+        }
+    }
+
+    // Returns the segment's format version, leaving the buffer at its first record.
+    private int readHeader(ByteBuffer buffer, Path path) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() < MAGIC.length) {
+            throw RecordDecoder.corrupt(path, "not a journal segment");
+        }
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw RecordDecoder.corrupt(path, "not a journal segment");
+        }
+        int version = new RecordDecoder(buffer, path).varint();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported journal version " + version + " in " + path);
+        }
+        return version;
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours.
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void encode(Mutation mutation, RecordEncoder out) {
+        out.varint(mutation.getType().ordinal());
+        switch (mutation.getType()) {
+            case ADD_STUDENT, UPDATE_STUDENT -> {
+                Student student = mutation.getStudent();
+                out.string(student.getId());
+                out.string(student.getRegNo());
+                out.string(student.getFullName().getFirstName());
+                out.string(student.getFullName().getLastName());
+                out.string(student.getEmail());
+                out.string(student.getDepartment());
+                out.varint(student.getStatus().ordinal());
+                out.time(student.getEnrollmentDate());
+                out.time(student.getCreatedAt());
+                out.time(student.getUpdatedAt());
+                Set<String> courses = student.getEnrolledCourses();
+                out.varint(courses.size());
+                for (String code : courses) {
+                    out.string(code);
+                }
+            }
+            case STUDENT_STATUS -> {
+                out.string(mutation.getStudentId());
+                out.varint(mutation.getStatus().ordinal());
+            }
+            case ADD_COURSE, UPDATE_COURSE -> {
+                Course course = mutation.getCourse();
+                out.string(course.getCode());
+                out.string(course.getTitle());
+                out.varint(course.getCredits());
+                out.string(course.getInstructor());
+                out.string(course.getDepartment());
+                out.varint(course.getSemester().ordinal());
+                out.varint(course.isActive() ? 1 : 0);
+                out.capacity(course.getCapacity());
+                out.time(course.getCreatedAt());
+                out.time(course.getUpdatedAt());
+            }
+            case ENROLL -> {
+                out.string(mutation.getStudentId());
+                out.string(mutation.getCourseCode());
+                out.varint(mutation.getCredits());
+                out.time(mutation.getTime());
+            }
+            case WAITLIST, UNENROLL -> {
+                out.string(mutation.getStudentId());
+                out.string(mutation.getCourseCode());
+            }
+            case GRADE -> {
+                out.string(mutation.getStudentId());
+                out.string(mutation.getCourseCode());
+                out.fixed64(Double.doubleToLongBits(mutation.getMarks()));
+                out.time(mutation.getTime());
+            }
+        }
+    }
+
+    private static Mutation decode(RecordDecoder in, int version) throws IOException {
+        Mutation.Type type = in.constant(Mutation.Type.values());
+        switch (type) {
+            case ADD_STUDENT, UPDATE_STUDENT -> {
+                Student.Builder builder = new Student.Builder(in.string(), in.string())
+                        .fullName(new Name(in.string(), in.string()))
+                        .email(in.string())
+                        .department(in.string())
+                        .status(in.constant(Student.Status.values()))
+                        .enrollmentDate(in.time())
+                        .createdAt(in.time())
+                        .updatedAt(in.time());
+                int count = in.count();
+                Set<String> courses = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    courses.add(in.string());
+                }
+                Student student = builder.enrolledCourses(courses).build();
+                return type == Mutation.Type.ADD_STUDENT ? Mutation.addStudent(student) : Mutation.updateStudent(student);
+            }
+            case STUDENT_STATUS -> {
+                return Mutation.studentStatus(in.string(), in.constant(Student.Status.values()));
+            }
+            case ADD_COURSE, UPDATE_COURSE -> {
+                Course course = new Course.Builder(in.string(), in.string())
+                        .credits(in.varint())
+                        .instructor(in.string())
+                        .department(in.string())
+                        .semester(in.constant(Semester.values()))
+                        .active(in.varint() != 0)
+                        .capacity(in.capacity(version))
+                        .createdAt(in.time())
+                        .updatedAt(in.time())
+                        .build();
+                return type == Mutation.Type.ADD_COURSE ? Mutation.addCourse(course) : Mutation.updateCourse(course);
+            }
+            case ENROLL -> {
+                return Mutation.enroll(in.string(), in.string(), in.varint(), in.time());
+            }
+            case WAITLIST -> {
+                return Mutation.waitlist(in.string(), in.string());
+            }
+            case UNENROLL -> {
+                return Mutation.unenroll(in.string(), in.string());
+            }
+            default -> {
+                return Mutation.grade(in.string(), in.string(), in.fixedDouble(), in.time());
+            }
+        }
+    }
+}
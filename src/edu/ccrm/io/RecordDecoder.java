@@ -0,0 +1,149 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Reads what RecordEncoder writes, turning truncation and out-of-range values into
+// IOExceptions that name the file.
+final class RecordDecoder {
+    private final ByteBuffer in;
+    private final Path path;
+
+    RecordDecoder(ByteBuffer in, Path path) {
+        this.in = in;
+        this.path = path;
+    }
+
+    long varlong() throws IOException {
+        try {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw corrupt(path, "record runs past its end");
+        }
+        throw corrupt(path, "malformed varint");
+    }
+
+    int varint() throws IOException {
+        long value = varlong();
+        if (value > Integer.MAX_VALUE) {
+            throw corrupt(path, "value out of range");
+        }
+        return (int) value;
+    }
+
+    // A length or element count, which can never exceed the bytes left to read.
+    int count() throws IOException {
+        int count = varint();
+        if (count > in.remaining()) {
+            throw corrupt(path, "count " + count + " exceeds remaining bytes");
+        }
+        return count;
+    }
+
+    long fixed64() throws IOException {
+        try {
+            return in.getLong();
+        } catch (BufferUnderflowException e) {
+            throw corrupt(path, "record runs past its end");
+        }
+    }
+
+    void bytes(byte[] target, int length) throws IOException {
+        try {
+            in.get(target, 0, length);
+        } catch (BufferUnderflowException e) {
+            throw corrupt(path, "record runs past its end");
+        }
+    }
+
+    int ref(String[] strings) throws IOException {
+        int ref = varint();
+        if (ref <= 0 || ref >= strings.length) {
+            throw corrupt(path, "bad string reference " + ref);
+        }
+        return ref;
+    }
+
+    String string(String[] strings) throws IOException {
+        int ref = varint();
+        if (ref >= strings.length) {
+            throw corrupt(path, "bad string reference " + ref);
+        }
+        return strings[ref];
+    }
+
+    // A string written inline by RecordEncoder.string.
+    String string() throws IOException {
+        int length = varint();
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > in.remaining()) {
+            throw corrupt(path, "string runs past its end");
+        }
+        byte[] bytes = new byte[length - 1];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    double fixedDouble() throws IOException {
+        return Double.longBitsToDouble(fixed64());
+    }
+
+    <T> T object(T[] byRef, String kind) throws IOException {
+        int ref = varint();
+        if (ref <= 0 || ref >= byRef.length || byRef[ref] == null) {
+            throw corrupt(path, "reference to unknown " + kind);
+        }
+        return byRef[ref];
+    }
+
+    <E extends Enum<E>> E constant(E[] values) throws IOException {
+        int ordinal = varint();
+        if (ordinal >= values.length) {
+            throw corrupt(path, "bad enum ordinal " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    // Reads what RecordEncoder.capacity writes. Format version 1 of the snapshot and journal
+    // stored the capacity itself, with 0 meaning unlimited.
+    int capacity(int formatVersion) throws IOException {
+        int value = varint();
+        if (formatVersion == 1) {
+            return value == 0 ? Course.UNLIMITED_CAPACITY : value;
+        }
+        return value - 1;
+    }
+
+    LocalDateTime time() throws IOException {
+        long encoded = varlong();
+        if (encoded == 0) {
+            return null;
+        }
+        long zigzag = encoded - 1;
+        long seconds = (zigzag >>> 1) ^ -(zigzag & 1);
+        int nanos = varint();
+        if (nanos > 999_999_999) {
+            throw corrupt(path, "bad timestamp");
+        }
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    static IOException corrupt(Path path, String detail) {
+        return new IOException("Corrupt record in " + path + ": " + detail);
+    }
+}
@@ -0,0 +1,103 @@
+package edu.ccrm.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Growable byte buffer for the binary snapshot and journal formats: unsigned LEB128 varints,
+// big-endian fixed-width values and length-prefixed UTF-8 strings.
+final class RecordEncoder {
+    private byte[] buffer;
+    private int size;
+
+    RecordEncoder(int capacity) {
+        this.buffer = new byte[Math.max(16, capacity)];
+    }
+
+    void varint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    void fixed32(int value) {
+        ensure(4);
+        putInt(size, value);
+        size += 4;
+    }
+
+    void fixed64(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    // Overwrites four bytes already written, for lengths and checksums known only afterwards.
+    void putInt(int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+    }
+
+    // 0 for null, otherwise the zig-zagged epoch second plus one, then the nanoseconds.
+    void time(LocalDateTime time) {
+        if (time == null) {
+            varint(0);
+            return;
+        }
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        varint(((seconds << 1) ^ (seconds >> 63)) + 1);
+        varint(time.getNano());
+    }
+
+    // A course capacity plus one, so that Course.UNLIMITED_CAPACITY is 0.
+    void capacity(int capacity) {
+        varint(capacity + 1L);
+    }
+
+    // 0 for null, otherwise the UTF-8 length plus one, then the bytes.
+    void string(String value) {
+        if (value == null) {
+            varint(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length + 1L);
+        bytes(bytes);
+    }
+
+    void bytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte[] array() {
+        return buffer;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    ByteBuffer toBuffer() {
+        return ByteBuffer.wrap(buffer, 0, size);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+        }
+    }
+}
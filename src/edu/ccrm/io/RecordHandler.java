@@ -0,0 +1,7 @@
+package edu.ccrm.io;
+
+@FunctionalInterface
+public interface RecordHandler<T> {
+    // A thrown exception rejects just this record; it is reported against its line.
+    void handle(T record) throws Exception;
+}
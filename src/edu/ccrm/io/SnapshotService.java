@@ -0,0 +1,496 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Binary image of every student, course, instructor, enrollment, grade and waitlist. Each
+// distinct string is stored once in a dictionary section and referenced by index, integers
+// are varints, and every section carries a CRC32 of its payload. Loading hands the decoded
+// objects to the services' restore methods, which skip validation and rebuild their indexes
+// in bulk.
+//
+// Layout: "CCRMSNAP", varint version, then sections of
+//   [type: 1 byte][payload length: 8 bytes][payload][CRC32 of payload: 4 bytes]
+// in the order STRINGS, INSTRUCTORS, COURSES, STUDENTS, ENROLLMENTS, WAITLISTS, END.
+public class SnapshotService {
+    // Version 2 stores course capacities shifted by one; version 1 files still load.
+    public static final int FORMAT_VERSION = 2;
+
+    private static final byte[] MAGIC = {'C', 'C', 'R', 'M', 'S', 'N', 'A', 'P'};
+    private static final byte STRINGS = 1;
+    private static final byte INSTRUCTORS = 2;
+    private static final byte COURSES = 3;
+    private static final byte STUDENTS = 4;
+    private static final byte ENROLLMENTS = 5;
+    private static final byte WAITLISTS = 6;
+    private static final byte END = 0;
+    private static final int SECTION_HEADER = 9;
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+
+    public static class SnapshotInfo {
+        private final Path path;
+        private final int students;
+        private final int courses;
+        private final int enrollments;
+        private final List<Instructor> instructors;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        public SnapshotInfo(Path path, int students, int courses, int enrollments,
+                            List<Instructor> instructors, long bytes, long elapsedNanos) {
+            this.path = path;
+            this.students = students;
+            this.courses = courses;
+            this.enrollments = enrollments;
+            this.instructors = instructors;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getPath() { return path; }
+        public int getStudentCount() { return students; }
+        public int getCourseCount() { return courses; }
+        public int getEnrollmentCount() { return enrollments; }
+        // Instructors have no service of their own, so they travel with the snapshot.
+        public List<Instructor> getInstructors() { return instructors; }
+        public long getBytes() { return bytes; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("Snapshot[%s: %d students, %d courses, %d instructors, %d enrollments, %d bytes, %.0f ms]",
+                    path.getFileName(), students, courses, instructors.size(), enrollments, bytes, elapsedNanos / 1e6);
+        }
+    }
+
+    public SnapshotService(StudentService studentService, CourseService courseService,
+                           EnrollmentService enrollmentService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+    }
+
+    // Writes to a temporary file that is forced to disk and then renamed over the target, so
+    // a crash mid-save leaves the previous snapshot intact. The services may change while it
+    // runs, so enrollments and waitlists are read before the students and courses they refer
+    // to: those are never removed, so everything an enrollment names is in the later read.
+    public SnapshotInfo save(Path path, Collection<Instructor> instructors) throws IOException {
+        long start = System.nanoTime();
+        List<EnrollmentService.EnrollmentRecord> enrollments = enrollmentService.getEnrollmentRecords();
+        Map<String, List<String>> waitlists = enrollmentService.getWaitlists();
+        List<Student> students = studentService.getAllStudents();
+        List<Course> courses = courseService.getAllCourses();
+
+        Dictionary dictionary = new Dictionary();
+        RecordEncoder instructorSection = encodeInstructors(instructors, dictionary);
+        RecordEncoder courseSection = encodeCourses(courses, dictionary);
+        RecordEncoder studentSection = encodeStudents(students, dictionary);
+        RecordEncoder enrollmentSection = encodeEnrollments(enrollments, dictionary);
+        RecordEncoder waitlistSection = encodeWaitlists(waitlists, dictionary);
+        RecordEncoder stringSection = dictionary.encode();
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long bytes;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            RecordEncoder header = new RecordEncoder(16);
+            header.bytes(MAGIC);
+            header.varint(FORMAT_VERSION);
+            writeFully(channel, header.toBuffer());
+
+            writeSection(channel, STRINGS, stringSection);
+            writeSection(channel, INSTRUCTORS, instructorSection);
+            writeSection(channel, COURSES, courseSection);
+            writeSection(channel, STUDENTS, studentSection);
+            writeSection(channel, ENROLLMENTS, enrollmentSection);
+            writeSection(channel, WAITLISTS, waitlistSection);
+            writeSection(channel, END, new RecordEncoder(0));
+            channel.force(true);
+            bytes = channel.size();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return new SnapshotInfo(path, students.size(), courses.size(), enrollments.size(),
+                new ArrayList<>(instructors), bytes, System.nanoTime() - start);
+    }
+
+    // Restores into empty services. Every section's checksum is verified before anything is
+    // handed to a service, so a damaged file leaves the services untouched.
+    public SnapshotInfo load(Path path) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(size, MAGIC.length + 5));
+            readFully(channel, header, 0);
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            if (header.remaining() < MAGIC.length) {
+                throw corrupt(path, "file too short");
+            }
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw corrupt(path, "not a snapshot file");
+            }
+            RecordDecoder versionDecoder = new RecordDecoder(header, path);
+            int version = versionDecoder.varint();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + path);
+            }
+
+            Map<Byte, ByteBuffer> sections = new HashMap<>();
+            long position = header.position();
+            for (;;) {
+                if (position + SECTION_HEADER > size) {
+                    throw corrupt(path, "truncated section header");
+                }
+                ByteBuffer sectionHeader = ByteBuffer.allocate(SECTION_HEADER);
+                readFully(channel, sectionHeader, position);
+                sectionHeader.flip();
+                byte type = sectionHeader.get();
+                long length = sectionHeader.getLong();
+                if (length < 0 || length > Integer.MAX_VALUE || position + SECTION_HEADER + length + 4 > size) {
+                    throw corrupt(path, "bad length for section " + type);
+                }
+                MappedByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position + SECTION_HEADER, length + 4);
+                int expected = payload.getInt((int) length);
+                payload.limit((int) length);
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != expected) {
+                    throw corrupt(path, "checksum mismatch in section " + type);
+                }
+                if (type == END) {
+                    break;
+                }
+                sections.put(type, payload);
+                position += SECTION_HEADER + length + 4;
+            }
+
+            String[] strings = decodeStrings(section(sections, STRINGS, path), path);
+            List<Instructor> instructors = decodeInstructors(section(sections, INSTRUCTORS, path), strings, path);
+            Course[] courseByRef = new Course[strings.length];
+            List<Course> courses = decodeCourses(section(sections, COURSES, path), strings, courseByRef, version, path);
+            Student[] studentByRef = new Student[strings.length];
+            List<Student> students = decodeStudents(section(sections, STUDENTS, path), strings, studentByRef, path);
+            List<EnrollmentService.EnrollmentRecord> enrollments =
+                    decodeEnrollments(section(sections, ENROLLMENTS, path), studentByRef, courseByRef, path);
+            Map<String, List<String>> waitlists = decodeWaitlists(section(sections, WAITLISTS, path), strings, path);
+
+            studentService.restore(students);
+            courseService.restore(courses);
+            enrollmentService.restore(enrollments, waitlists);
+
+            return new SnapshotInfo(path, students.size(), courses.size(), enrollments.size(),
+                    instructors, size, System.nanoTime() - start);
+        }
+    }
+
+    private static RecordEncoder encodeInstructors(Collection<Instructor> instructors, Dictionary dictionary) {
+        RecordEncoder out = new RecordEncoder(64 * instructors.size() + 16);
+        out.varint(instructors.size());
+        for (Instructor instructor : instructors) {
+            out.varint(dictionary.ref(instructor.getId()));
+            out.varint(dictionary.ref(instructor.getFullName().getFirstName()));
+            out.varint(dictionary.ref(instructor.getFullName().getLastName()));
+            out.varint(dictionary.ref(instructor.getEmail()));
+            out.varint(dictionary.ref(instructor.getDepartment()));
+            out.time(instructor.getHireDate());
+            Set<String> assigned = instructor.getAssignedCourses();
+            out.varint(assigned.size());
+            for (String code : assigned) {
+                out.varint(dictionary.ref(code));
+            }
+        }
+        return out;
+    }
+
+    private static RecordEncoder encodeCourses(List<Course> courses, Dictionary dictionary) {
+        RecordEncoder out = new RecordEncoder(48 * courses.size() + 16);
+        out.varint(courses.size());
+        for (Course course : courses) {
+            out.varint(dictionary.ref(course.getCode()));
+            out.varint(dictionary.ref(course.getTitle()));
+            out.varint(course.getCredits());
+            out.varint(dictionary.ref(course.getInstructor()));
+            out.varint(dictionary.ref(course.getDepartment()));
+            out.varint(course.getSemester().ordinal());
+            out.varint(course.isActive() ? 1 : 0);
+            out.capacity(course.getCapacity());
+            out.time(course.getCreatedAt());
+            out.time(course.getUpdatedAt());
+        }
+        return out;
+    }
+
+    private static RecordEncoder encodeStudents(List<Student> students, Dictionary dictionary) {
+        RecordEncoder out = new RecordEncoder(64 * students.size() + 16);
+        out.varint(students.size());
+        for (Student student : students) {
+            out.varint(dictionary.ref(student.getId()));
+            out.varint(dictionary.ref(student.getRegNo()));
+            out.varint(dictionary.ref(student.getFullName().getFirstName()));
+            out.varint(dictionary.ref(student.getFullName().getLastName()));
+            out.varint(dictionary.ref(student.getEmail()));
+            out.varint(dictionary.ref(student.getDepartment()));
+            out.varint(student.getStatus().ordinal());
+            out.time(student.getEnrollmentDate());
+            out.time(student.getCreatedAt());
+            out.time(student.getUpdatedAt());
+            Set<String> courses = student.getEnrolledCourses();
+            out.varint(courses.size());
+            for (String code : courses) {
+                out.varint(dictionary.ref(code));
+            }
+        }
+        return out;
+    }
+
+    private static RecordEncoder encodeEnrollments(List<EnrollmentService.EnrollmentRecord> records, Dictionary dictionary) {
+        RecordEncoder out = new RecordEncoder(32 * records.size() + 16);
+        out.varint(records.size());
+        for (EnrollmentService.EnrollmentRecord record : records) {
+            Enrollment enrollment = record.getEnrollment();
+            out.varint(dictionary.ref(enrollment.getStudent().getId()));
+            out.varint(dictionary.ref(enrollment.getCourse().getCode()));
+            out.time(enrollment.getEnrollmentDate());
+            out.varint(record.getChargedCredits());
+            if (enrollment.hasGrade()) {
+                out.varint(1);
+                out.fixed64(Double.doubleToLongBits(enrollment.getMarks()));
+                out.time(enrollment.getGradeDate());
+            } else {
+                out.varint(0);
+            }
+        }
+        return out;
+    }
+
+    private static RecordEncoder encodeWaitlists(Map<String, List<String>> waitlists, Dictionary dictionary) {
+        RecordEncoder out = new RecordEncoder(256);
+        out.varint(waitlists.size());
+        for (Map.Entry<String, List<String>> waitlist : waitlists.entrySet()) {
+            out.varint(dictionary.ref(waitlist.getKey()));
+            out.varint(waitlist.getValue().size());
+            for (String studentId : waitlist.getValue()) {
+                out.varint(dictionary.ref(studentId));
+            }
+        }
+        return out;
+    }
+
+    private static String[] decodeStrings(ByteBuffer section, Path path) throws IOException {
+        RecordDecoder in = new RecordDecoder(section, path);
+        int count = in.count();
+        // Reference 0 stands for null.
+        String[] strings = new String[count + 1];
+        byte[] scratch = new byte[64];
+        for (int i = 1; i <= count; i++) {
+            int length = in.count();
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length << 1)];
+            }
+            in.bytes(scratch, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static List<Instructor> decodeInstructors(ByteBuffer section, String[] strings, Path path) throws IOException {
+        RecordDecoder in = new RecordDecoder(section, path);
+        int count = in.count();
+        List<Instructor> instructors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = in.string(strings);
+            Name name = new Name(in.string(strings), in.string(strings));
+            String email = in.string(strings);
+            String department = in.string(strings);
+            LocalDateTime hireDate = in.time();
+            int assignedCount = in.count();
+            Set<String> assigned = new HashSet<>();
+            for (int j = 0; j < assignedCount; j++) {
+                assigned.add(in.string(strings));
+            }
+            instructors.add(new Instructor(id, name, email, department, hireDate, assigned));
+        }
+        return instructors;
+    }
+
+    private static List<Course> decodeCourses(ByteBuffer section, String[] strings, Course[] byRef,
+                                              int version, Path path) throws IOException {
+        RecordDecoder in = new RecordDecoder(section, path);
+        int count = in.count();
+        List<Course> courses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int codeRef = in.ref(strings);
+            Course course = new Course.Builder(strings[codeRef], in.string(strings))
+                    .credits(in.varint())
+                    .instructor(in.string(strings))
+                    .department(in.string(strings))
+                    .semester(in.constant(Semester.values()))
+                    .active(in.varint() != 0)
+                    .capacity(in.capacity(version))
+                    .createdAt(in.time())
+                    .updatedAt(in.time())
+                    .build();
+            byRef[codeRef] = course;
+            courses.add(course);
+        }
+        return courses;
+    }
+
+    private static List<Student> decodeStudents(ByteBuffer section, String[] strings, Student[] byRef,
+                                                Path path) throws IOException {
+        RecordDecoder in = new RecordDecoder(section, path);
+        int count = in.count();
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int idRef = in.ref(strings);
+            Student.Builder builder = new Student.Builder(strings[idRef], in.string(strings))
+                    .fullName(new Name(in.string(strings), in.string(strings)))
+                    .email(in.string(strings))
+                    .department(in.string(strings))
+                    .status(in.constant(Student.Status.values()))
+                    .enrollmentDate(in.time())
+                    .createdAt(in.time())
+                    .updatedAt(in.time());
+            int courseCount = in.count();
+            Set<String> enrolled = new HashSet<>();
+            for (int j = 0; j < courseCount; j++) {
+                enrolled.add(in.string(strings));
+            }
+            Student student = builder.enrolledCourses(enrolled).build();
+            byRef[idRef] = student;
+            students.add(student);
+        }
+        return students;
+    }
+
+    private static List<EnrollmentService.EnrollmentRecord> decodeEnrollments(
+            ByteBuffer section, Student[] studentByRef, Course[] courseByRef, Path path) throws IOException {
+        RecordDecoder in = new RecordDecoder(section, path);
+        int count = in.count();
+        List<EnrollmentService.EnrollmentRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Student student = in.object(studentByRef, "student");
+            Course course = in.object(courseByRef, "course");
+            Enrollment enrollment = new Enrollment(student, course, in.time());
+            int credits = in.varint();
+            if (in.varint() != 0) {
+                double marks = Double.longBitsToDouble(in.fixed64());
+                enrollment.setGrade(marks, in.time());
+            }
+            records.add(new EnrollmentService.EnrollmentRecord(enrollment, credits));
+        }
+        return records;
+    }
+
+    private static Map<String, List<String>> decodeWaitlists(ByteBuffer section, String[] strings,
+                                                             Path path) throws IOException {
+        RecordDecoder in = new RecordDecoder(section, path);
+        int count = in.count();
+        Map<String, List<String>> waitlists = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String code = in.string(strings);
+            int size = in.count();
+            List<String> studentIds = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                studentIds.add(in.string(strings));
+            }
+            waitlists.put(code, studentIds);
+        }
+        return waitlists;
+    }
+
+    private static ByteBuffer section(Map<Byte, ByteBuffer> sections, byte type, Path path) throws IOException {
+        ByteBuffer section = sections.get(type);
+        if (section == null) {
+            throw corrupt(path, "missing section " + type);
+        }
+        return section;
+    }
+
+    private static void writeSection(FileChannel channel, byte type, RecordEncoder payload) throws IOException {
+        ByteBuffer body = payload.toBuffer();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER);
+        header.put(type).putLong(body.remaining()).flip();
+        ByteBuffer trailer = ByteBuffer.allocate(4);
+        trailer.putInt((int) crc.getValue()).flip();
+
+        writeFully(channel, header);
+        writeFully(channel, body);
+        writeFully(channel, trailer);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+
+    private static IOException corrupt(Path path, String detail) {
+        return new IOException("Corrupt snapshot " + path + ": " + detail);
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int ref(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                strings.add(value);
+                ref = strings.size();
+                refs.put(value, ref);
+            }
+            return ref;
+        }
+
+        RecordEncoder encode() {
+            RecordEncoder out = new RecordEncoder(16 * strings.size() + 16);
+            out.varint(strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.varint(bytes.length);
+                out.bytes(bytes);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.TranscriptService;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+
+// Prints the transcripts of a whole cohort at once, such as a graduating class. Chunks of
+// students are rendered on the common fork/join pool, each chunk into one reused buffer, and
+// at most a few chunks per worker are in flight, so memory depends on the pool rather than on
+// the size of the cohort. All transcripts carry the same generated time.
+public class TranscriptExporter {
+    public static final int CHUNK_STUDENTS = 64;
+
+    public enum Layout {
+        // One <student id>.txt per student in the target directory.
+        FILES,
+        // One zip archive with a <student id>.txt entry per student, in cohort order.
+        ARCHIVE
+    }
+
+    public static class CohortReport {
+        private final Path path;
+        private final int transcripts;
+        private final long bytes;
+        private final long storedBytes;
+        private final long elapsedNanos;
+
+        public CohortReport(Path path, int transcripts, long bytes, long storedBytes, long elapsedNanos) {
+            this.path = path;
+            this.transcripts = transcripts;
+            this.bytes = bytes;
+            this.storedBytes = storedBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getPath() { return path; }
+        public int getTranscriptCount() { return transcripts; }
+        public long getBytes() { return bytes; }
+        // Bytes written to disk, which for an archive is after compression.
+        public long getStoredBytes() { return storedBytes; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getTranscriptsPerSecond() {
+            return elapsedNanos > 0 ? transcripts / (elapsedNanos / 1e9) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cohort[%d transcripts, %d bytes, %d stored, %d ms, %.0f/s]",
+                    transcripts, bytes, storedBytes, elapsedNanos / 1_000_000, getTranscriptsPerSecond());
+        }
+    }
+
+    private final TranscriptService transcriptService;
+
+    public TranscriptExporter(TranscriptService transcriptService) {
+        this.transcriptService = transcriptService;
+    }
+
+    // Students that pass the filter, in the order given, to a directory of files or to one
+    // archive at target. An archive is written to a temporary file and moved into place whole.
+    public CohortReport exportCohort(Collection<Student> students, Predicate<Student> filter, Path target,
+                                     Layout layout) throws IOException {
+        long start = System.nanoTime();
+        List<Student> cohort = students.stream().filter(filter).toList();
+        LocalDateTime generated = LocalDateTime.now();
+
+        if (layout == Layout.FILES) {
+            Files.createDirectories(target);
+            long[] bytes = new long[1];
+            run(cohort, chunk -> writeFiles(chunk, target, generated), written -> bytes[0] += written);
+            return new CohortReport(target, cohort.size(), bytes[0], bytes[0], System.nanoTime() - start);
+        }
+
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long bytes;
+        long storedBytes;
+        try (ZipArchiveWriter zip = new ZipArchiveWriter(
+                new BufferedOutputStream(Files.newOutputStream(temp), 256 * 1024), generated)) {
+            run(cohort, chunk -> compress(chunk, generated), entries -> {
+                for (ZipArchiveWriter.Entry entry : entries) {
+                    zip.add(entry);
+                }
+            });
+            zip.finish();
+            bytes = zip.getUncompressedBytes();
+            storedBytes = zip.getBytesWritten();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new CohortReport(target, cohort.size(), bytes, storedBytes, System.nanoTime() - start);
+    }
+
+    @FunctionalInterface
+    private interface Sink<R> {
+        void accept(R result) throws IOException;
+    }
+
+    // Chunks are rendered concurrently and handed to the sink strictly in order, as the
+    // parallel CSV export and the backup archive do.
+    private static <R> void run(List<Student> cohort, Function<List<Student>, R> task,
+                                Sink<R> sink) throws IOException {
+        int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        Deque<CompletableFuture<R>> pending = new ArrayDeque<>();
+        for (int from = 0; from < cohort.size(); from += CHUNK_STUDENTS) {
+            List<Student> chunk = cohort.subList(from, Math.min(cohort.size(), from + CHUNK_STUDENTS));
+            pending.add(CompletableFuture.supplyAsync(() -> task.apply(chunk)));
+            if (pending.size() >= window) {
+                sink.accept(await(pending.poll()));
+            }
+        }
+        while (!pending.isEmpty()) {
+            sink.accept(await(pending.poll()));
+        }
+    }
+
+    private long writeFiles(List<Student> chunk, Path dir, LocalDateTime generated) {
+        StringBuilder buffer = new StringBuilder(4096);
+        long written = 0;
+        for (Student student : chunk) {
+            byte[] bytes = render(student, buffer, generated);
+            try {
+                Files.write(dir.resolve(fileName(student)), bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written += bytes.length;
+        }
+        return written;
+    }
+
+    private List<ZipArchiveWriter.Entry> compress(List<Student> chunk, LocalDateTime generated) {
+        StringBuilder buffer = new StringBuilder(4096);
+        List<ZipArchiveWriter.Entry> entries = new ArrayList<>(chunk.size());
+        for (Student student : chunk) {
+            entries.add(ZipArchiveWriter.compress(fileName(student), render(student, buffer, generated),
+                    Deflater.DEFAULT_COMPRESSION));
+        }
+        return entries;
+    }
+
+    private byte[] render(Student student, StringBuilder buffer, LocalDateTime generated) {
+        buffer.setLength(0);
+        try {
+            transcriptService.writeTranscript(student, buffer, generated);
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Student IDs are validated as letters and digits, so they are safe as file names.
+    private static String fileName(Student student) {
+        return student.getId() + ".txt";
+    }
+
+    private static <R> R await(CompletableFuture<R> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+}
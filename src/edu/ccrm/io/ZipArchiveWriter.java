@@ -0,0 +1,284 @@
+package edu.ccrm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Writes a zip archive from entries compressed ahead of time, which ZipOutputStream cannot
+// do: it deflates each entry itself, on the writing thread. compress() is safe to call from
+// any thread; add() must be called by one thread, in archive order. Entries that deflate
+// no smaller than they started are stored. An entry's data is released once written, so
+// memory does not grow with the archive. Content too large to hold in memory is instead
+// deflated from a stream on the writing thread. No zip64, so the archive is limited to 65535
+// entries and 4 GB.
+final class ZipArchiveWriter implements Closeable {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int VERSION = 20;
+    // Bit 11: names are UTF-8.
+    private static final int FLAGS = 0x0800;
+    // Bit 3: the CRC and sizes follow the data rather than the local header.
+    private static final int FLAGS_DESCRIPTOR = FLAGS | 0x0008;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final OutputStream out;
+    private final List<Entry> entries;
+    private final int dosTime;
+    private final int dosDate;
+    private long offset;
+    private long uncompressedBytes;
+
+    // One file, compressed and ready to be added.
+    static final class Entry {
+        final String name;
+        final int flags;
+        final int method;
+        final int crc;
+        final long size;
+        final long compressedSize;
+        byte[] data;
+        long headerOffset;
+
+        private Entry(String name, int method, int crc, long size, byte[] data) {
+            this(name, FLAGS, method, crc, size, data.length, data);
+        }
+
+        private Entry(String name, int flags, int method, int crc, long size, long compressedSize, byte[] data) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.data = data;
+        }
+
+        long getSize() { return size; }
+        long getCompressedSize() { return compressedSize; }
+        int getCrc() { return crc; }
+    }
+
+    ZipArchiveWriter(OutputStream out, LocalDateTime modified) {
+        this.out = out;
+        this.entries = new ArrayList<>();
+        this.dosTime = (modified.getHour() << 11) | (modified.getMinute() << 5) | (modified.getSecond() / 2);
+        this.dosDate = (Math.max(0, modified.getYear() - 1980) << 9) | (modified.getMonthValue() << 5)
+                | modified.getDayOfMonth();
+    }
+
+    static Entry compress(String name, byte[] content, int level) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 3));
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                compressed.write(buffer, 0, n);
+                if (compressed.size() >= content.length) {
+                    return new Entry(name, STORED, (int) crc.getValue(), content.length, content);
+                }
+            }
+            return new Entry(name, DEFLATED, (int) crc.getValue(), content.length, compressed.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    void add(Entry entry) throws IOException {
+        if (entries.size() >= MAX_ENTRIES || entry.size > MAX_SIZE || offset > MAX_SIZE) {
+            throw new IOException("Too large for a zip archive without zip64");
+        }
+        entry.headerOffset = offset;
+        writeLocalHeader(entry.name, FLAGS, entry.method, entry.crc, entry.compressedSize, entry.size);
+        write(entry.data, entry.data.length);
+        entry.data = null;
+        entries.add(entry);
+        uncompressedBytes += entry.size;
+    }
+
+    // Deflates in straight into the archive, holding only a buffer of it at a time. The CRC
+    // and sizes are only known at the end, so they are written in a descriptor after the data.
+    // The stream is read to its end but left open.
+    Entry add(String name, InputStream in, int level) throws IOException {
+        if (entries.size() >= MAX_ENTRIES || offset > MAX_SIZE) {
+            throw new IOException("Too large for a zip archive without zip64");
+        }
+        long headerOffset = offset;
+        writeLocalHeader(name, FLAGS_DESCRIPTOR, DEFLATED, 0, 0, 0);
+
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(level, true);
+        byte[] input = new byte[64 * 1024];
+        byte[] output = new byte[64 * 1024];
+        long size = 0;
+        long dataStart = offset;
+        try {
+            int read;
+            while ((read = in.read(input)) != -1) {
+                crc.update(input, 0, read);
+                size += read;
+                deflater.setInput(input, 0, read);
+                while (!deflater.needsInput()) {
+                    write(output, deflater.deflate(output));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                write(output, deflater.deflate(output));
+            }
+        } finally {
+            deflater.end();
+        }
+        long compressedSize = offset - dataStart;
+        if (size > MAX_SIZE || compressedSize > MAX_SIZE) {
+            throw new IOException("Too large for a zip archive without zip64");
+        }
+
+        Header descriptor = new Header(16);
+        descriptor.int32(DATA_DESCRIPTOR);
+        descriptor.int32((int) crc.getValue());
+        descriptor.int32((int) compressedSize);
+        descriptor.int32((int) size);
+        write(descriptor.array());
+
+        Entry entry = new Entry(name, FLAGS_DESCRIPTOR, DEFLATED, (int) crc.getValue(), size, compressedSize, null);
+        entry.headerOffset = headerOffset;
+        entries.add(entry);
+        uncompressedBytes += size;
+        return entry;
+    }
+
+    private void writeLocalHeader(String entryName, int flags, int method, int crc, long compressedSize, long size)
+            throws IOException {
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        Header header = new Header(30 + name.length);
+        header.int32(LOCAL_HEADER);
+        header.int16(VERSION);
+        header.int16(flags);
+        header.int16(method);
+        header.int16(dosTime);
+        header.int16(dosDate);
+        header.int32(crc);
+        header.int32((int) compressedSize);
+        header.int32((int) size);
+        header.int16(name.length);
+        header.int16(0);
+        header.bytes(name);
+        write(header.array());
+    }
+
+    int getEntryCount() {
+        return entries.size();
+    }
+
+    long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    long getBytesWritten() {
+        return offset;
+    }
+
+    // Writes the central directory. The underlying stream is left open.
+    void finish() throws IOException {
+        long directoryStart = offset;
+        for (Entry entry : entries) {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            Header header = new Header(46 + name.length);
+            header.int32(CENTRAL_HEADER);
+            header.int16(VERSION);
+            header.int16(VERSION);
+            header.int16(entry.flags);
+            header.int16(entry.method);
+            header.int16(dosTime);
+            header.int16(dosDate);
+            header.int32(entry.crc);
+            header.int32((int) entry.compressedSize);
+            header.int32((int) entry.size);
+            header.int16(name.length);
+            header.int16(0);
+            header.int16(0);
+            header.int16(0);
+            header.int16(0);
+            header.int32(0);
+            header.int32((int) entry.headerOffset);
+            header.bytes(name);
+            write(header.array());
+        }
+        if (offset > MAX_SIZE) {
+            throw new IOException("Too large for a zip archive without zip64");
+        }
+
+        Header end = new Header(22);
+        end.int32(END_OF_CENTRAL_DIRECTORY);
+        end.int16(0);
+        end.int16(0);
+        end.int16(entries.size());
+        end.int16(entries.size());
+        end.int32((int) (offset - directoryStart));
+        end.int32((int) directoryStart);
+        end.int16(0);
+        write(end.array());
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, bytes.length);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        offset += length;
+    }
+
+    // Little-endian, as zip headers are.
+    private static final class Header {
+        private final byte[] bytes;
+        private int size;
+
+        Header(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void int16(int value) {
+            bytes[size++] = (byte) value;
+            bytes[size++] = (byte) (value >>> 8);
+        }
+
+        void int32(int value) {
+            int16(value);
+            int16(value >>> 16);
+        }
+
+        void bytes(byte[] value) {
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package edu.ccrm.service;
+
+public class BulkResult {
+    public enum Outcome {
+        INSERTED,
+        DUPLICATE,
+        INVALID
+    }
+
+    private final Outcome[] outcomes;
+    private final String[] reasons;
+    private final int[] counts;
+
+    // reasons[i] explains a rejected outcomes[i] and is null for inserted items.
+    public BulkResult(Outcome[] outcomes, String[] reasons) {
+        this.outcomes = outcomes;
+        this.reasons = reasons;
+        this.counts = new int[Outcome.values().length];
+        for (Outcome outcome : outcomes) {
+            counts[outcome.ordinal()]++;
+        }
+    }
+
+    public int size() { return outcomes.length; }
+    public Outcome getOutcome(int index) { return outcomes[index]; }
+    public String getReason(int index) { return reasons[index]; }
+    public int getCount(Outcome outcome) { return counts[outcome.ordinal()]; }
+    public int getInsertedCount() { return getCount(Outcome.INSERTED); }
+    public int getDuplicateCount() { return getCount(Outcome.DUPLICATE); }
+    public int getInvalidCount() { return getCount(Outcome.INVALID); }
+
+    @Override
+    public String toString() {
+        return String.format("BulkResult[Total: %d, Inserted: %d, Duplicate: %d, Invalid: %d]",
+                outcomes.length, getInsertedCount(), getDuplicateCount(), getInvalidCount());
+    }
+}
@@ -0,0 +1,286 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Column-oriented enrollment storage for very large data sets. Student IDs and course codes
+// are interned to int ordinals and every enrollment is one row across parallel primitive
+// arrays, so a million rows cost a few tens of megabytes instead of millions of objects.
+public class CompactEnrollmentStore {
+    private static final int INITIAL_ROWS = 1024;
+    private static final short NO_MARKS = -1;
+    private static final byte NO_GRADE = -1;
+    private static final Grade[] GRADES = Grade.values();
+
+    private final Interner students;
+    private final Interner courses;
+
+    private int[] studentOrdinals;
+    private int[] courseOrdinals;
+    private short[] marks;          // hundredths of a mark, NO_MARKS when ungraded
+    private byte[] grades;          // Grade ordinal, NO_GRADE when ungraded
+    private long[] enrolledAt;      // epoch seconds, UTC
+    private long[] gradedAt;        // epoch seconds, UTC
+
+    private IntList[] rowsByStudent;
+    private IntList[] rowsByCourse;
+    private final IntList freeRows;
+    private int rowCount;
+    private int size;
+
+    public CompactEnrollmentStore() {
+        this.students = new Interner();
+        this.courses = new Interner();
+        this.studentOrdinals = new int[INITIAL_ROWS];
+        this.courseOrdinals = new int[INITIAL_ROWS];
+        this.marks = new short[INITIAL_ROWS];
+        this.grades = new byte[INITIAL_ROWS];
+        this.enrolledAt = new long[INITIAL_ROWS];
+        this.gradedAt = new long[INITIAL_ROWS];
+        this.rowsByStudent = new IntList[INITIAL_ROWS];
+        this.rowsByCourse = new IntList[64];
+        this.freeRows = new IntList();
+    }
+
+    public static CompactEnrollmentStore copyOf(Collection<Enrollment> enrollments) {
+        CompactEnrollmentStore store = new CompactEnrollmentStore();
+        for (Enrollment enrollment : enrollments) {
+            int row = store.add(enrollment.getStudent().getId(), enrollment.getCourse().getCode(),
+                    enrollment.getEnrollmentDate());
+            if (row >= 0 && enrollment.hasGrade()) {
+                store.setMarks(row, enrollment.getMarks(), enrollment.getGradeDate());
+            }
+        }
+        return store;
+    }
+
+    public synchronized int add(String studentId, String courseCode, LocalDateTime enrollmentDate) {
+        int student = students.intern(studentId);
+        int course = courses.intern(courseCode);
+        if (findRow(student, course) >= 0) {
+            return -1;
+        }
+
+        int row = freeRows.isEmpty() ? rowCount++ : freeRows.removeLast();
+        ensureRowCapacity(rowCount);
+
+        studentOrdinals[row] = student;
+        courseOrdinals[row] = course;
+        marks[row] = NO_MARKS;
+        grades[row] = NO_GRADE;
+        enrolledAt[row] = toEpochSecond(enrollmentDate);
+        gradedAt[row] = 0;
+
+        if (student >= rowsByStudent.length) {
+            rowsByStudent = grow(rowsByStudent, student);
+        }
+        if (course >= rowsByCourse.length) {
+            rowsByCourse = grow(rowsByCourse, course);
+        }
+        adjacency(rowsByStudent, student).add(row);
+        adjacency(rowsByCourse, course).add(row);
+        size++;
+        return row;
+    }
+
+    public synchronized boolean remove(String studentId, String courseCode) {
+        int row = find(studentId, courseCode);
+        if (row < 0) {
+            return false;
+        }
+
+        rowsByStudent[studentOrdinals[row]].removeValue(row);
+        rowsByCourse[courseOrdinals[row]].removeValue(row);
+        studentOrdinals[row] = -1;
+        courseOrdinals[row] = -1;
+        freeRows.add(row);
+        size--;
+        return true;
+    }
+
+    public synchronized boolean recordGrade(String studentId, String courseCode, double marks) {
+        int row = find(studentId, courseCode);
+        if (row < 0) {
+            return false;
+        }
+        setMarks(row, marks, LocalDateTime.now());
+        return true;
+    }
+
+    private void setMarks(int row, double value, LocalDateTime date) {
+        if (value < 0 || value > 100) {
+            throw new IllegalArgumentException("Marks must be between 0 and 100");
+        }
+        marks[row] = (short) Math.round(value * 100);
+        grades[row] = (byte) Grade.fromMarks(value).ordinal();
+        gradedAt[row] = toEpochSecond(date);
+    }
+
+    public synchronized int find(String studentId, String courseCode) {
+        int student = students.ordinalOf(studentId);
+        int course = courses.ordinalOf(courseCode);
+        if (student < 0 || course < 0) {
+            return -1;
+        }
+        return findRow(student, course);
+    }
+
+    private int findRow(int student, int course) {
+        if (student >= rowsByStudent.length || rowsByStudent[student] == null) {
+            return -1;
+        }
+        IntList rows = rowsByStudent[student];
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            if (courseOrdinals[row] == course) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized int[] getStudentRows(String studentId) {
+        int student = students.ordinalOf(studentId);
+        return student >= 0 && student < rowsByStudent.length && rowsByStudent[student] != null
+                ? rowsByStudent[student].toArray() : new int[0];
+    }
+
+    public synchronized int[] getCourseRows(String courseCode) {
+        int course = courses.ordinalOf(courseCode);
+        return course >= 0 && course < rowsByCourse.length && rowsByCourse[course] != null
+                ? rowsByCourse[course].toArray() : new int[0];
+    }
+
+    public synchronized String getStudentId(int row) { return students.valueOf(studentOrdinals[row]); }
+    public synchronized String getCourseCode(int row) { return courses.valueOf(courseOrdinals[row]); }
+    public synchronized double getMarks(int row) { return marks[row] == NO_MARKS ? -1 : marks[row] / 100.0; }
+    public synchronized Grade getGrade(int row) { return grades[row] == NO_GRADE ? null : GRADES[grades[row]]; }
+    public synchronized LocalDateTime getEnrollmentDate(int row) { return fromEpochSecond(enrolledAt[row]); }
+
+    public synchronized LocalDateTime getGradeDate(int row) {
+        return grades[row] == NO_GRADE ? null : fromEpochSecond(gradedAt[row]);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Rough retained size: the column arrays, adjacency lists and interned strings.
+    public synchronized long estimatedFootprintBytes() {
+        long bytes = (long) studentOrdinals.length * (4 + 4 + 2 + 1 + 8 + 8);
+        bytes += adjacencyBytes(rowsByStudent) + adjacencyBytes(rowsByCourse);
+        bytes += 4L * freeRows.capacity();
+        bytes += students.estimatedFootprintBytes() + courses.estimatedFootprintBytes();
+        return bytes;
+    }
+
+    private static long adjacencyBytes(IntList[] lists) {
+        long bytes = 4L * lists.length;
+        for (IntList list : lists) {
+            if (list != null) {
+                bytes += 16 + 16 + 4L * list.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    private void ensureRowCapacity(int rows) {
+        if (rows <= studentOrdinals.length) {
+            return;
+        }
+        int capacity = Math.max(rows, studentOrdinals.length + (studentOrdinals.length >> 1));
+        studentOrdinals = Arrays.copyOf(studentOrdinals, capacity);
+        courseOrdinals = Arrays.copyOf(courseOrdinals, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        grades = Arrays.copyOf(grades, capacity);
+        enrolledAt = Arrays.copyOf(enrolledAt, capacity);
+        gradedAt = Arrays.copyOf(gradedAt, capacity);
+    }
+
+    private static IntList[] grow(IntList[] lists, int ordinal) {
+        return Arrays.copyOf(lists, Math.max(ordinal + 1, lists.length + (lists.length >> 1)));
+    }
+
+    private static IntList adjacency(IntList[] lists, int ordinal) {
+        if (lists[ordinal] == null) {
+            lists[ordinal] = new IntList();
+        }
+        return lists[ordinal];
+    }
+
+    private static long toEpochSecond(LocalDateTime date) {
+        return date.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private static class Interner {
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int intern(String value) {
+            Integer ordinal = ordinals.get(value);
+            if (ordinal == null) {
+                ordinal = values.size();
+                ordinals.put(value, ordinal);
+                values.add(value);
+            }
+            return ordinal;
+        }
+
+        int ordinalOf(String value) {
+            Integer ordinal = ordinals.get(value);
+            return ordinal != null ? ordinal : -1;
+        }
+
+        String valueOf(int ordinal) {
+            return values.get(ordinal);
+        }
+
+        long estimatedFootprintBytes() {
+            long bytes = 0;
+            for (String value : values) {
+                bytes += 40 + value.length() + 32 + 16;
+            }
+            return bytes;
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) { return values[index]; }
+        int size() { return size; }
+        int capacity() { return values.length; }
+        boolean isEmpty() { return size == 0; }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        void removeValue(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Seat counter and FIFO waitlist for one course. Every enrollment holds a seat, limited course
+// or not, so the count of taken seats stays exact when the capacity changes, including from or
+// to unlimited. Seats are taken with a CAS loop, so concurrent enrollments into the same course
+// never block each other.
+class CourseSeats {
+    private final AtomicInteger taken;
+    private final Queue<String> waitlist;
+    private final Set<String> waiting;
+    private volatile int capacity;
+
+    CourseSeats(int capacity) {
+        this.taken = new AtomicInteger();
+        this.waitlist = new ConcurrentLinkedQueue<>();
+        this.waiting = ConcurrentHashMap.newKeySet();
+        this.capacity = capacity;
+    }
+
+    boolean tryAcquire() {
+        for (;;) {
+            int seats = taken.get();
+            int limit = capacity;
+            if (limit != Course.UNLIMITED_CAPACITY && seats >= limit) {
+                return false;
+            }
+            if (taken.compareAndSet(seats, seats + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Takes a seat whatever the capacity, for an enrollment that already exists.
+    void acquire() {
+        taken.incrementAndGet();
+    }
+
+    void release() {
+        taken.decrementAndGet();
+    }
+
+    // Lowering the capacity below the seats taken leaves those seats taken; none are offered
+    // until enough are released.
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // True after the capacity was lowered below the seats taken.
+    boolean isOverCapacity() {
+        int limit = capacity;
+        return limit != Course.UNLIMITED_CAPACITY && taken.get() > limit;
+    }
+
+    int getAvailable() {
+        int limit = capacity;
+        return limit == Course.UNLIMITED_CAPACITY ? Integer.MAX_VALUE : Math.max(limit - taken.get(), 0);
+    }
+
+    boolean enqueue(String studentId) {
+        if (!waiting.add(studentId)) {
+            return false;
+        }
+        waitlist.offer(studentId);
+        return true;
+    }
+
+    String peek() {
+        return waitlist.peek();
+    }
+
+    // Whoever removes an ID from the queue owns it; the set only guards against double entries.
+    boolean remove(String studentId) {
+        if (waitlist.remove(studentId)) {
+            waiting.remove(studentId);
+            return true;
+        }
+        return false;
+    }
+
+    boolean isWaiting(String studentId) {
+        return waiting.contains(studentId);
+    }
+
+    boolean hasWaiting() {
+        return !waitlist.isEmpty();
+    }
+
+    List<String> getWaitlist() {
+        return new ArrayList<>(waitlist);
+    }
+}
@@ -2,26 +2,159 @@ package edu.ccrm.service;
 
 import edu.ccrm.domain.*;
 import edu.ccrm.service.exceptions.*;
+import edu.ccrm.util.NGramIndex;
 import edu.ccrm.util.ValidationUtil;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-public class CourseService {
+public class CourseService implements CourseChangeListener {
     private final Map<String, Course> courses;
+    private final NGramIndex titleIndex;
+    private final NGramIndex departmentIndex;
+    private final NGramIndex instructorIndex;
+    private final List<CourseChangeListener> listeners;
+    private volatile MutationLog mutationLog;
 
     public CourseService() {
         this.courses = new ConcurrentHashMap<>();
+        this.titleIndex = new NGramIndex();
+        this.departmentIndex = new NGramIndex();
+        this.instructorIndex = new NGramIndex();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.mutationLog = MutationLog.NONE;
+    }
+
+    // Listeners hear of every change to a managed course, whether made through its setters
+    // or by updateCourse replacing it.
+    public void addListener(CourseChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(CourseChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Attach once state has been restored and replayed; from then on every change is journaled.
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
     }
 
     public void addCourse(Course course) throws DuplicateCourseException {
         ValidationUtil.validateCourse(course);
 
-        if (courses.containsKey(course.getCode())) {
-            throw new DuplicateCourseException("Course with code " + course.getCode() + " already exists");
+        long sequence;
+        // Held so that an edit racing with the insert is journaled after it.
+        synchronized (course) {
+            if (courses.putIfAbsent(course.getCode(), course) != null) {
+                throw new DuplicateCourseException("Course with code " + course.getCode() + " already exists");
+            }
+            sequence = mutationLog.append(Mutation.addCourse(course));
+        }
+
+        course.addChangeListener(this);
+        index(course);
+        mutationLog.awaitDurable(sequence);
+    }
+
+    // Inserts a batch: courses are validated in parallel, inserted one by one, and then each
+    // search index is updated once for the whole batch. Invalid and duplicate courses are
+    // reported per position instead of aborting the batch.
+    public BulkResult addAll(List<Course> batch) {
+        return addAll(batch, true);
+    }
+
+    // validate may be false when the caller has already run ValidationUtil on the batch.
+    public BulkResult addAll(List<Course> batch, boolean validate) {
+        int size = batch.size();
+        BulkResult.Outcome[] outcomes = new BulkResult.Outcome[size];
+        String[] reasons = new String[size];
+        if (validate) {
+            IntStream.range(0, size).parallel().forEach(i -> {
+                try {
+                    ValidationUtil.validateCourse(batch.get(i));
+                } catch (IllegalArgumentException e) {
+                    outcomes[i] = BulkResult.Outcome.INVALID;
+                    reasons[i] = e.getMessage();
+                }
+            });
+        }
+
+        List<String> inserted = new ArrayList<>(size);
+        long sequence = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] != null) {
+                continue;
+            }
+            Course course = batch.get(i);
+            synchronized (course) {
+                if (courses.putIfAbsent(course.getCode(), course) != null) {
+                    outcomes[i] = BulkResult.Outcome.DUPLICATE;
+                    reasons[i] = "Course with code " + course.getCode() + " already exists";
+                    continue;
+                }
+                sequence = mutationLog.append(Mutation.addCourse(course));
+            }
+            outcomes[i] = BulkResult.Outcome.INSERTED;
+            course.addChangeListener(this);
+            inserted.add(course.getCode());
+        }
+
+        // A course replaced or removed meanwhile is indexed from whatever is current.
+        titleIndex.putAll(inserted, code -> textOf(code, Course::getTitle));
+        departmentIndex.putAll(inserted, code -> textOf(code, Course::getDepartment));
+        instructorIndex.putAll(inserted, code -> textOf(code, Course::getInstructor));
+        mutationLog.awaitDurable(sequence);
+        return new BulkResult(outcomes, reasons);
+    }
+
+    // Loads courses saved in a snapshot without validating them again; meant for filling an
+    // empty service at startup.
+    public void restore(Collection<Course> restored) {
+        List<String> codes = new ArrayList<>(restored.size());
+        for (Course course : restored) {
+            courses.put(course.getCode(), course);
+            course.addChangeListener(this);
+            codes.add(course.getCode());
+        }
+        titleIndex.putAll(codes, code -> textOf(code, Course::getTitle));
+        departmentIndex.putAll(codes, code -> textOf(code, Course::getDepartment));
+        instructorIndex.putAll(codes, code -> textOf(code, Course::getInstructor));
+    }
+
+    private String textOf(String code, Function<Course, String> field) {
+        Course course = courses.get(code);
+        return course != null ? field.apply(course) : null;
+    }
+
+    // Setters on a managed course land here, so the search indexes and the journal follow
+    // in-place edits too.
+    @Override
+    public void onCourseChanged(Course course, Course.Field field) {
+        if (courses.get(course.getCode()) != course) {
+            return;
+        }
+        switch (field) {
+            case TITLE -> titleIndex.put(course.getCode(), course.getTitle());
+            case DEPARTMENT -> departmentIndex.put(course.getCode(), course.getDepartment());
+            case INSTRUCTOR -> instructorIndex.put(course.getCode(), course.getInstructor());
+            default -> { }
+        }
+        long sequence;
+        synchronized (course) {
+            sequence = mutationLog.append(Mutation.updateCourse(course));
         }
+        mutationLog.awaitDurable(sequence);
+        fireChanged(course, field);
+    }
 
-        courses.put(course.getCode(), course);
+    private void index(Course course) {
+        titleIndex.put(course.getCode(), course.getTitle());
+        departmentIndex.put(course.getCode(), course.getDepartment());
+        instructorIndex.put(course.getCode(), course.getInstructor());
     }
 
     public Course findCourseByCode(String code) {
@@ -39,10 +172,70 @@ public class CourseService {
     }
 
     public void updateCourse(Course course) throws CourseNotFoundException {
-        if (!courses.containsKey(course.getCode())) {
+        Course existing = courses.get(course.getCode());
+        if (existing == null || !courses.replace(course.getCode(), existing, course)) {
             throw new CourseNotFoundException("Course with code " + course.getCode() + " not found");
         }
-        courses.put(course.getCode(), course);
+        if (existing != course) {
+            existing.removeChangeListener(this);
+            course.addChangeListener(this);
+        }
+        index(course);
+        long sequence;
+        synchronized (course) {
+            sequence = mutationLog.append(Mutation.updateCourse(course));
+        }
+        mutationLog.awaitDurable(sequence);
+        if (existing != course) {
+            for (Course.Field field : changedFields(existing, course)) {
+                fireChanged(course, field);
+            }
+        }
+    }
+
+    private static List<Course.Field> changedFields(Course before, Course after) {
+        List<Course.Field> fields = new ArrayList<>();
+        if (!Objects.equals(before.getTitle(), after.getTitle())) fields.add(Course.Field.TITLE);
+        if (before.getCredits() != after.getCredits()) fields.add(Course.Field.CREDITS);
+        if (!Objects.equals(before.getInstructor(), after.getInstructor())) fields.add(Course.Field.INSTRUCTOR);
+        if (before.getSemester() != after.getSemester()) fields.add(Course.Field.SEMESTER);
+        if (!Objects.equals(before.getDepartment(), after.getDepartment())) fields.add(Course.Field.DEPARTMENT);
+        if (before.isActive() != after.isActive()) fields.add(Course.Field.ACTIVE);
+        if (before.getCapacity() != after.getCapacity()) fields.add(Course.Field.CAPACITY);
+        return fields;
+    }
+
+    private void fireChanged(Course course, Course.Field field) {
+        for (CourseChangeListener listener : listeners) {
+            listener.onCourseChanged(course, field);
+        }
+    }
+
+    // Applies a journaled course change on top of restored state. Updates are made through the
+    // setters of the current instance, so enrollments keep pointing at it.
+    public void replay(Mutation mutation) {
+        Course image = mutation.getCourse();
+        Course existing = courses.get(image.getCode());
+        if (existing == null) {
+            if (courses.putIfAbsent(image.getCode(), image) == null) {
+                image.addChangeListener(this);
+                index(image);
+            }
+            return;
+        }
+        if (mutation.getType() == Mutation.Type.ADD_COURSE) {
+            return;
+        }
+        if (mutation.getType() != Mutation.Type.UPDATE_COURSE) {
+            throw new IllegalArgumentException("Not a course mutation: " + mutation.getType());
+        }
+        if (!Objects.equals(existing.getTitle(), image.getTitle())) existing.setTitle(image.getTitle());
+        if (existing.getCredits() != image.getCredits()) existing.setCredits(image.getCredits());
+        if (!Objects.equals(existing.getInstructor(), image.getInstructor())) existing.setInstructor(image.getInstructor());
+        if (existing.getSemester() != image.getSemester()) existing.setSemester(image.getSemester());
+        if (!Objects.equals(existing.getDepartment(), image.getDepartment())) existing.setDepartment(image.getDepartment());
+        if (existing.isActive() != image.isActive()) existing.setActive(image.isActive());
+        if (existing.getCapacity() != image.getCapacity()) existing.setCapacity(image.getCapacity());
     }
 
     public void deactivateCourse(String courseCode) throws CourseNotFoundException {
@@ -55,15 +248,42 @@ public class CourseService {
 
 
     public List<Course> searchByDepartment(String department) {
-        return courses.values().stream()
-                .filter(c -> c.getDepartment().toLowerCase().contains(department.toLowerCase()))
-                .collect(Collectors.toList());
+        return resolve(departmentIndex.search(department));
     }
 
     public List<Course> searchByInstructor(String instructor) {
-        return courses.values().stream()
-                .filter(c -> c.getInstructor().toLowerCase().contains(instructor.toLowerCase()))
-                .collect(Collectors.toList());
+        return resolve(instructorIndex.search(instructor));
+    }
+
+    // Every whitespace-separated term must appear in the title, department or instructor.
+    public List<Course> search(String query) {
+        Set<String> matches = null;
+        for (String term : query.trim().split("\\s+")) {
+            Set<String> termMatches = titleIndex.search(term);
+            termMatches.addAll(departmentIndex.search(term));
+            termMatches.addAll(instructorIndex.search(term));
+
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.retainAll(termMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return resolve(matches);
+    }
+
+    private List<Course> resolve(Set<String> codes) {
+        List<Course> result = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            Course course = courses.get(code);
+            if (course != null) {
+                result.add(course);
+            }
+        }
+        return result;
     }
 
     public List<Course> searchBySemester(Semester semester) {
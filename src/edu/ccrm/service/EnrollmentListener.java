@@ -0,0 +1,15 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Student;
+
+// Implementations must be quick and must not call back into EnrollmentService.
+public interface EnrollmentListener {
+    // Fires after the student's lock stripe is released, so two changes for one student can
+    // arrive out of order; GpaChange.getSequence tells which is newer.
+    default void onGpaChanged(GpaChange change) {}
+
+    // The student enrolled, unenrolled or was graded, or a course they are enrolled in was
+    // retitled, re-credited or moved to another semester. Fires while the student's lock stripe
+    // is held, so these arrive in order. Not fired by restore, which fills an empty service.
+    default void onEnrollmentsChanged(Student student) {}
+}
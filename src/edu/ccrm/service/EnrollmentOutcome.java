@@ -0,0 +1,18 @@
+package edu.ccrm.service;
+
+public enum EnrollmentOutcome {
+    OK,
+    WAITLISTED,
+    DUPLICATE,
+    CREDIT_LIMIT,
+    NOT_FOUND,
+    INACTIVE;
+
+    public boolean isSuccess() {
+        return this == OK;
+    }
+
+    public boolean isAccepted() {
+        return this == OK || this == WAITLISTED;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.ccrm.service;
+
+import java.util.Objects;
+
+public final class EnrollmentRequest {
+    private final String studentId;
+    private final String courseCode;
+
+    public EnrollmentRequest(String studentId, String courseCode) {
+        this.studentId = Objects.requireNonNull(studentId, "Student ID cannot be null");
+        this.courseCode = Objects.requireNonNull(courseCode, "Course code cannot be null");
+    }
+
+    public String getStudentId() { return studentId; }
+    public String getCourseCode() { return courseCode; }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        EnrollmentRequest that = (EnrollmentRequest) obj;
+        return studentId.equals(that.studentId) && courseCode.equals(that.courseCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(studentId, courseCode);
+    }
+
+    @Override
+    public String toString() {
+        return "EnrollmentRequest[" + studentId + " -> " + courseCode + "]";
+    }
+}
@@ -5,24 +5,120 @@ import edu.ccrm.service.exceptions.*;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class EnrollmentService {
     private final StudentService studentService;
     private final CourseService courseService;
-    private final Map<String, List<Enrollment>> studentEnrollments;
-    private final Map<String, List<Enrollment>> courseEnrollments;
+    private final Map<String, StudentLedger> studentLedgers;
+    private final Map<String, Map<String, Enrollment>> courseEnrollments;
+    private final Map<String, CourseSeats> courseSeats;
+    private final Object[] studentLocks;
+    private final List<EnrollmentListener> listeners;
+    private final AtomicLong gpaSequence;
+    private volatile MutationLog mutationLog;
 
     private static final int MAX_CREDITS_PER_SEMESTER = 20;
+    private static final int LOCK_STRIPES = 256;
+
+    public static class BatchResult {
+        private final EnrollmentOutcome[] outcomes;
+        private final int[] counts;
+
+        public BatchResult(EnrollmentOutcome[] outcomes) {
+            this.outcomes = outcomes;
+            this.counts = new int[EnrollmentOutcome.values().length];
+            for (EnrollmentOutcome outcome : outcomes) {
+                counts[outcome.ordinal()]++;
+            }
+        }
+
+        public int size() { return outcomes.length; }
+        public EnrollmentOutcome getOutcome(int index) { return outcomes[index]; }
+        public int getCount(EnrollmentOutcome outcome) { return counts[outcome.ordinal()]; }
+        public int getSuccessCount() { return getCount(EnrollmentOutcome.OK); }
+        public int getWaitlistedCount() { return getCount(EnrollmentOutcome.WAITLISTED); }
+        public int getFailureCount() { return outcomes.length - getSuccessCount() - getWaitlistedCount(); }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("BatchResult[Total: ").append(outcomes.length);
+            for (EnrollmentOutcome outcome : EnrollmentOutcome.values()) {
+                sb.append(", ").append(outcome).append(": ").append(counts[outcome.ordinal()]);
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    // An enrollment together with the credits it is charged and the semester it counts
+    // toward, as the ledger holds them; used to save and restore the service and to render
+    // transcripts that agree with the GPA.
+    public static class EnrollmentRecord {
+        private final Enrollment enrollment;
+        private final int chargedCredits;
+        private final Semester semester;
+
+        public EnrollmentRecord(Enrollment enrollment, int chargedCredits) {
+            this(enrollment, chargedCredits, enrollment.getCourse().getSemester());
+        }
+
+        public EnrollmentRecord(Enrollment enrollment, int chargedCredits, Semester semester) {
+            this.enrollment = enrollment;
+            this.chargedCredits = chargedCredits;
+            this.semester = semester;
+        }
+
+        public Enrollment getEnrollment() { return enrollment; }
+        public int getChargedCredits() { return chargedCredits; }
+        public Semester getSemester() { return semester; }
+    }
 
     public EnrollmentService(StudentService studentService, CourseService courseService) {
         this.studentService = studentService;
         this.courseService = courseService;
-        this.studentEnrollments = new ConcurrentHashMap<>();
+        this.studentLedgers = new ConcurrentHashMap<>();
         this.courseEnrollments = new ConcurrentHashMap<>();
+        this.courseSeats = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.gpaSequence = new AtomicLong();
+        this.mutationLog = MutationLog.NONE;
+        this.studentLocks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            studentLocks[i] = new Object();
+        }
+        courseService.addListener(this::onCourseChanged);
+    }
+
+    // All reads and writes of a student's ledger happen under that student's stripe,
+    // so the duplicate and credit checks are atomic with the insert. Different students
+    // almost always land on different stripes and never contend.
+    private Object lockFor(String studentId) {
+        int h = studentId.hashCode();
+        h ^= (h >>> 16);
+        return studentLocks[h & (LOCK_STRIPES - 1)];
+    }
+
+    // Attach once state has been restored and replayed; from then on every change is journaled.
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    // Waits for everything appended so far, which covers the records this thread just wrote
+    // however many of them an operation produced.
+    private void awaitJournal() {
+        MutationLog log = mutationLog;
+        log.awaitDurable(log.lastSequence());
+    }
+
+    // Created with the course's first enrollment, or when its capacity first changes, and kept
+    // in step with the capacity from then on by onCourseChanged.
+    private CourseSeats seatsFor(Course course) {
+        return courseSeats.computeIfAbsent(course.getCode(), k -> new CourseSeats(course.getCapacity()));
     }
 
-    public void enrollStudent(String studentId, String courseCode)
+    public EnrollmentOutcome enrollStudent(String studentId, String courseCode)
             throws StudentNotFoundException, CourseNotFoundException,
             DuplicateEnrollmentException, MaxCreditLimitExceededException {
 
@@ -44,35 +140,152 @@ public class EnrollmentService {
             throw new IllegalStateException("Cannot enroll in inactive course");
         }
 
-        List<Enrollment> enrollments = studentEnrollments.getOrDefault(studentId, new ArrayList<>());
-        boolean alreadyEnrolled = enrollments.stream()
-                .anyMatch(e -> e.getCourse().getCode().equals(courseCode));
+        EnrollmentOutcome outcome;
+        synchronized (lockFor(studentId)) {
+            outcome = enrollLocked(student, course);
+        }
 
-        if (alreadyEnrolled) {
-            throw new DuplicateEnrollmentException("Student already enrolled in course " + courseCode);
+        switch (outcome) {
+            case DUPLICATE -> throw new DuplicateEnrollmentException("Student already enrolled in course " + courseCode);
+            case CREDIT_LIMIT -> throw new MaxCreditLimitExceededException(
+                    "Enrollment would exceed maximum credits per semester (" + MAX_CREDITS_PER_SEMESTER + ")");
+            case WAITLISTED -> recheckWaitlist(course);
+            default -> { }
         }
+        awaitJournal();
+        return outcome;
+    }
 
-        int currentCredits = enrollments.stream()
-                .filter(e -> e.getCourse().getSemester() == course.getSemester())
-                .mapToInt(e -> e.getCourse().getCredits())
-                .sum();
+    // Caller must hold lockFor(student.getId()).
+    private EnrollmentOutcome enrollLocked(Student student, Course course) {
+        StudentLedger ledger = studentLedgers.computeIfAbsent(student.getId(), k -> new StudentLedger());
+        CourseSeats seats = seatsFor(course);
+        if (ledger.isEnrolled(course.getCode()) || seats.isWaiting(student.getId())) {
+            return EnrollmentOutcome.DUPLICATE;
+        }
 
-        if (currentCredits + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
-            throw new MaxCreditLimitExceededException(
-                    "Enrollment would exceed maximum credits per semester (" + MAX_CREDITS_PER_SEMESTER + ")");
+        if (ledger.getCredits(course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+            return EnrollmentOutcome.CREDIT_LIMIT;
+        }
+
+        if (!seats.tryAcquire()) {
+            if (!seats.enqueue(student.getId())) {
+                return EnrollmentOutcome.DUPLICATE;
+            }
+            mutationLog.append(Mutation.waitlist(student.getId(), course.getCode()));
+            return EnrollmentOutcome.WAITLISTED;
         }
 
+        record(ledger, student, course);
+        return EnrollmentOutcome.OK;
+    }
+
+    // Caller must hold lockFor(student.getId()) and a seat of the course.
+    private void record(StudentLedger ledger, Student student, Course course) {
         Enrollment enrollment = new Enrollment(student, course);
 
+        ledger.add(enrollment);
+        courseEnrollments.computeIfAbsent(course.getCode(), k -> new ConcurrentHashMap<>())
+                .put(student.getId(), enrollment);
 
-        enrollments.add(enrollment);
-        studentEnrollments.put(studentId, enrollments);
+        student.addCourse(course.getCode());
+        mutationLog.append(Mutation.enroll(student.getId(), course.getCode(), course.getCredits(),
+                enrollment.getEnrollmentDate()));
+        fireEnrollmentsChanged(student);
+    }
 
-        List<Enrollment> courseEnrollmentList = courseEnrollments.getOrDefault(courseCode, new ArrayList<>());
-        courseEnrollmentList.add(enrollment);
-        courseEnrollments.put(courseCode, courseEnrollmentList);
+    // A seat may have been released between our failed tryAcquire and joining the queue, and
+    // the releasing thread may have seen an empty waitlist. Take that seat back and hand it on.
+    private void recheckWaitlist(Course course) {
+        CourseSeats seats = seatsFor(course);
+        if (seats.tryAcquire()) {
+            handOffSeat(course, seats);
+        }
+    }
 
-        student.addCourse(courseCode);
+    // Caller holds one seat of the course and no student lock. Gives the seat to the first
+    // waitlisted student who can still take it, or returns it to the pool, as it must while the
+    // course is over a lowered capacity. The student is taken off the waitlist under their own
+    // stripe, the lock their enroll and unenroll calls hold, so those calls always find them
+    // either waiting or enrolled.
+    private void handOffSeat(Course course, CourseSeats seats) {
+        for (;;) {
+            String nextId = seats.isOverCapacity() ? null : seats.peek();
+            if (nextId == null) {
+                seats.release();
+                if (seats.hasWaiting() && seats.tryAcquire()) {
+                    continue;
+                }
+                return;
+            }
+
+            Student next = studentService.findStudentById(nextId);
+            synchronized (lockFor(nextId)) {
+                if (!seats.remove(nextId)) {
+                    // Left the waitlist, or was handed a seat by another thread, since the peek.
+                    continue;
+                }
+                if (next != null && next.getStatus() == Student.Status.ACTIVE && course.isActive()) {
+                    StudentLedger ledger = studentLedgers.computeIfAbsent(nextId, k -> new StudentLedger());
+                    if (!ledger.isEnrolled(course.getCode())
+                            && ledger.getCredits(course.getSemester()) + course.getCredits() <= MAX_CREDITS_PER_SEMESTER) {
+                        record(ledger, next, course);
+                        return;
+                    }
+                }
+                // Passed over, so off the waitlist; journaled under the lock that ordered the
+                // student's WAITLIST record.
+                mutationLog.append(Mutation.unenroll(nextId, course.getCode()));
+            }
+        }
+    }
+
+    public BatchResult enrollBatch(Collection<EnrollmentRequest> requests) {
+        EnrollmentRequest[] items = requests.toArray(new EnrollmentRequest[0]);
+        EnrollmentOutcome[] outcomes = new EnrollmentOutcome[items.length];
+
+        // Resolve every distinct course once, and bucket request positions by student so each
+        // group can run under a single acquisition of that student's stripe.
+        Map<String, Course> coursesByCode = new HashMap<>();
+        Map<String, List<Integer>> positionsByStudent = new HashMap<>();
+        for (int i = 0; i < items.length; i++) {
+            String courseCode = items[i].getCourseCode();
+            if (!coursesByCode.containsKey(courseCode)) {
+                coursesByCode.put(courseCode, courseService.findCourseByCode(courseCode));
+            }
+            positionsByStudent.computeIfAbsent(items[i].getStudentId(), k -> new ArrayList<>()).add(i);
+        }
+
+        positionsByStudent.entrySet().parallelStream().forEach(group -> {
+            String studentId = group.getKey();
+            Student student = studentService.findStudentById(studentId);
+            boolean waitlisted = false;
+
+            synchronized (lockFor(studentId)) {
+                for (int position : group.getValue()) {
+                    Course course = coursesByCode.get(items[position].getCourseCode());
+                    if (student == null || course == null) {
+                        outcomes[position] = EnrollmentOutcome.NOT_FOUND;
+                    } else if (student.getStatus() != Student.Status.ACTIVE || !course.isActive()) {
+                        outcomes[position] = EnrollmentOutcome.INACTIVE;
+                    } else {
+                        outcomes[position] = enrollLocked(student, course);
+                        waitlisted |= outcomes[position] == EnrollmentOutcome.WAITLISTED;
+                    }
+                }
+            }
+
+            if (waitlisted) {
+                for (int position : group.getValue()) {
+                    if (outcomes[position] == EnrollmentOutcome.WAITLISTED) {
+                        recheckWaitlist(coursesByCode.get(items[position].getCourseCode()));
+                    }
+                }
+            }
+        });
+
+        awaitJournal();
+        return new BatchResult(outcomes);
     }
 
     public void unenrollStudent(String studentId, String courseCode)
@@ -88,56 +301,407 @@ public class EnrollmentService {
             throw new CourseNotFoundException("Course with code " + courseCode + " not found");
         }
 
-        List<Enrollment> enrollments = studentEnrollments.get(studentId);
-        if (enrollments == null) {
-            throw new EnrollmentNotFoundException("No enrollments found for student " + studentId);
+        CourseSeats seats = seatsFor(course);
+        boolean seatFreed;
+        GpaChange change = null;
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.get(studentId);
+            StudentLedger.Entry entry = ledger != null ? ledger.getEntry(courseCode) : null;
+            if (entry != null) {
+                change = removeLocked(ledger, entry, student);
+                seatFreed = true;
+            } else if (seats.remove(studentId)) {
+                seatFreed = false;
+            } else if (ledger == null) {
+                throw new EnrollmentNotFoundException("No enrollments found for student " + studentId);
+            } else {
+                throw new EnrollmentNotFoundException("Student not enrolled in course " + courseCode);
+            }
+            mutationLog.append(Mutation.unenroll(studentId, courseCode));
         }
+        fireGpaChanged(change);
 
-        boolean removed = enrollments.removeIf(e -> e.getCourse().getCode().equals(courseCode));
-        if (!removed) {
-            throw new EnrollmentNotFoundException("Student not enrolled in course " + courseCode);
+        if (seatFreed) {
+            handOffSeat(course, seats);
         }
+        awaitJournal();
+    }
 
-        List<Enrollment> courseEnrollmentList = courseEnrollments.get(courseCode);
-        if (courseEnrollmentList != null) {
-            courseEnrollmentList.removeIf(e -> e.getStudent().getId().equals(studentId));
+    // Caller must hold lockFor(student.getId()). Releasing the seat and firing the returned
+    // GPA change, if any, are left to the caller.
+    private GpaChange removeLocked(StudentLedger ledger, StudentLedger.Entry entry, Student student) {
+        String courseCode = entry.enrollment.getCourse().getCode();
+        StudentLedger.Totals before = ledger.getTotals(entry.semester);
+        ledger.remove(courseCode);
+        GpaChange change = entry.graded
+                ? gpaChange(student, entry.semester, before, ledger.getTotals(entry.semester)) : null;
+        fireEnrollmentsChanged(student);
+
+        Map<String, Enrollment> courseEnrollmentMap = courseEnrollments.get(courseCode);
+        if (courseEnrollmentMap != null) {
+            courseEnrollmentMap.remove(student.getId());
         }
 
         student.removeCourse(courseCode);
+        return change;
     }
 
     public void recordGrade(String studentId, String courseCode, double marks)
             throws StudentNotFoundException, CourseNotFoundException, EnrollmentNotFoundException {
 
-        List<Enrollment> enrollments = studentEnrollments.get(studentId);
-        if (enrollments == null) {
-            throw new EnrollmentNotFoundException("No enrollments found for student " + studentId);
+        long sequence;
+        GpaChange change;
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.get(studentId);
+            if (ledger == null) {
+                throw new EnrollmentNotFoundException("No enrollments found for student " + studentId);
+            }
+
+            StudentLedger.Entry entry = ledger.getEntry(courseCode);
+            if (entry == null) {
+                throw new EnrollmentNotFoundException("Student not enrolled in course " + courseCode);
+            }
+
+            StudentLedger.Totals before = ledger.getTotals(entry.semester);
+            ledger.recordGrade(courseCode, marks);
+            change = gpaChange(entry.enrollment.getStudent(), entry.semester, before, ledger.getTotals(entry.semester));
+            fireEnrollmentsChanged(entry.enrollment.getStudent());
+            sequence = mutationLog.append(Mutation.grade(studentId, courseCode, marks, entry.enrollment.getGradeDate()));
+        }
+        fireGpaChanged(change);
+        mutationLog.awaitDurable(sequence);
+    }
+
+    // Applies a journaled enrollment change on top of restored state. Records describe
+    // outcomes, so no enrollment rules run, and a record whose effect is already present
+    // (because the snapshot was taken after it was written) changes nothing.
+    public void replay(Mutation mutation) {
+        Student student = studentService.findStudentById(mutation.getStudentId());
+        Course course = courseService.findCourseByCode(mutation.getCourseCode());
+        if (student == null || course == null) {
+            return;
         }
+        String studentId = student.getId();
+        String courseCode = course.getCode();
+        CourseSeats seats = seatsFor(course);
+
+        GpaChange change = null;
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.computeIfAbsent(studentId, k -> new StudentLedger());
+            StudentLedger.Entry entry = ledger.getEntry(courseCode);
+            switch (mutation.getType()) {
+                case ENROLL -> {
+                    if (entry != null) {
+                        return;
+                    }
+                    seats.remove(studentId);
+                    seats.acquire();
+                    Enrollment enrollment = new Enrollment(student, course, mutation.getTime());
+                    ledger.add(enrollment, mutation.getCredits());
+                    courseEnrollments.computeIfAbsent(courseCode, k -> new ConcurrentHashMap<>())
+                            .put(studentId, enrollment);
+                    student.addCourse(courseCode);
+                    fireEnrollmentsChanged(student);
+                }
+                case WAITLIST -> {
+                    if (entry == null) {
+                        seats.enqueue(studentId);
+                    }
+                }
+                case UNENROLL -> {
+                    if (entry != null) {
+                        change = removeLocked(ledger, entry, student);
+                        seats.release();
+                    } else {
+                        seats.remove(studentId);
+                    }
+                }
+                case GRADE -> {
+                    if (entry == null) {
+                        return;
+                    }
+                    StudentLedger.Totals before = ledger.getTotals(entry.semester);
+                    ledger.recordGrade(courseCode, mutation.getMarks(), mutation.getTime());
+                    change = gpaChange(student, entry.semester, before, ledger.getTotals(entry.semester));
+                    fireEnrollmentsChanged(student);
+                }
+                default -> throw new IllegalArgumentException("Not an enrollment mutation: " + mutation.getType());
+            }
+        }
+        fireGpaChanged(change);
+    }
 
-        Enrollment enrollment = enrollments.stream()
-                .filter(e -> e.getCourse().getCode().equals(courseCode))
-                .findFirst()
-                .orElseThrow(() -> new EnrollmentNotFoundException("Student not enrolled in course " + courseCode));
+    // Every enrollment, read student by student under each student's stripe.
+    public List<EnrollmentRecord> getEnrollmentRecords() {
+        List<EnrollmentRecord> records = new ArrayList<>();
+        for (String studentId : studentLedgers.keySet()) {
+            synchronized (lockFor(studentId)) {
+                StudentLedger ledger = studentLedgers.get(studentId);
+                for (StudentLedger.Entry entry : ledger.getEntries()) {
+                    records.add(new EnrollmentRecord(entry.enrollment, entry.credits, entry.semester));
+                }
+            }
+        }
+        return records;
+    }
 
-        enrollment.setGrade(marks);
+    public Map<String, List<String>> getWaitlists() {
+        Map<String, List<String>> waitlists = new HashMap<>();
+        courseSeats.forEach((code, seats) -> {
+            List<String> waitlist = seats.getWaitlist();
+            if (!waitlist.isEmpty()) {
+                waitlists.put(code, waitlist);
+            }
+        });
+        return waitlists;
+    }
+
+    // Loads saved enrollments and waitlists into an empty service without re-running the
+    // enrollment rules. Listeners get one GPA event per graded student and semester, carrying
+    // the final totals, rather than one per grade.
+    public void restore(Collection<EnrollmentRecord> records, Map<String, List<String>> waitlists) {
+        // Size each course's map up front; growing them one put at a time dominates otherwise.
+        Map<String, Integer> perCourse = new HashMap<>();
+        for (EnrollmentRecord record : records) {
+            perCourse.merge(record.getEnrollment().getCourse().getCode(), 1, Integer::sum);
+        }
+        perCourse.forEach((code, count) -> courseEnrollments.computeIfAbsent(code,
+                k -> new ConcurrentHashMap<>(count * 4 / 3 + 1)));
+
+        Set<String> touched = new HashSet<>();
+        for (EnrollmentRecord record : records) {
+            Enrollment enrollment = record.getEnrollment();
+            String studentId = enrollment.getStudent().getId();
+            Course course = enrollment.getCourse();
+            synchronized (lockFor(studentId)) {
+                studentLedgers.computeIfAbsent(studentId, k -> new StudentLedger())
+                        .add(enrollment, record.getChargedCredits());
+            }
+            courseEnrollments.computeIfAbsent(course.getCode(), k -> new ConcurrentHashMap<>())
+                    .put(studentId, enrollment);
+            seatsFor(course).acquire();
+            if (enrollment.hasGrade()) {
+                touched.add(studentId);
+            }
+        }
+
+        waitlists.forEach((code, studentIds) -> {
+            Course course = courseService.findCourseByCode(code);
+            if (course != null) {
+                studentIds.forEach(seatsFor(course)::enqueue);
+            }
+        });
+
+        StudentLedger.Totals none = new StudentLedger.Totals(0.0, 0, 0.0, 0);
+        List<GpaChange> changes = new ArrayList<>();
+        for (String studentId : touched) {
+            changes.clear();
+            synchronized (lockFor(studentId)) {
+                StudentLedger ledger = studentLedgers.get(studentId);
+                Student student = ledger.getEntries().iterator().next().enrollment.getStudent();
+                StudentLedger.Totals before = none;
+                for (Semester semester : Semester.values()) {
+                    if (ledger.getGradedCredits(semester) > 0) {
+                        StudentLedger.Totals after = ledger.getTotals(semester);
+                        changes.add(gpaChange(student, semester, before, after));
+                        before = new StudentLedger.Totals(after.gpa, after.credits, 0.0, 0);
+                    }
+                }
+            }
+            changes.forEach(this::fireGpaChanged);
+        }
+    }
+
+    public void addListener(EnrollmentListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(EnrollmentListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Caller must hold lockFor(student.getId()), which orders the sequence numbers of one
+    // student's changes. Null when nobody is listening. The change names the student as
+    // currently registered, which may be a newer instance than the enrollment holds.
+    private GpaChange gpaChange(Student student, Semester semester,
+                                StudentLedger.Totals before, StudentLedger.Totals after) {
+        if (listeners.isEmpty()) {
+            return null;
+        }
+        Student current = studentService.findStudentById(student.getId());
+        return new GpaChange(gpaSequence.incrementAndGet(), current != null ? current : student,
+                semester, before, after);
+    }
+
+    // Called after the student's stripe is released, so a slow listener never holds up other
+    // students on the same stripe; listeners use the sequence number to drop stale changes.
+    private void fireGpaChanged(GpaChange change) {
+        if (change == null) {
+            return;
+        }
+        for (EnrollmentListener listener : listeners) {
+            listener.onGpaChanged(change);
+        }
+    }
+
+    // Caller must hold lockFor(student.getId()).
+    private void fireEnrollmentsChanged(Student student) {
+        for (EnrollmentListener listener : listeners) {
+            listener.onEnrollmentsChanged(student);
+        }
+    }
+
+    // Enrollments are counted under their course's credits and semester, so a change to
+    // either re-books the ledger of every enrolled student. Title, credits and semester all
+    // appear on those students' transcripts, so each of them hears of the change.
+    private void onCourseChanged(Course course, Course.Field field) {
+        if (field == Course.Field.CAPACITY) {
+            onCapacityChanged(course);
+            return;
+        }
+        if (field != Course.Field.TITLE && field != Course.Field.CREDITS && field != Course.Field.SEMESTER) {
+            return;
+        }
+        Map<String, Enrollment> enrolled = courseEnrollments.get(course.getCode());
+        if (enrolled == null) {
+            return;
+        }
+        List<GpaChange> changes = new ArrayList<>();
+        for (Enrollment enrollment : enrolled.values()) {
+            Student student = enrollment.getStudent();
+            changes.clear();
+            synchronized (lockFor(student.getId())) {
+                StudentLedger ledger = studentLedgers.get(student.getId());
+                if (ledger != null && field != Course.Field.TITLE) {
+                    rebook(ledger, student, course, changes);
+                }
+                fireEnrollmentsChanged(student);
+            }
+            changes.forEach(this::fireGpaChanged);
+        }
+    }
+
+    // Caller must hold lockFor(student.getId()). Moves the student's entry for the course to
+    // its current credits and semester; a graded entry adds a GPA change to changes for the
+    // semester it was in and, if it moved, one for the semester it joined.
+    private void rebook(StudentLedger ledger, Student student, Course course, List<GpaChange> changes) {
+        StudentLedger.Entry entry = ledger.getEntry(course.getCode());
+        if (entry == null) {
+            return;
+        }
+        Semester from = entry.semester;
+        Semester to = course.getSemester();
+        StudentLedger.Totals beforeFrom = ledger.getTotals(from);
+        StudentLedger.Totals beforeTo = ledger.getTotals(to);
+        if (ledger.rebook(course.getCode(), course.getCredits(), to) == null || !entry.graded) {
+            return;
+        }
+        StudentLedger.Totals afterFrom = ledger.getTotals(from);
+        changes.add(gpaChange(student, from, beforeFrom, afterFrom));
+        if (to != from) {
+            StudentLedger.Totals between = new StudentLedger.Totals(afterFrom.gpa, afterFrom.credits,
+                    beforeTo.semesterGpa, beforeTo.semesterCredits);
+            changes.add(gpaChange(student, to, between, ledger.getTotals(to)));
+        }
+    }
+
+    // Seats are counted for every enrollment, so a new limit applies to the students already
+    // enrolled. Seats it adds go to waitlisted students in order. The capacity is re-read from
+    // the registered course under the seats' lock, so racing changes leave the latest one.
+    private void onCapacityChanged(Course course) {
+        CourseSeats seats = seatsFor(course);
+        synchronized (seats) {
+            Course current = courseService.findCourseByCode(course.getCode());
+            seats.setCapacity((current != null ? current : course).getCapacity());
+        }
+        while (seats.hasWaiting() && seats.tryAcquire()) {
+            handOffSeat(course, seats);
+        }
+    }
+
+    // The student's enrollments with the credits and semester they are counted under, in
+    // enrollment order.
+    List<EnrollmentRecord> getStudentRecords(String studentId) {
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.get(studentId);
+            if (ledger == null) {
+                return new ArrayList<>();
+            }
+            List<EnrollmentRecord> records = new ArrayList<>(ledger.getEntries().size());
+            for (StudentLedger.Entry entry : ledger.getEntries()) {
+                records.add(new EnrollmentRecord(entry.enrollment, entry.credits, entry.semester));
+            }
+            return records;
+        }
+    }
+
+    // The course as CourseService now holds it. updateCourse swaps in a new instance, while
+    // enrollments made before keep the one they were made against.
+    Course getCurrentCourse(Course course) {
+        Course current = courseService.findCourseByCode(course.getCode());
+        return current != null ? current : course;
     }
 
     public List<Enrollment> getStudentEnrollments(String studentId) {
-        return studentEnrollments.getOrDefault(studentId, new ArrayList<>());
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.get(studentId);
+            return ledger != null ? ledger.getEnrollments() : new ArrayList<>();
+        }
+    }
+
+    public double getGpa(String studentId) {
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.get(studentId);
+            return ledger != null ? ledger.getGpa() : 0.0;
+        }
+    }
+
+    public double getSemesterGpa(String studentId, Semester semester) {
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.get(studentId);
+            return ledger != null ? ledger.getGpa(semester) : 0.0;
+        }
+    }
+
+    public int getGradedCredits(String studentId) {
+        synchronized (lockFor(studentId)) {
+            StudentLedger ledger = studentLedgers.get(studentId);
+            return ledger != null ? ledger.getGradedCredits() : 0;
+        }
     }
 
     public List<Enrollment> getCourseEnrollments(String courseCode) {
-        return courseEnrollments.getOrDefault(courseCode, new ArrayList<>());
+        Map<String, Enrollment> enrollments = courseEnrollments.get(courseCode);
+        return enrollments != null ? new ArrayList<>(enrollments.values()) : new ArrayList<>();
+    }
+
+    public List<String> getWaitlist(String courseCode) {
+        CourseSeats seats = courseSeats.get(courseCode);
+        return seats != null ? seats.getWaitlist() : new ArrayList<>();
+    }
+
+    // 0 for an unknown course and Integer.MAX_VALUE for an unlimited one. A course nobody
+    // has enrolled in may have no seat counter yet, and reading does not create one.
+    public int getAvailableSeats(String courseCode) {
+        Course course = courseService.findCourseByCode(courseCode);
+        if (course == null) {
+            return 0;
+        }
+        CourseSeats seats = courseSeats.get(courseCode);
+        if (seats != null) {
+            return seats.getAvailable();
+        }
+        return course.hasCapacityLimit() ? course.getCapacity() : Integer.MAX_VALUE;
     }
 
     public int getCourseEnrollmentCount(String courseCode) {
-        List<Enrollment> enrollments = courseEnrollments.get(courseCode);
+        Map<String, Enrollment> enrollments = courseEnrollments.get(courseCode);
         return enrollments != null ? enrollments.size() : 0;
     }
 
     public Map<Semester, Integer> getEnrollmentStatsBySemester() {
-        return studentEnrollments.values().stream()
-                .flatMap(List::stream)
+        return courseEnrollments.values().stream()
+                .flatMap(m -> m.values().stream())
                 .collect(Collectors.groupingBy(
                         e -> e.getCourse().getSemester(),
                         Collectors.collectingAndThen(Collectors.counting(), Math::toIntExact)
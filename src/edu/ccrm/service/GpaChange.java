@@ -0,0 +1,56 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+// A change to one student's GPA, overall and in one semester. Changes are numbered in the order
+// they were made; they may be delivered in a different order, so a listener that keeps state
+// ignores values older than the ones it already holds.
+public final class GpaChange {
+    private final long sequence;
+    private final Student student;
+    private final Semester semester;
+    private final double oldGpa;
+    private final double newGpa;
+    private final int oldCredits;
+    private final int newCredits;
+    private final double oldSemesterGpa;
+    private final double newSemesterGpa;
+    private final int oldSemesterCredits;
+    private final int newSemesterCredits;
+
+    GpaChange(long sequence, Student student, Semester semester,
+              StudentLedger.Totals before, StudentLedger.Totals after) {
+        this.sequence = sequence;
+        this.student = student;
+        this.semester = semester;
+        this.oldGpa = before.gpa;
+        this.newGpa = after.gpa;
+        this.oldCredits = before.credits;
+        this.newCredits = after.credits;
+        this.oldSemesterGpa = before.semesterGpa;
+        this.newSemesterGpa = after.semesterGpa;
+        this.oldSemesterCredits = before.semesterCredits;
+        this.newSemesterCredits = after.semesterCredits;
+    }
+
+    public long getSequence() { return sequence; }
+    public Student getStudent() { return student; }
+    public Semester getSemester() { return semester; }
+    public double getOldGpa() { return oldGpa; }
+    public double getNewGpa() { return newGpa; }
+    public int getOldCredits() { return oldCredits; }
+    public int getNewCredits() { return newCredits; }
+    public double getOldSemesterGpa() { return oldSemesterGpa; }
+    public double getNewSemesterGpa() { return newSemesterGpa; }
+    public int getOldSemesterCredits() { return oldSemesterCredits; }
+    public int getNewSemesterCredits() { return newSemesterCredits; }
+
+    public boolean wasGraded() { return oldCredits > 0; }
+    public boolean isGraded() { return newCredits > 0; }
+
+    @Override
+    public String toString() {
+        return String.format("GpaChange[%s, %s: %.2f -> %.2f, semester %.2f -> %.2f]",
+                student.getId(), semester, oldGpa, newGpa, oldSemesterGpa, newSemesterGpa);
+    }
+}
@@ -0,0 +1,140 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import java.util.*;
+
+// Histogram of active, graded students' GPAs on the 10-point Grade scale. Counts are adjusted
+// as grades and statuses change, so reading the distribution is a copy of a few counters.
+public class GpaDistribution implements EnrollmentListener, StudentListener {
+    public static final double MAX_GPA = Grade.S.getGradePoint();
+    private static final double[] DEFAULT_BOUNDARIES = {5.0, 6.0, 7.0, 8.0, 9.0};
+    private static final double DEFAULT_BIN_WIDTH = 0.1;
+
+    private final double[] boundaries;
+    private final double binWidth;
+    private final int[] bucketCounts;
+    private final int[] binCounts;
+    private final Map<String, Tracked> students;
+    private int total;
+
+    private static final class Tracked {
+        double gpa;
+        boolean graded;
+        boolean active;
+        long sequence;
+    }
+
+    public GpaDistribution() {
+        this(DEFAULT_BOUNDARIES, DEFAULT_BIN_WIDTH);
+    }
+
+    // Boundaries are the ascending lower bounds of every bucket after the first; the first
+    // bucket starts at 0. Bins of binWidth cover [0, MAX_GPA], with MAX_GPA in the last bin.
+    public GpaDistribution(double[] boundaries, double binWidth) {
+        for (int i = 0; i < boundaries.length; i++) {
+            if (boundaries[i] <= 0 || boundaries[i] > MAX_GPA || (i > 0 && boundaries[i] <= boundaries[i - 1])) {
+                throw new IllegalArgumentException("Boundaries must be ascending within (0, " + MAX_GPA + "]");
+            }
+        }
+        if (binWidth <= 0 || binWidth > MAX_GPA) {
+            throw new IllegalArgumentException("Bin width must be within (0, " + MAX_GPA + "]");
+        }
+        this.boundaries = boundaries.clone();
+        this.binWidth = binWidth;
+        this.bucketCounts = new int[boundaries.length + 1];
+        this.binCounts = new int[(int) Math.ceil(MAX_GPA / binWidth - 1e-9)];
+        this.students = new HashMap<>();
+    }
+
+    // Changes can arrive out of order; one older than the counted GPA is dropped.
+    @Override
+    public synchronized void onGpaChanged(GpaChange change) {
+        Student student = change.getStudent();
+        Tracked tracked = students.computeIfAbsent(student.getId(), k -> track(student));
+        if (change.getSequence() <= tracked.sequence) {
+            return;
+        }
+        uncount(tracked);
+        tracked.gpa = change.getNewGpa();
+        tracked.graded = change.isGraded();
+        tracked.sequence = change.getSequence();
+        count(tracked);
+    }
+
+    @Override
+    public synchronized void onStatusChanged(Student student, Student.Status oldStatus) {
+        Tracked tracked = students.get(student.getId());
+        if (tracked == null) {
+            return;
+        }
+        uncount(tracked);
+        tracked.active = student.getStatus() == Student.Status.ACTIVE;
+        count(tracked);
+    }
+
+    // An update can replace the student with one of a different status.
+    @Override
+    public void onStudentUpdated(Student previous, Student current) {
+        onStatusChanged(current, previous.getStatus());
+    }
+
+    public synchronized Map<String, Integer> getBucketCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = bucketCounts.length - 1; i >= 0; i--) {
+            counts.put(getBucketLabel(i), bucketCounts[i]);
+        }
+        return counts;
+    }
+
+    public synchronized int[] getHistogram() {
+        return binCounts.clone();
+    }
+
+    public double getBinWidth() {
+        return binWidth;
+    }
+
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    public String getBucketLabel(int bucket) {
+        double low = bucket == 0 ? 0.0 : boundaries[bucket - 1];
+        if (bucket == boundaries.length) {
+            return String.format("%.2f-%.2f", low, MAX_GPA);
+        }
+        return String.format("%.2f-<%.2f", low, boundaries[bucket]);
+    }
+
+    private static Tracked track(Student student) {
+        Tracked tracked = new Tracked();
+        tracked.active = student.getStatus() == Student.Status.ACTIVE;
+        return tracked;
+    }
+
+    private void count(Tracked tracked) {
+        adjust(tracked, 1);
+    }
+
+    private void uncount(Tracked tracked) {
+        adjust(tracked, -1);
+    }
+
+    private void adjust(Tracked tracked, int delta) {
+        if (!tracked.active || !tracked.graded) {
+            return;
+        }
+        bucketCounts[bucketOf(tracked.gpa)] += delta;
+        binCounts[binOf(tracked.gpa)] += delta;
+        total += delta;
+    }
+
+    private int bucketOf(double gpa) {
+        int bucket = Arrays.binarySearch(boundaries, gpa);
+        return bucket >= 0 ? bucket + 1 : -bucket - 1;
+    }
+
+    private int binOf(double gpa) {
+        return Math.min((int) (gpa / binWidth + 1e-9), binCounts.length - 1);
+    }
+}
@@ -0,0 +1,270 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.util.OrderStatisticTree;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// GPA rankings of active, graded students, kept current from grade and status events. One
+// order-statistics tree is maintained per (semester, department) scope, so "top K", "rank of
+// X" and GPA-range queries never touch students outside the answer.
+public class GpaLeaderboard implements EnrollmentListener, StudentListener {
+    private final Map<String, Standing> standings;
+    private final Map<Scope, OrderStatisticTree<Entry>> trees;
+
+    public static class Ranking {
+        private final int rank;
+        private final Student student;
+        private final double gpa;
+        private final int credits;
+
+        public Ranking(int rank, Student student, double gpa, int credits) {
+            this.rank = rank;
+            this.student = student;
+            this.gpa = gpa;
+            this.credits = credits;
+        }
+
+        public int getRank() { return rank; }
+        public Student getStudent() { return student; }
+        public double getGpa() { return gpa; }
+        public int getCredits() { return credits; }
+
+        @Override
+        public String toString() {
+            return String.format("%d. %s - GPA: %.2f", rank, student.getFullName(), gpa);
+        }
+    }
+
+    // Sequence numbers of the GpaChanges the overall and per-semester figures came from.
+    private static final class Standing {
+        Student student;
+        String department;
+        boolean active;
+        double gpa;
+        int credits;
+        long sequence;
+        final double[] semesterGpa = new double[Semester.values().length];
+        final int[] semesterCredits = new int[Semester.values().length];
+        final long[] semesterSequence = new long[Semester.values().length];
+
+        Standing(Student student) {
+            this.student = student;
+            this.department = normalize(student.getDepartment());
+            this.active = student.getStatus() == Student.Status.ACTIVE;
+        }
+    }
+
+    // A semester and department to rank within; null for either means all of them. Students
+    // without a department are ranked under the empty department.
+    private static final class Scope {
+        final Semester semester;
+        final String department;
+
+        Scope(Semester semester, String department) {
+            this.semester = semester;
+            this.department = department;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Scope)) return false;
+            Scope other = (Scope) obj;
+            return semester == other.semester && Objects.equals(department, other.department);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(semester, department);
+        }
+    }
+
+    // A null studentId sorts after every real ID with the same GPA; used only for range probes.
+    private static final class Entry {
+        final String studentId;
+        final double gpa;
+
+        Entry(String studentId, double gpa) {
+            this.studentId = studentId;
+            this.gpa = gpa;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int cmp = Double.compare(b.gpa, a.gpa);
+        if (cmp != 0) return cmp;
+        if (a.studentId == null) return b.studentId == null ? 0 : 1;
+        if (b.studentId == null) return -1;
+        return a.studentId.compareTo(b.studentId);
+    };
+
+    public GpaLeaderboard() {
+        this.standings = new HashMap<>();
+        this.trees = new HashMap<>();
+    }
+
+    // Changes can arrive out of order, so each figure is only replaced by a newer one.
+    @Override
+    public synchronized void onGpaChanged(GpaChange change) {
+        Student student = change.getStudent();
+        Standing standing = standings.computeIfAbsent(student.getId(), k -> new Standing(student));
+        int semester = change.getSemester().ordinal();
+        boolean overall = change.getSequence() > standing.sequence;
+        boolean inSemester = change.getSequence() > standing.semesterSequence[semester];
+        if (!overall && !inSemester) {
+            return;
+        }
+
+        unlist(standing);
+        if (overall) {
+            standing.gpa = change.getNewGpa();
+            standing.credits = change.getNewCredits();
+            standing.sequence = change.getSequence();
+        }
+        if (inSemester) {
+            standing.semesterGpa[semester] = change.getNewSemesterGpa();
+            standing.semesterCredits[semester] = change.getNewSemesterCredits();
+            standing.semesterSequence[semester] = change.getSequence();
+        }
+        list(standing);
+    }
+
+    @Override
+    public synchronized void onStatusChanged(Student student, Student.Status oldStatus) {
+        Standing standing = standings.get(student.getId());
+        boolean active = student.getStatus() == Student.Status.ACTIVE;
+        if (standing == null || standing.active == active) {
+            return;
+        }
+        if (active) {
+            addEntries(standing);
+        } else {
+            removeEntries(standing);
+        }
+        standing.active = active;
+    }
+
+    // The student may have moved department or changed status, which moves them between
+    // trees, and rankings should show the registered instance.
+    @Override
+    public synchronized void onStudentUpdated(Student previous, Student current) {
+        Standing standing = standings.get(current.getId());
+        if (standing == null) {
+            return;
+        }
+        String department = normalize(current.getDepartment());
+        boolean active = current.getStatus() == Student.Status.ACTIVE;
+        if (!department.equals(standing.department) || active != standing.active) {
+            unlist(standing);
+            standing.department = department;
+            standing.active = active;
+            list(standing);
+        }
+        standing.student = current;
+    }
+
+    public List<Ranking> getTopStudents(int count) {
+        return getTopStudents(count, null, null);
+    }
+
+    public synchronized List<Ranking> getTopStudents(int count, Semester semester, String department) {
+        OrderStatisticTree<Entry> tree = trees.get(scope(semester, department));
+        return tree != null ? toRankings(tree.range(0, count), 0, semester) : new ArrayList<>();
+    }
+
+    public int getRank(String studentId) {
+        return getRank(studentId, null, null);
+    }
+
+    // One-based rank within the scope, or -1 when the student is not ranked there.
+    public synchronized int getRank(String studentId, Semester semester, String department) {
+        Standing standing = standings.get(studentId);
+        OrderStatisticTree<Entry> tree = trees.get(scope(semester, department));
+        if (standing == null || tree == null) {
+            return -1;
+        }
+        int index = tree.rank(new Entry(studentId, gpaOf(standing, semester)));
+        return index >= 0 ? index + 1 : -1;
+    }
+
+    public synchronized List<Ranking> getStudentsInRange(double minGpa, double maxGpa,
+                                                         Semester semester, String department) {
+        OrderStatisticTree<Entry> tree = trees.get(scope(semester, department));
+        if (tree == null || minGpa > maxGpa) {
+            return new ArrayList<>();
+        }
+        int from = tree.countBefore(new Entry("", maxGpa));
+        int to = tree.countBefore(new Entry(null, minGpa));
+        return toRankings(tree.range(from, to), from, semester);
+    }
+
+    public synchronized int getRankedCount(Semester semester, String department) {
+        OrderStatisticTree<Entry> tree = trees.get(scope(semester, department));
+        return tree != null ? tree.size() : 0;
+    }
+
+    private List<Ranking> toRankings(List<Entry> entries, int offset, Semester semester) {
+        List<Ranking> rankings = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Standing standing = standings.get(entries.get(i).studentId);
+            int credits = semester == null ? standing.credits : standing.semesterCredits[semester.ordinal()];
+            rankings.add(new Ranking(offset + i + 1, standing.student, entries.get(i).gpa, credits));
+        }
+        return rankings;
+    }
+
+    private void list(Standing standing) {
+        if (standing.active) {
+            addEntries(standing);
+        }
+    }
+
+    private void unlist(Standing standing) {
+        if (standing.active) {
+            removeEntries(standing);
+        }
+    }
+
+    private void addEntries(Standing standing) {
+        forEachScope(standing, (scope, entry) ->
+                trees.computeIfAbsent(scope, k -> new OrderStatisticTree<>(ORDER)).add(entry));
+    }
+
+    private void removeEntries(Standing standing) {
+        forEachScope(standing, (scope, entry) -> {
+            OrderStatisticTree<Entry> tree = trees.get(scope);
+            if (tree != null) {
+                tree.remove(entry);
+            }
+        });
+    }
+
+    private void forEachScope(Standing standing, BiConsumer<Scope, Entry> action) {
+        String id = standing.student.getId();
+        if (standing.credits > 0) {
+            Entry entry = new Entry(id, standing.gpa);
+            action.accept(scope(null, null), entry);
+            action.accept(scope(null, standing.department), entry);
+        }
+        for (Semester semester : Semester.values()) {
+            if (standing.semesterCredits[semester.ordinal()] > 0) {
+                Entry entry = new Entry(id, standing.semesterGpa[semester.ordinal()]);
+                action.accept(scope(semester, null), entry);
+                action.accept(scope(semester, standing.department), entry);
+            }
+        }
+    }
+
+    private static double gpaOf(Standing standing, Semester semester) {
+        return semester == null ? standing.gpa : standing.semesterGpa[semester.ordinal()];
+    }
+
+    private static Scope scope(Semester semester, String department) {
+        return new Scope(semester, department == null ? null : normalize(department));
+    }
+
+    private static String normalize(String department) {
+        return department == null ? "" : department.trim().toLowerCase();
+    }
+}
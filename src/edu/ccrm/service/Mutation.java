@@ -0,0 +1,98 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+import java.time.LocalDateTime;
+
+// One state change as it is written to a MutationLog. Student and course records carry the
+// whole object, which the log encodes as soon as it is appended; the others name the student
+// and course by key. ENROLL records the outcome of an enrollment rather than the request, so
+// replaying it never re-runs the seat and credit checks.
+public final class Mutation {
+    public enum Type {
+        ADD_STUDENT, UPDATE_STUDENT, STUDENT_STATUS,
+        ADD_COURSE, UPDATE_COURSE,
+        ENROLL, WAITLIST, UNENROLL, GRADE
+    }
+
+    private final Type type;
+    private final Student student;
+    private final Course course;
+    private final String studentId;
+    private final String courseCode;
+    private final Student.Status status;
+    private final int credits;
+    private final double marks;
+    private final LocalDateTime time;
+
+    private Mutation(Type type, Student student, Course course, String studentId, String courseCode,
+                     Student.Status status, int credits, double marks, LocalDateTime time) {
+        this.type = type;
+        this.student = student;
+        this.course = course;
+        this.studentId = studentId;
+        this.courseCode = courseCode;
+        this.status = status;
+        this.credits = credits;
+        this.marks = marks;
+        this.time = time;
+    }
+
+    public static Mutation addStudent(Student student) {
+        return new Mutation(Type.ADD_STUDENT, student, null, student.getId(), null, null, 0, 0, null);
+    }
+
+    public static Mutation updateStudent(Student student) {
+        return new Mutation(Type.UPDATE_STUDENT, student, null, student.getId(), null, null, 0, 0, null);
+    }
+
+    public static Mutation studentStatus(String studentId, Student.Status status) {
+        return new Mutation(Type.STUDENT_STATUS, null, null, studentId, null, status, 0, 0, null);
+    }
+
+    public static Mutation addCourse(Course course) {
+        return new Mutation(Type.ADD_COURSE, null, course, null, course.getCode(), null, 0, 0, null);
+    }
+
+    public static Mutation updateCourse(Course course) {
+        return new Mutation(Type.UPDATE_COURSE, null, course, null, course.getCode(), null, 0, 0, null);
+    }
+
+    // The student took a seat, charged the given credits.
+    public static Mutation enroll(String studentId, String courseCode, int credits, LocalDateTime enrolledAt) {
+        return new Mutation(Type.ENROLL, null, null, studentId, courseCode, null, credits, 0, enrolledAt);
+    }
+
+    public static Mutation waitlist(String studentId, String courseCode) {
+        return new Mutation(Type.WAITLIST, null, null, studentId, courseCode, null, 0, 0, null);
+    }
+
+    // The student left the course, or its waitlist.
+    public static Mutation unenroll(String studentId, String courseCode) {
+        return new Mutation(Type.UNENROLL, null, null, studentId, courseCode, null, 0, 0, null);
+    }
+
+    public static Mutation grade(String studentId, String courseCode, double marks, LocalDateTime gradedAt) {
+        return new Mutation(Type.GRADE, null, null, studentId, courseCode, null, 0, marks, gradedAt);
+    }
+
+    public Type getType() { return type; }
+    public Student getStudent() { return student; }
+    public Course getCourse() { return course; }
+    public String getStudentId() { return studentId; }
+    public String getCourseCode() { return courseCode; }
+    public Student.Status getStatus() { return status; }
+    public int getCredits() { return credits; }
+    public double getMarks() { return marks; }
+    public LocalDateTime getTime() { return time; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Mutation[").append(type);
+        if (studentId != null) sb.append(", student=").append(studentId);
+        if (courseCode != null) sb.append(", course=").append(courseCode);
+        if (status != null) sb.append(", status=").append(status);
+        if (type == Type.GRADE) sb.append(", marks=").append(marks);
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,33 @@
+package edu.ccrm.service;
+
+// Write-ahead log of state changes. Services apply a change and append its record while still
+// holding the lock that orders it, so the log's order matches the order changes were applied
+// in; append must therefore only buffer. The service then releases its locks and waits in
+// awaitDurable before acknowledging the change to its caller, which lets one flush cover the
+// records of many concurrent callers.
+public interface MutationLog {
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public long append(Mutation mutation) {
+            return 0;
+        }
+
+        @Override
+        public long lastSequence() {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long sequence) {
+        }
+    };
+
+    // Returns the record's sequence number; numbers increase with every append.
+    long append(Mutation mutation);
+
+    long lastSequence();
+
+    // Blocks until every record up to the given sequence number is as durable as the log's
+    // policy promises. Throws UncheckedIOException if the log can no longer write.
+    void awaitDurable(long sequence);
+}
@@ -0,0 +1,183 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Per-student enrollment book-keeping. Not thread-safe on its own: EnrollmentService only
+// touches a ledger while holding that student's lock stripe.
+class StudentLedger {
+    private final Map<String, Entry> entries;
+    private final int[] creditsBySemester;
+    private final double[] gradePointsBySemester;
+    private final int[] gradedCreditsBySemester;
+    private double gradePoints;
+    private int gradedCredits;
+
+    // The semester and credits the entry is counted under; they follow the course's own.
+    static class Entry {
+        final Enrollment enrollment;
+        Semester semester;
+        int credits;
+        double gradePoints;
+        boolean graded;
+
+        Entry(Enrollment enrollment, int credits) {
+            this.enrollment = enrollment;
+            this.semester = enrollment.getCourse().getSemester();
+            this.credits = credits;
+        }
+    }
+
+    static class Totals {
+        final double gpa;
+        final int credits;
+        final double semesterGpa;
+        final int semesterCredits;
+
+        Totals(double gpa, int credits, double semesterGpa, int semesterCredits) {
+            this.gpa = gpa;
+            this.credits = credits;
+            this.semesterGpa = semesterGpa;
+            this.semesterCredits = semesterCredits;
+        }
+    }
+
+    StudentLedger() {
+        this.entries = new LinkedHashMap<>();
+        this.creditsBySemester = new int[Semester.values().length];
+        this.gradePointsBySemester = new double[Semester.values().length];
+        this.gradedCreditsBySemester = new int[Semester.values().length];
+    }
+
+    boolean isEnrolled(String courseCode) {
+        return entries.containsKey(courseCode);
+    }
+
+    Entry getEntry(String courseCode) {
+        return entries.get(courseCode);
+    }
+
+    int getCredits(Semester semester) {
+        return creditsBySemester[semester.ordinal()];
+    }
+
+    // Credits are charged from the entry, not read from the course, so a change to the course
+    // cannot leave the running counters out of balance; rebook moves the entry and the
+    // counters together.
+    Entry add(Enrollment enrollment) {
+        return add(enrollment, enrollment.getCourse().getCredits());
+    }
+
+    // Re-adds a saved enrollment with the credits it was charged, counting its grade if it
+    // already has one.
+    Entry add(Enrollment enrollment, int credits) {
+        Entry entry = new Entry(enrollment, credits);
+        entries.put(enrollment.getCourse().getCode(), entry);
+        creditsBySemester[entry.semester.ordinal()] += entry.credits;
+        if (enrollment.hasGrade()) {
+            countGrade(entry);
+        }
+        return entry;
+    }
+
+    Entry remove(String courseCode) {
+        Entry entry = entries.remove(courseCode);
+        if (entry != null) {
+            creditsBySemester[entry.semester.ordinal()] -= entry.credits;
+            if (entry.graded) {
+                retractGrade(entry);
+            }
+        }
+        return entry;
+    }
+
+    // Grade points are weighted by the credits charged, matching the credit counter, so every
+    // update is a constant-time adjustment of the running totals.
+    Entry recordGrade(String courseCode, double marks) {
+        return recordGrade(courseCode, marks, LocalDateTime.now());
+    }
+
+    Entry recordGrade(String courseCode, double marks, LocalDateTime gradeDate) {
+        Entry entry = entries.get(courseCode);
+        if (entry == null) {
+            return null;
+        }
+        entry.enrollment.setGrade(marks, gradeDate);
+        if (entry.graded) {
+            retractGrade(entry);
+        }
+        countGrade(entry);
+        return entry;
+    }
+
+    // Re-charges the entry at the course's new credits and moves it to the course's new
+    // semester, grade included. Returns the entry, or null if it is absent or unchanged. The
+    // semester credit limit is not re-checked: a change to the course does not drop anybody.
+    Entry rebook(String courseCode, int credits, Semester semester) {
+        Entry entry = entries.get(courseCode);
+        if (entry == null || (entry.credits == credits && entry.semester == semester)) {
+            return null;
+        }
+        creditsBySemester[entry.semester.ordinal()] -= entry.credits;
+        if (entry.graded) {
+            retractGrade(entry);
+        }
+        entry.credits = credits;
+        entry.semester = semester;
+        creditsBySemester[semester.ordinal()] += credits;
+        if (entry.graded) {
+            countGrade(entry);
+        }
+        return entry;
+    }
+
+    private void countGrade(Entry entry) {
+        entry.gradePoints = entry.enrollment.getGrade().getGradePoint() * entry.credits;
+        entry.graded = true;
+        gradePoints += entry.gradePoints;
+        gradedCredits += entry.credits;
+        gradePointsBySemester[entry.semester.ordinal()] += entry.gradePoints;
+        gradedCreditsBySemester[entry.semester.ordinal()] += entry.credits;
+    }
+
+    private void retractGrade(Entry entry) {
+        gradePoints -= entry.gradePoints;
+        gradedCredits -= entry.credits;
+        gradePointsBySemester[entry.semester.ordinal()] -= entry.gradePoints;
+        gradedCreditsBySemester[entry.semester.ordinal()] -= entry.credits;
+    }
+
+    double getGpa() {
+        return gradedCredits > 0 ? gradePoints / gradedCredits : 0.0;
+    }
+
+    double getGpa(Semester semester) {
+        int credits = gradedCreditsBySemester[semester.ordinal()];
+        return credits > 0 ? gradePointsBySemester[semester.ordinal()] / credits : 0.0;
+    }
+
+    int getGradedCredits() {
+        return gradedCredits;
+    }
+
+    int getGradedCredits(Semester semester) {
+        return gradedCreditsBySemester[semester.ordinal()];
+    }
+
+    Totals getTotals(Semester semester) {
+        return new Totals(getGpa(), gradedCredits, getGpa(semester), getGradedCredits(semester));
+    }
+
+    Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    List<Enrollment> getEnrollments() {
+        List<Enrollment> enrollments = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            enrollments.add(entry.enrollment);
+        }
+        return enrollments;
+    }
+}
@@ -0,0 +1,11 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Student;
+
+public interface StudentListener {
+    default void onStatusChanged(Student student, Student.Status oldStatus) {}
+
+    // updateStudent registered current in place of previous, which may be the same instance.
+    // Its status, department or any other field may differ.
+    default void onStudentUpdated(Student previous, Student current) {}
+}
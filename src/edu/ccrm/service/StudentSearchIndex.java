@@ -0,0 +1,233 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.util.BkTree;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Search structures behind StudentService.SearchCriteria. Every student gets a dense ordinal;
+// statuses and departments map to BitSets of ordinals, and a name query is turned into one by
+// setting the ordinals posted under each matching name token, so criteria combine by
+// intersecting bitsets. Name tokens are kept sorted for prefix lookups and in a BK-tree for
+// typo-tolerant lookups when no prefix matches.
+class StudentSearchIndex {
+    private final Map<String, Student> students;
+    private final Map<String, Integer> ordinals;
+    private final List<Student> studentsByOrdinal;
+    private final NavigableMap<String, Postings> nameTokens;
+    private final BkTree nameVocabulary;
+    private final BitSet[] statusBits;
+    private final Map<String, BitSet> departmentBits;
+    private final ReadWriteLock lock;
+
+    // Ordinals of the students with a given name token. Kept as a plain array rather than a
+    // BitSet so that unioning the thousands of tokens under a short prefix costs per student
+    // matched, not per student indexed.
+    private static final class Postings {
+        private int[] ordinals = new int[2];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size << 1);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        void remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    ordinals[i] = ordinals[--size];
+                    return;
+                }
+            }
+        }
+
+        void setAll(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(ordinals[i]);
+            }
+        }
+    }
+
+    StudentSearchIndex(Map<String, Student> students) {
+        this.students = students;
+        this.ordinals = new HashMap<>();
+        this.studentsByOrdinal = new ArrayList<>();
+        this.nameTokens = new TreeMap<>();
+        this.nameVocabulary = new BkTree();
+        this.statusBits = new BitSet[Student.Status.values().length];
+        for (int i = 0; i < statusBits.length; i++) {
+            statusBits[i] = new BitSet();
+        }
+        this.departmentBits = new HashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    // (Re)indexes whichever instance the service holds for the ID. Looking it up under the
+    // write lock means concurrent adds and replacements of one student always leave the
+    // newest instance indexed, whatever order they reach the index in.
+    void add(String studentId) {
+        lock.writeLock().lock();
+        try {
+            put(studentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void addAll(Collection<String> studentIds) {
+        lock.writeLock().lock();
+        try {
+            for (String studentId : studentIds) {
+                put(studentId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(String studentId) {
+        Student student = students.get(studentId);
+        if (student == null) {
+            return;
+        }
+        Integer existing = ordinals.get(studentId);
+        if (existing != null) {
+            unindex(existing);
+            studentsByOrdinal.set(existing, student);
+            index(existing, student);
+            return;
+        }
+        int ordinal = studentsByOrdinal.size();
+        ordinals.put(studentId, ordinal);
+        studentsByOrdinal.add(student);
+        index(ordinal, student);
+    }
+
+    void updateStatus(Student student, Student.Status oldStatus) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(student.getId());
+            if (ordinal != null) {
+                statusBits[oldStatus.ordinal()].clear(ordinal);
+                statusBits[student.getStatus().ordinal()].set(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<Student> search(String namePattern, Student.Status status, String department) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            if (namePattern != null) {
+                for (String term : tokenize(namePattern)) {
+                    matches = intersect(matches, matchName(term));
+                }
+            }
+            if (status != null) {
+                matches = intersect(matches, statusBits[status.ordinal()]);
+            }
+            if (department != null) {
+                BitSet bits = departmentBits.get(normalize(department));
+                matches = intersect(matches, bits != null ? bits : new BitSet());
+            }
+
+            List<Student> result = new ArrayList<>();
+            if (matches == null) {
+                result.addAll(studentsByOrdinal);
+                return result;
+            }
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                Student student = studentsByOrdinal.get(i);
+                // Status can also be changed on the instance directly, so confirm it here.
+                if (status == null || student.getStatus() == status) {
+                    result.add(student);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Students with a name token starting with the term; failing that, students with a name
+    // token within a small edit distance of it.
+    private BitSet matchName(String term) {
+        BitSet bits = new BitSet();
+        for (Postings postings : nameTokens.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            postings.setAll(bits);
+        }
+        if (bits.isEmpty() && term.length() > 2) {
+            // One typo for short words, two for longer ones; a wider net on short names matches
+            // too much of the vocabulary to be useful and walks most of the BK-tree.
+            int tolerance = term.length() <= 5 ? 1 : 2;
+            for (String token : nameVocabulary.search(term, tolerance)) {
+                nameTokens.get(token).setAll(bits);
+            }
+        }
+        return bits;
+    }
+
+    private void index(int ordinal, Student student) {
+        for (String token : nameTokensOf(student)) {
+            nameTokens.computeIfAbsent(token, k -> {
+                nameVocabulary.add(k);
+                return new Postings();
+            }).add(ordinal);
+        }
+        statusBits[student.getStatus().ordinal()].set(ordinal);
+        departmentBits.computeIfAbsent(normalize(student.getDepartment()), k -> new BitSet()).set(ordinal);
+    }
+
+    // Tokens that lose their last student stay in the BK-tree; matchName tolerates that
+    // because their postings are simply empty.
+    private void unindex(int ordinal) {
+        Student student = studentsByOrdinal.get(ordinal);
+        for (String token : nameTokensOf(student)) {
+            Postings postings = nameTokens.get(token);
+            if (postings != null) {
+                postings.remove(ordinal);
+            }
+        }
+        for (BitSet bits : statusBits) {
+            bits.clear(ordinal);
+        }
+        BitSet bits = departmentBits.get(normalize(student.getDepartment()));
+        if (bits != null) {
+            bits.clear(ordinal);
+        }
+    }
+
+    private static List<String> nameTokensOf(Student student) {
+        Name name = student.getFullName();
+        List<String> tokens = tokenize(name.getFirstName());
+        tokens.addAll(tokenize(name.getLastName()));
+        return tokens;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.trim().toLowerCase().split("\\s+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static BitSet intersect(BitSet current, BitSet bits) {
+        if (current == null) {
+            return (BitSet) bits.clone();
+        }
+        current.and(bits);
+        return current;
+    }
+
+    private static String normalize(String department) {
+        return department == null ? "" : department.trim().toLowerCase();
+    }
+}
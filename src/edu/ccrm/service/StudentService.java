@@ -5,10 +5,21 @@ import edu.ccrm.service.exceptions.*;
 import edu.ccrm.util.ValidationUtil;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class StudentService {
+    private static final int LOCK_STRIPES = 256;
+
     private final Map<String, Student> students;
+    private final Map<String, String> idsByRegNo;
+    private final Map<String, String> idsByEmail;
+    private final Map<String, String> indexedEmails;
+    private final List<StudentListener> listeners;
+    private final StudentSearchIndex searchIndex;
+    private final Object[] studentLocks;
+    private volatile MutationLog mutationLog;
 
     public static class ServiceStats {
         private final int totalStudents;
@@ -34,23 +45,162 @@ public class StudentService {
 
     public StudentService() {
         this.students = new ConcurrentHashMap<>();
+        this.idsByRegNo = new ConcurrentHashMap<>();
+        this.idsByEmail = new ConcurrentHashMap<>();
+        this.indexedEmails = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.searchIndex = new StudentSearchIndex(students);
+        this.studentLocks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            studentLocks[i] = new Object();
+        }
+        this.mutationLog = MutationLog.NONE;
+    }
+
+    // Every change to a student is made holding the stripe of its ID, so changes to one
+    // student, and the listener calls and journal records they make, happen one at a time
+    // and in order. An update replaces the student's instance, so locking the instance would
+    // let a change waiting on the replaced one run alongside the next.
+    private Object lockFor(String studentId) {
+        int h = studentId.hashCode();
+        h ^= (h >>> 16);
+        return studentLocks[h & (LOCK_STRIPES - 1)];
+    }
+
+    // Attach once state has been restored and replayed; from then on every change is journaled.
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    public void addListener(StudentListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(StudentListener listener) {
+        listeners.remove(listener);
     }
 
     public void addStudent(Student student) throws DuplicateStudentException {
         ValidationUtil.validateStudent(student);
 
-        if (students.containsKey(student.getId())) {
-            throw new DuplicateStudentException("Student with ID " + student.getId() + " already exists");
+        long sequence;
+        // Held so that a status change or update racing with the insert is journaled after it.
+        synchronized (lockFor(student.getId())) {
+            String conflict = claim(student);
+            if (conflict != null) {
+                throw new DuplicateStudentException(conflict);
+            }
+            sequence = mutationLog.append(Mutation.addStudent(student));
+        }
+        searchIndex.add(student.getId());
+        mutationLog.awaitDurable(sequence);
+    }
+
+    // Inserts a batch: students are validated in parallel, inserted one by one, and then
+    // indexed for search under a single lock acquisition. Invalid and duplicate students are
+    // reported per position instead of aborting the batch.
+    public BulkResult addAll(List<Student> batch) {
+        return addAll(batch, true);
+    }
+
+    // validate may be false when the caller has already run ValidationUtil on the batch.
+    public BulkResult addAll(List<Student> batch, boolean validate) {
+        int size = batch.size();
+        BulkResult.Outcome[] outcomes = new BulkResult.Outcome[size];
+        String[] reasons = new String[size];
+        if (validate) {
+            IntStream.range(0, size).parallel().forEach(i -> {
+                try {
+                    ValidationUtil.validateStudent(batch.get(i));
+                } catch (IllegalArgumentException e) {
+                    outcomes[i] = BulkResult.Outcome.INVALID;
+                    reasons[i] = e.getMessage();
+                }
+            });
+        }
+
+        List<String> inserted = new ArrayList<>(size);
+        long sequence = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] != null) {
+                continue;
+            }
+            Student student = batch.get(i);
+            synchronized (lockFor(student.getId())) {
+                String conflict = claim(student);
+                if (conflict != null) {
+                    outcomes[i] = BulkResult.Outcome.DUPLICATE;
+                    reasons[i] = conflict;
+                    continue;
+                }
+                sequence = mutationLog.append(Mutation.addStudent(student));
+            }
+            outcomes[i] = BulkResult.Outcome.INSERTED;
+            inserted.add(student.getId());
+        }
+        searchIndex.addAll(inserted);
+        mutationLog.awaitDurable(sequence);
+        return new BulkResult(outcomes, reasons);
+    }
+
+    // Loads students saved in a snapshot straight into the maps and indexes. They passed
+    // validation and the uniqueness checks when first added, so neither is repeated; meant for
+    // filling an empty service at startup.
+    public void restore(Collection<Student> restored) {
+        List<String> ids = new ArrayList<>(restored.size());
+        for (Student student : restored) {
+            String id = student.getId();
+            students.put(id, student);
+            idsByRegNo.put(student.getRegNo(), id);
+            String email = emailKey(student.getEmail());
+            if (email != null) {
+                idsByEmail.put(email, id);
+                indexedEmails.put(id, email);
+            }
+            ids.add(id);
+        }
+        searchIndex.addAll(ids);
+    }
+
+    // Makes the student visible under its ID, registration number and email, or returns why
+    // it cannot be. Each unique key is claimed with putIfAbsent before the student becomes
+    // visible, and released again if a later claim fails, so two racing inserts can never
+    // both win.
+    private String claim(Student student) {
+        String id = student.getId();
+        if (students.containsKey(id)) {
+            return "Student with ID " + id + " already exists";
+        }
+
+        if (idsByRegNo.putIfAbsent(student.getRegNo(), id) != null) {
+            return "Student with registration number " + student.getRegNo() + " already exists";
+        }
+
+        String email = emailKey(student.getEmail());
+        if (email != null && idsByEmail.putIfAbsent(email, id) != null) {
+            idsByRegNo.remove(student.getRegNo(), id);
+            return "Student with email " + student.getEmail() + " already exists";
         }
 
-        boolean regNoExists = students.values().stream()
-                .anyMatch(s -> s.getRegNo().equals(student.getRegNo()));
+        if (students.putIfAbsent(id, student) != null) {
+            idsByRegNo.remove(student.getRegNo(), id);
+            if (email != null) {
+                idsByEmail.remove(email, id);
+            }
+            return "Student with ID " + id + " already exists";
+        }
 
-        if (regNoExists) {
-            throw new DuplicateStudentException("Student with registration number " + student.getRegNo() + " already exists");
+        if (email != null) {
+            indexedEmails.put(id, email);
         }
+        return null;
+    }
 
-        students.put(student.getId(), student);
+    private static String emailKey(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase();
     }
 
     public Student findStudentById(String id) {
@@ -58,10 +208,14 @@ public class StudentService {
     }
 
     public Student findStudentByRegNo(String regNo) {
-        return students.values().stream()
-                .filter(s -> s.getRegNo().equals(regNo))
-                .findFirst()
-                .orElse(null);
+        String id = idsByRegNo.get(regNo);
+        return id != null ? students.get(id) : null;
+    }
+
+    public Student findStudentByEmail(String email) {
+        String key = emailKey(email);
+        String id = key != null ? idsByEmail.get(key) : null;
+        return id != null ? students.get(id) : null;
     }
 
     public List<Student> getAllStudents() {
@@ -74,19 +228,137 @@ public class StudentService {
                 .collect(Collectors.toList());
     }
 
-    public void updateStudent(Student student) throws StudentNotFoundException {
-        if (!students.containsKey(student.getId())) {
-            throw new StudentNotFoundException("Student with ID " + student.getId() + " not found");
+    // The registered instance is read under the student's stripe, so the image listeners are
+    // given as the previous one is always the one this update replaces.
+    public void updateStudent(Student student) throws StudentNotFoundException, DuplicateStudentException {
+        String id = student.getId();
+        long sequence;
+        synchronized (lockFor(id)) {
+            Student existing = students.get(id);
+            if (existing == null) {
+                throw new StudentNotFoundException("Student with ID " + id + " not found");
+            }
+            sequence = update(existing, student);
+        }
+        mutationLog.awaitDurable(sequence);
+    }
+
+    // Caller holds lockFor(student.getId()); existing is the registered instance.
+    private long update(Student existing, Student student) throws DuplicateStudentException {
+        String id = student.getId();
+        String oldRegNo = existing.getRegNo();
+        String newRegNo = student.getRegNo();
+        boolean regNoChanged = !oldRegNo.equals(newRegNo);
+        if (regNoChanged && idsByRegNo.putIfAbsent(newRegNo, id) != null) {
+            throw new DuplicateStudentException("Student with registration number " + newRegNo + " already exists");
         }
-        students.put(student.getId(), student);
+
+        // The email may have been edited on the instance itself, so compare against the
+        // key that is actually indexed rather than the existing object's current email.
+        String oldEmail = indexedEmails.get(id);
+        String newEmail = emailKey(student.getEmail());
+        boolean emailChanged = !Objects.equals(oldEmail, newEmail);
+        if (emailChanged && newEmail != null && idsByEmail.putIfAbsent(newEmail, id) != null) {
+            if (regNoChanged) {
+                idsByRegNo.remove(newRegNo, id);
+            }
+            throw new DuplicateStudentException("Student with email " + student.getEmail() + " already exists");
+        }
+
+        students.put(id, student);
+        searchIndex.add(id);
+
+        if (regNoChanged) {
+            idsByRegNo.remove(oldRegNo, id);
+        }
+        if (emailChanged) {
+            if (oldEmail != null) {
+                idsByEmail.remove(oldEmail, id);
+            }
+            if (newEmail != null) {
+                indexedEmails.put(id, newEmail);
+            } else {
+                indexedEmails.remove(id);
+            }
+        }
+        for (StudentListener listener : listeners) {
+            listener.onStudentUpdated(existing, student);
+        }
+        return mutationLog.append(Mutation.updateStudent(student));
     }
 
     public void deactivateStudent(String studentId) throws StudentNotFoundException {
-        Student student = findStudentById(studentId);
-        if (student == null) {
-            throw new StudentNotFoundException("Student with ID " + studentId + " not found");
+        updateStatus(studentId, Student.Status.INACTIVE);
+    }
+
+    // The student is looked up under its stripe, so the status is never set on an instance
+    // an update has just replaced.
+    public void updateStatus(String studentId, Student.Status status) throws StudentNotFoundException {
+        long sequence;
+        synchronized (lockFor(studentId)) {
+            Student student = findStudentById(studentId);
+            if (student == null) {
+                throw new StudentNotFoundException("Student with ID " + studentId + " not found");
+            }
+            Student.Status oldStatus = student.getStatus();
+            if (oldStatus == status) {
+                return;
+            }
+            student.setStatus(status);
+            searchIndex.updateStatus(student, oldStatus);
+            for (StudentListener listener : listeners) {
+                listener.onStatusChanged(student, oldStatus);
+            }
+            sequence = mutationLog.append(Mutation.studentStatus(studentId, status));
+        }
+        mutationLog.awaitDurable(sequence);
+    }
+
+    // Applies a journaled student change on top of restored state; a change the snapshot
+    // already contains is applied again harmlessly. An update that only touched the email is
+    // made on the current instance, so enrollments keep pointing at it.
+    public void replay(Mutation mutation) {
+        Student existing = students.get(mutation.getStudentId());
+        switch (mutation.getType()) {
+            case ADD_STUDENT, UPDATE_STUDENT -> {
+                Student image = mutation.getStudent();
+                if (existing == null) {
+                    if (claim(image) == null) {
+                        searchIndex.add(image.getId());
+                    }
+                    return;
+                }
+                if (mutation.getType() == Mutation.Type.ADD_STUDENT) {
+                    return;
+                }
+                Student target = image;
+                if (existing.getRegNo().equals(image.getRegNo()) && existing.getFullName().equals(image.getFullName())
+                        && Objects.equals(existing.getDepartment(), image.getDepartment())) {
+                    if (!Objects.equals(existing.getEmail(), image.getEmail())) {
+                        existing.setEmail(image.getEmail());
+                    }
+                    target = existing;
+                }
+                try {
+                    updateStudent(target);
+                } catch (StudentNotFoundException | DuplicateStudentException e) {
+                    // A later record moves the conflicting key; the end state is what matters.
+                }
+                if (target.getStatus() != image.getStatus()) {
+                    replay(Mutation.studentStatus(image.getId(), image.getStatus()));
+                }
+            }
+            case STUDENT_STATUS -> {
+                if (existing != null) {
+                    try {
+                        updateStatus(existing.getId(), mutation.getStatus());
+                    } catch (StudentNotFoundException e) {
+                        // Not possible: the student was just found.
+                    }
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a student mutation: " + mutation.getType());
         }
-        student.setStatus(Student.Status.INACTIVE);
     }
 
     public ServiceStats getServiceStats() {
@@ -120,12 +392,10 @@ public class StudentService {
             return this;
         }
 
+        // Each word of the name pattern must prefix a first- or last-name word; a word that
+        // prefixes nothing falls back to names within a small edit distance of it.
         public List<Student> search() {
-            return students.values().stream()
-                    .filter(s -> namePattern == null ||
-                            s.getFullName().toString().toLowerCase().contains(namePattern.toLowerCase()))
-                    .filter(s -> status == null || s.getStatus() == status)
-                    .collect(Collectors.toList());
+            return searchIndex.search(namePattern, status, department);
         }
     }
 
@@ -1,116 +1,361 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
-public class TranscriptService {
-    private final EnrollmentService enrollmentService;
+// Transcripts viewed one at a time go through a cache of each student's rendered semester
+// blocks and totals, bounded both by entry count and by total characters, least recently used
+// evicted first. The header is written fresh each time, as it carries the generated time.
+// Entries are dropped when EnrollmentService reports a change touching the student. A render
+// that raced with such a change is returned but not cached, so a stale entry is never stored.
+// Batches written through writeTranscript bypass the cache. Courses are listed with the credits
+// and semester the ledger counts them under, so the transcript GPA agrees with calculateGPA,
+// and with the title of the course as it now stands.
+public class TranscriptService implements EnrollmentListener {
+    public static final int DEFAULT_CACHE_ENTRIES = 1_000;
+    public static final long DEFAULT_CACHE_CHARS = 4L * 1024 * 1024;
 
-    public TranscriptService() {
+    private static final DateTimeFormatter GENERATED_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // Invalidations bump the stamp of the student's stripe; a render is cached only if its
+    // stripe's stamp did not move while it ran.
+    private static final int STAMP_STRIPES = 256;
 
-        this.enrollmentService = null;
-    }
+    public static class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int entries;
+        private final long chars;
 
-    public String generateTranscript(Student student) {
-        List<Enrollment> enrollments = getStudentEnrollments(student.getId());
+        public CacheStats(long hits, long misses, long evictions, long invalidations, int entries, long chars) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.entries = entries;
+            this.chars = chars;
+        }
 
-        StringBuilder transcript = new StringBuilder();
-        transcript.append("OFFICIAL TRANSCRIPT\n");
-        transcript.append("===================\n\n");
-        transcript.append("Student: ").append(student.getFullName()).append("\n");
-        transcript.append("Registration No: ").append(student.getRegNo()).append("\n");
-        transcript.append("Generated: ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))).append("\n\n");
+        public long getHitCount() { return hits; }
+        public long getMissCount() { return misses; }
+        // Entries dropped to stay within the bounds.
+        public long getEvictionCount() { return evictions; }
+        // Entries dropped because the student's enrollments changed.
+        public long getInvalidationCount() { return invalidations; }
+        public int getEntryCount() { return entries; }
+        public long getCharCount() { return chars; }
 
-        Map<Semester, List<Enrollment>> bySemester = enrollments.stream()
-                .filter(e -> e.hasGrade())
-                .collect(Collectors.groupingBy(e -> e.getCourse().getSemester()));
+        public double getHitRate() {
+            return hits + misses > 0 ? (double) hits / (hits + misses) : 0.0;
+        }
 
-        double totalGradePoints = 0.0;
-        int totalCredits = 0;
+        @Override
+        public String toString() {
+            return String.format("TranscriptCache[%d hits, %d misses (%.1f%% hit), %d evicted, %d invalidated, %d entries, %d chars]",
+                    hits, misses, getHitRate() * 100, evictions, invalidations, entries, chars);
+        }
+    }
 
-        for (Semester semester : Semester.values()) {
-            List<Enrollment> semesterEnrollments = bySemester.get(semester);
-            if (semesterEnrollments == null || semesterEnrollments.isEmpty()) {
-                continue;
+    // One student's semester blocks, by Semester ordinal and null where nothing is graded,
+    // and the closing totals.
+    private static final class CachedTranscript {
+        final String[] semesters;
+        final String totals;
+        final int chars;
+
+        CachedTranscript(String[] semesters, String totals) {
+            this.semesters = semesters;
+            this.totals = totals;
+            int length = totals.length();
+            for (String block : semesters) {
+                length += block != null ? block.length() : 0;
             }
+            this.chars = length;
+        }
+    }
 
-            transcript.append(semester.getDisplayName()).append("\n");
-            transcript.append("-".repeat(semester.getDisplayName().length())).append("\n");
+    // Grade points and credits summed across semesters.
+    private static final class Tally {
+        double gradePoints;
+        int credits;
+    }
 
-            double semesterGradePoints = 0.0;
-            int semesterCredits = 0;
+    private final EnrollmentService enrollmentService;
+    private final int maxEntries;
+    private final long maxChars;
+    // Guarded by itself, as are the stamps and counters below.
+    private final LinkedHashMap<String, CachedTranscript> cache;
+    private final long[] stamps;
+    private long chars;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
 
-            for (Enrollment enrollment : semesterEnrollments) {
-                Course course = enrollment.getCourse();
-                Grade grade = enrollment.getGrade();
+    public TranscriptService(EnrollmentService enrollmentService) {
+        this(enrollmentService, DEFAULT_CACHE_ENTRIES, DEFAULT_CACHE_CHARS);
+    }
 
-                transcript.append(String.format("%-8s %-30s %2d %5.1f %s\n",
-                        course.getCode(),
-                        course.getTitle(),
-                        course.getCredits(),
-                        enrollment.getMarks(),
-                        grade.name()));
+    // A maxEntries of 0 turns the cache off.
+    public TranscriptService(EnrollmentService enrollmentService, int maxEntries, long maxChars) {
+        if (maxEntries < 0 || maxChars < 0) throw new IllegalArgumentException("Cache bounds cannot be negative");
+        this.enrollmentService = enrollmentService;
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.stamps = new long[STAMP_STRIPES];
+        enrollmentService.addListener(this);
+    }
 
-                double gradePoints = grade.getGradePoint() * course.getCredits();
-                semesterGradePoints += gradePoints;
-                semesterCredits += course.getCredits();
+    public String generateTranscript(Student student) {
+        CachedTranscript cached = cached(student);
+        StringBuilder transcript = new StringBuilder(256 + cached.chars);
+        try {
+            writeHeader(student, transcript, LocalDateTime.now());
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+            throw new UncheckedIOException(e);
+        }
+        for (String block : cached.semesters) {
+            if (block != null) {
+                transcript.append(block);
             }
+        }
+        return transcript.append(cached.totals).toString();
+    }
 
-            double semesterGPA = semesterCredits > 0 ? semesterGradePoints / semesterCredits : 0.0;
+    // The semester's courses and GPA as they appear on the transcript, or an empty string
+    // if nothing in it is graded yet.
+    public String generateSemesterReport(Student student, Semester semester) {
+        String block = cached(student).semesters[semester.ordinal()];
+        return block != null ? block : "";
+    }
 
-            transcript.append(String.format("\nSemester GPA: %.2f\n\n", semesterGPA));
+    // Writes the transcript as UTF-8. The stream is flushed but left open.
+    public void writeTranscript(Student student, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeTranscript(student, writer, LocalDateTime.now());
+        writer.flush();
+    }
 
-            totalGradePoints += semesterGradePoints;
-            totalCredits += semesterCredits;
+    // Renders the transcript straight into out, without building it as a String first or
+    // formatting a row at a time. Numbers are always written with a '.' decimal point, where
+    // String.format used the default locale's. A batch passes one generated time to all of
+    // its transcripts.
+    public void writeTranscript(Student student, Appendable out, LocalDateTime generated) throws IOException {
+        List<EnrollmentService.EnrollmentRecord> records = getStudentRecords(student.getId());
+        writeHeader(student, out, generated);
+        Tally tally = new Tally();
+        for (Semester semester : Semester.values()) {
+            writeSemester(out, semester, records, tally);
         }
+        writeTotals(out, tally);
+    }
 
-        double overallGPA = totalCredits > 0 ? totalGradePoints / totalCredits : 0.0;
-        transcript.append(String.format("Overall GPA: %.2f\n", overallGPA));
-        transcript.append(String.format("Total Credits: %d\n", totalCredits));
+    public CacheStats getCacheStats() {
+        synchronized (cache) {
+            return new CacheStats(hits, misses, evictions, invalidations, cache.size(), chars);
+        }
+    }
 
-        return transcript.toString();
+    @Override
+    public void onEnrollmentsChanged(Student student) {
+        String studentId = student.getId();
+        synchronized (cache) {
+            stamps[stripe(studentId)]++;
+            CachedTranscript removed = cache.remove(studentId);
+            if (removed != null) {
+                chars -= removed.chars;
+                invalidations++;
+            }
+        }
     }
 
-    public double calculateGPA(Student student) {
-        List<Enrollment> enrollments = getStudentEnrollments(student.getId());
+    private CachedTranscript cached(Student student) {
+        String studentId = student.getId();
+        long stamp;
+        synchronized (cache) {
+            CachedTranscript cached = cache.get(studentId);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            stamp = stamps[stripe(studentId)];
+        }
 
-        double totalGradePoints = 0.0;
-        int totalCredits = 0;
+        CachedTranscript rendered = render(getStudentRecords(studentId));
+        synchronized (cache) {
+            if (stamps[stripe(studentId)] == stamp && maxEntries > 0 && rendered.chars <= maxChars) {
+                CachedTranscript replaced = cache.put(studentId, rendered);
+                chars += rendered.chars - (replaced != null ? replaced.chars : 0);
+                Iterator<CachedTranscript> eldest = cache.values().iterator();
+                while (cache.size() > maxEntries || chars > maxChars) {
+                    chars -= eldest.next().chars;
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+        }
+        return rendered;
+    }
 
-        for (Enrollment enrollment : enrollments) {
-            if (enrollment.hasGrade()) {
-                double gradePoints = enrollment.getGrade().getGradePoint() * enrollment.getCourse().getCredits();
-                totalGradePoints += gradePoints;
-                totalCredits += enrollment.getCourse().getCredits();
+    private CachedTranscript render(List<EnrollmentService.EnrollmentRecord> records) {
+        try {
+            Tally tally = new Tally();
+            String[] semesters = new String[Semester.values().length];
+            StringBuilder block = new StringBuilder(512);
+            for (Semester semester : Semester.values()) {
+                block.setLength(0);
+                writeSemester(block, semester, records, tally);
+                semesters[semester.ordinal()] = block.length() > 0 ? block.toString() : null;
             }
+            block.setLength(0);
+            writeTotals(block, tally);
+            return new CachedTranscript(semesters, block.toString());
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return totalCredits > 0 ? totalGradePoints / totalCredits : 0.0;
+    private static int stripe(String studentId) {
+        int h = studentId.hashCode();
+        return (h ^ (h >>> 16)) & (STAMP_STRIPES - 1);
     }
 
-    public double calculateSemesterGPA(Student student, Semester semester) {
-        List<Enrollment> enrollments = getStudentEnrollments(student.getId());
+    private static void writeHeader(Student student, Appendable out, LocalDateTime generated) throws IOException {
+        out.append("OFFICIAL TRANSCRIPT\n");
+        out.append("===================\n\n");
+        out.append("Student: ").append(String.valueOf(student.getFullName())).append('\n');
+        out.append("Registration No: ").append(student.getRegNo()).append('\n');
+        out.append("Generated: ");
+        GENERATED_FORMAT.formatTo(generated, out);
+        out.append("\n\n");
+    }
 
-        double totalGradePoints = 0.0;
-        int totalCredits = 0;
+    // Writes nothing for a semester with no graded course. A pass over a student's handful of
+    // enrollments per semester keeps them in enrollment order without grouping them first.
+    private void writeSemester(Appendable out, Semester semester,
+                               List<EnrollmentService.EnrollmentRecord> records, Tally tally) throws IOException {
+        double semesterGradePoints = 0.0;
+        int semesterCredits = 0;
+        boolean any = false;
 
-        for (Enrollment enrollment : enrollments) {
-            if (enrollment.hasGrade() && enrollment.getCourse().getSemester() == semester) {
-                double gradePoints = enrollment.getGrade().getGradePoint() * enrollment.getCourse().getCredits();
-                totalGradePoints += gradePoints;
-                totalCredits += enrollment.getCourse().getCredits();
+        for (EnrollmentService.EnrollmentRecord record : records) {
+            Enrollment enrollment = record.getEnrollment();
+            if (!enrollment.hasGrade() || record.getSemester() != semester) {
+                continue;
+            }
+            Course course = enrollmentService.getCurrentCourse(enrollment.getCourse());
+            int credits = record.getChargedCredits();
+            if (!any) {
+                out.append(semester.getDisplayName()).append('\n');
+                pad(out, 0, semester.getDisplayName().length(), '-');
+                out.append('\n');
+                any = true;
             }
+            Grade grade = enrollment.getGrade();
+
+            // "%-8s %-30s %2d %5.1f %s"
+            appendLeft(out, course.getCode(), 8);
+            out.append(' ');
+            appendLeft(out, course.getTitle(), 30);
+            out.append(' ');
+            appendRight(out, Integer.toString(credits), 2);
+            out.append(' ');
+            appendFixed(out, enrollment.getMarks(), 1, 5);
+            out.append(' ').append(grade.name()).append('\n');
+
+            double gradePoints = grade.getGradePoint() * credits;
+            semesterGradePoints += gradePoints;
+            semesterCredits += credits;
         }
+        if (!any) {
+            return;
+        }
+
+        double semesterGPA = semesterCredits > 0 ? semesterGradePoints / semesterCredits : 0.0;
 
-        return totalCredits > 0 ? totalGradePoints / totalCredits : 0.0;
+        out.append("\nSemester GPA: ");
+        appendFixed(out, semesterGPA, 2, 0);
+        out.append("\n\n");
+
+        tally.gradePoints += semesterGradePoints;
+        tally.credits += semesterCredits;
     }
 
+    private static void writeTotals(Appendable out, Tally tally) throws IOException {
+        double overallGPA = tally.credits > 0 ? tally.gradePoints / tally.credits : 0.0;
+        out.append("Overall GPA: ");
+        appendFixed(out, overallGPA, 2, 0);
+        out.append("\nTotal Credits: ").append(Integer.toString(tally.credits)).append('\n');
+    }
 
-    private List<Enrollment> getStudentEnrollments(String studentId) {
+    public double calculateGPA(Student student) {
+        return enrollmentService.getGpa(student.getId());
+    }
 
-        return new ArrayList<>();
+    public double calculateSemesterGPA(Student student, Semester semester) {
+        return enrollmentService.getSemesterGpa(student.getId(), semester);
+    }
+
+
+    private List<EnrollmentService.EnrollmentRecord> getStudentRecords(String studentId) {
+        return enrollmentService.getStudentRecords(studentId);
+    }
+
+    private static void appendLeft(Appendable out, String value, int width) throws IOException {
+        out.append(value);
+        pad(out, value.length(), width, ' ');
+    }
+
+    private static void appendRight(Appendable out, CharSequence value, int width) throws IOException {
+        pad(out, value.length(), width, ' ');
+        out.append(value);
+    }
+
+    private static void pad(Appendable out, int length, int width, char fill) throws IOException {
+        for (int i = length; i < width; i++) {
+            out.append(fill);
+        }
+    }
+
+    // Rounds half up like String.format("%.nf"), which rounds the shortest decimal that
+    // represents the double rather than its exact binary value. The two only disagree when
+    // the scaled value lies right at a half, so only then is the decimal worked out exactly.
+    private static void appendFixed(Appendable out, double value, int decimals, int width) throws IOException {
+        long scale = (long) Math.pow(10, decimals);
+        double scaled = Math.abs(value) * scale;
+        if (!Double.isFinite(value) || scaled >= Long.MAX_VALUE / 2
+                || Math.abs(scaled - Math.floor(scaled) - 0.5) < 1e-6) {
+            appendRight(out, Double.isFinite(value)
+                    ? new BigDecimal(Double.toString(value)).setScale(decimals, RoundingMode.HALF_UP).toPlainString()
+                    : Double.toString(value), width);
+            return;
+        }
+        long rounded = (long) Math.floor(scaled + 0.5);
+        String whole = Long.toString(rounded / scale);
+        String part = Long.toString(rounded % scale);
+        boolean negative = value < 0;
+        pad(out, (negative ? 1 : 0) + whole.length() + 1 + decimals, width, ' ');
+        if (negative) {
+            out.append('-');
+        }
+        out.append(whole).append('.');
+        pad(out, part.length(), decimals, '0');
+        out.append(part);
     }
 }
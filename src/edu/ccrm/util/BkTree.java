@@ -0,0 +1,116 @@
+package edu.ccrm.util;
+
+import java.util.*;
+
+// Burkhard-Keller tree over Levenshtein distance. A lookup within distance d only descends into
+// children whose edge distance lies in [dist - d, dist + d], which prunes most of the vocabulary
+// for the small tolerances used in typo-tolerant search. Not thread-safe.
+public class BkTree {
+    private Node root;
+    private int size;
+
+    // Edge distances are small integers, so children are kept in an array indexed by distance
+    // rather than a map; maxEdge is the highest occupied slot.
+    private static final class Node {
+        final String term;
+        Node[] children;
+        int maxEdge;
+
+        Node(String term) {
+            this.term = term;
+        }
+    }
+
+    public boolean add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return true;
+        }
+        int[] previous = new int[term.length() + 1];
+        int[] current = new int[term.length() + 1];
+        Node node = root;
+        for (;;) {
+            int distance = distance(node.term, term, Integer.MAX_VALUE - 1, previous, current);
+            if (distance == 0) {
+                return false;
+            }
+            Node child = distance <= node.maxEdge ? node.children[distance] : null;
+            if (child == null) {
+                if (node.children == null || distance >= node.children.length) {
+                    node.children = node.children == null
+                            ? new Node[Math.max(4, distance + 1)]
+                            : Arrays.copyOf(node.children, Math.max(node.children.length << 1, distance + 1));
+                }
+                node.children[distance] = new Node(term);
+                node.maxEdge = Math.max(node.maxEdge, distance);
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    public List<String> search(String term, int maxDistance) {
+        List<String> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        // One pair of rows serves every comparison; the vocabulary is walked thousands of times.
+        int[][] rows = new int[2][term.length() + 1];
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // Past maxEdge + maxDistance neither this node nor any child can match, so the exact
+            // distance beyond that bound is never needed.
+            int distance = distance(node.term, term, node.maxEdge + maxDistance, rows[0], rows[1]);
+            if (distance <= maxDistance) {
+                matches.add(node.term);
+            }
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.maxEdge, distance + maxDistance);
+            for (int edge = from; edge <= to; edge++) {
+                if (node.children[edge] != null) {
+                    pending.push(node.children[edge]);
+                }
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static int distance(String a, String b) {
+        return distance(a, b, Integer.MAX_VALUE - 1, new int[b.length() + 1], new int[b.length() + 1]);
+    }
+
+    // Levenshtein distance, or bound + 1 as soon as the distance is known to exceed bound.
+    private static int distance(String a, String b, int bound, int[] previous, int[] current) {
+        if (Math.abs(a.length() - b.length()) > bound) {
+            return bound + 1;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], bound + 1);
+    }
+}
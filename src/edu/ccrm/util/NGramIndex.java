@@ -0,0 +1,149 @@
+package edu.ccrm.util;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// Case-insensitive substring index over one text field per key. Every 1-, 2- and 3-gram of a
+// text has a posting set, so a query of up to three characters is a single lookup and longer
+// queries intersect their trigram postings before confirming the few survivors.
+public class NGramIndex {
+    private static final int N = 3;
+
+    private final Map<String, Set<String>> postings;
+    private final Map<String, String> texts;
+    private final ReadWriteLock lock;
+
+    public NGramIndex() {
+        this.postings = new HashMap<>();
+        this.texts = new HashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    public void put(String key, String text) {
+        String normalized = normalize(text);
+        lock.writeLock().lock();
+        try {
+            replace(key, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Indexes many keys under one lock acquisition. Texts are looked up while the lock is
+    // held, so a concurrent put for the same key cannot be overwritten by an older text.
+    public void putAll(Collection<String> keys, Function<String, String> textOf) {
+        lock.writeLock().lock();
+        try {
+            for (String key : keys) {
+                replace(key, normalize(textOf.apply(key)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replace(String key, String normalized) {
+        String previous = texts.put(key, normalized);
+        if (normalized.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            for (String gram : grams(previous)) {
+                Set<String> keys = postings.get(gram);
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        for (String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, k -> new HashSet<>()).add(key);
+        }
+    }
+
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            String previous = texts.remove(key);
+            if (previous != null) {
+                for (String gram : grams(previous)) {
+                    Set<String> keys = postings.get(gram);
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Keys whose text contains the term, ignoring case. An empty term matches every key.
+    public Set<String> search(String term) {
+        String query = normalize(term);
+        lock.readLock().lock();
+        try {
+            if (query.isEmpty()) {
+                return new HashSet<>(texts.keySet());
+            }
+            if (query.length() <= N) {
+                Set<String> keys = postings.get(query);
+                return keys != null ? new HashSet<>(keys) : new HashSet<>();
+            }
+
+            List<Set<String>> lists = new ArrayList<>();
+            for (String gram : trigrams(query)) {
+                Set<String> keys = postings.get(gram);
+                if (keys == null) {
+                    return new HashSet<>();
+                }
+                lists.add(keys);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+
+            Set<String> result = new HashSet<>();
+            for (String key : lists.get(0)) {
+                if (containsAll(lists, key) && texts.get(key).contains(query)) {
+                    result.add(key);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean containsAll(List<Set<String>> lists, String key) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= N; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(text.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            grams.add(text.substring(i, i + N));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+}
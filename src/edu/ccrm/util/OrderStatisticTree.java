@@ -0,0 +1,175 @@
+package edu.ccrm.util;
+
+import java.util.*;
+
+// Sorted set with O(log n) rank and index lookups: a treap whose nodes carry subtree sizes.
+// Elements must be unique under the comparator. Not thread-safe.
+public class OrderStatisticTree<T> {
+    private final Comparator<? super T> comparator;
+    private final SplittableRandom random;
+    private Node<T> root;
+
+    private static final class Node<T> {
+        final T value;
+        final int priority;
+        int size = 1;
+        Node<T> left;
+        Node<T> right;
+
+        Node(T value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    public OrderStatisticTree(Comparator<? super T> comparator) {
+        this.comparator = Objects.requireNonNull(comparator, "Comparator cannot be null");
+        this.random = new SplittableRandom();
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public boolean contains(T value) {
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(value, node.value);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    public boolean add(T value) {
+        if (contains(value)) {
+            return false;
+        }
+        Split<T> parts = split(root, value, false);
+        root = merge(merge(parts.left, new Node<>(value, random.nextInt())), parts.right);
+        return true;
+    }
+
+    public boolean remove(T value) {
+        Split<T> lessAndRest = split(root, value, false);
+        Split<T> equalAndGreater = split(lessAndRest.right, value, true);
+        root = merge(lessAndRest.left, equalAndGreater.right);
+        return equalAndGreater.left != null;
+    }
+
+    // Number of elements ordered strictly before the probe; the probe need not be present.
+    public int countBefore(T probe) {
+        int count = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (comparator.compare(probe, node.value) <= 0) {
+                node = node.left;
+            } else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    // Zero-based position of the element, or -1 when absent.
+    public int rank(T value) {
+        return contains(value) ? countBefore(value) : -1;
+    }
+
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        Node<T> node = root;
+        for (;;) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    // Elements at positions [fromIndex, toIndex), clamped to the tree size.
+    public List<T> range(int fromIndex, int toIndex) {
+        List<T> result = new ArrayList<>();
+        collect(root, Math.max(fromIndex, 0), Math.min(toIndex, size()), 0, result);
+        return result;
+    }
+
+    private void collect(Node<T> node, int from, int to, int offset, List<T> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int position = offset + size(node.left);
+        if (from < position) {
+            collect(node.left, from, to, offset, out);
+        }
+        if (from <= position && position < to) {
+            out.add(node.value);
+        }
+        if (position + 1 < to) {
+            collect(node.right, from, to, position + 1, out);
+        }
+    }
+
+    // The two halves of a split.
+    private static final class Split<T> {
+        Node<T> left;
+        Node<T> right;
+    }
+
+    // Splits into (elements < value, elements >= value), or (<=, >) when inclusive.
+    private Split<T> split(Node<T> node, T value, boolean inclusive) {
+        if (node == null) {
+            return new Split<>();
+        }
+        int cmp = comparator.compare(node.value, value);
+        if (cmp < 0 || (inclusive && cmp == 0)) {
+            Split<T> parts = split(node.right, value, inclusive);
+            node.right = parts.left;
+            update(node);
+            parts.left = node;
+            return parts;
+        } else {
+            Split<T> parts = split(node.left, value, inclusive);
+            node.left = parts.right;
+            update(node);
+            parts.right = node;
+            return parts;
+        }
+    }
+
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+}
@@ -1,37 +1,252 @@
 package edu.ccrm.util;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Stream;
 
 public class RecursiveUtil {
+    // Below this depth each subdirectory is its own fork/join task; deeper subtrees are walked
+    // by one task with walkFileTree, whose explicit stack cannot overflow on deep trees.
+    private static final int PARALLEL_DEPTH = 32;
+
+    // Logical size counts every file; physical size counts each underlying file once, so hard
+    // links shared between incremental backups are not charged twice.
+    public static class DirectorySize {
+        private final long files;
+        private final long logicalBytes;
+        private final long physicalBytes;
+
+        public DirectorySize(long files, long logicalBytes, long physicalBytes) {
+            this.files = files;
+            this.logicalBytes = logicalBytes;
+            this.physicalBytes = physicalBytes;
+        }
+
+        public long getFileCount() { return files; }
+        public long getLogicalBytes() { return logicalBytes; }
+        public long getPhysicalBytes() { return physicalBytes; }
+
+        DirectorySize plus(DirectorySize other) {
+            return new DirectorySize(files + other.files, logicalBytes + other.logicalBytes,
+                    physicalBytes + other.physicalBytes);
+        }
+    }
+
+    // Remembers each directory's listing: the size and file key of its files and the names of
+    // its subdirectories. Every directory is stat'ed on each measure, and while its own
+    // modification time is unchanged its listing is reused without reading it or stat'ing its
+    // files. A parent's time says nothing about changes inside its subdirectories, so each
+    // subdirectory is compared against its own current time, never one remembered with the
+    // parent's listing.
+    // Adding, removing or renaming an entry changes the directory's time, but rewriting a file
+    // in place does not, so a cache only suits trees whose files are written once, such as
+    // the backup object store. When a listing is refreshed, the entries of subdirectories that
+    // have gone are dropped, with everything cached beneath them, so deleting parts of the tree
+    // does not leave the cache growing. Safe to share between threads.
+    public static class SizeCache {
+        private final ConcurrentHashMap<Path, Listing> listings = new ConcurrentHashMap<>();
+
+        public int size() {
+            return listings.size();
+        }
+
+        public void clear() {
+            listings.clear();
+        }
+
+        // Drops the directory's entry and those of everything under it.
+        void forget(Path directory) {
+            listings.keySet().removeIf(path -> path.startsWith(directory));
+        }
+
+        void refreshed(Path directory, Listing previous, Listing current) {
+            listings.put(directory, current);
+            if (previous == null) {
+                return;
+            }
+            Set<Path> kept = Set.of(current.directories);
+            for (Path gone : previous.directories) {
+                if (!kept.contains(gone)) {
+                    forget(gone);
+                }
+            }
+        }
+    }
+
+    private static final class Listing {
+        final FileTime modified;
+        final long[] sizes;
+        final Object[] keys;
+        final Path[] directories;
+
+        Listing(FileTime modified, long[] sizes, Object[] keys, Path[] directories) {
+            this.modified = modified;
+            this.sizes = sizes;
+            this.keys = keys;
+            this.directories = directories;
+        }
+    }
 
 
     public static long calculateDirectorySize(Path directory) throws IOException {
-        if (!Files.exists(directory) || !Files.isDirectory(directory)) {
-            return 0;
+        return measureDirectory(directory).getLogicalBytes();
+    }
+
+    public static DirectorySize measureDirectory(Path directory) throws IOException {
+        return measureDirectory(directory, null);
+    }
+
+    // Walks the tree on the common fork/join pool, one task per subdirectory, reading each
+    // entry's attributes once. Files are told apart by their file key (device and inode where
+    // the platform has one); without one, every path counts as its own file. Symbolic links
+    // are not followed.
+    public static DirectorySize measureDirectory(Path directory, SizeCache cache) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(directory, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            if (cache != null) {
+                cache.forget(directory);
+            }
+            return new DirectorySize(0, 0, 0);
+        }
+        if (!attrs.isDirectory()) {
+            if (cache != null) {
+                cache.forget(directory);
+            }
+            return new DirectorySize(0, 0, 0);
         }
 
-        return calculateDirectorySizeRecursive(directory);
+        try {
+            return ForkJoinPool.commonPool().invoke(new SizeTask(directory, attrs.lastModifiedTime(), 0,
+                    ConcurrentHashMap.newKeySet(), cache));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
-    private static long calculateDirectorySizeRecursive(Path path) throws IOException {
-        if (Files.isRegularFile(path)) {
-            return Files.size(path);
+    private static final class SizeTask extends RecursiveTask<DirectorySize> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        // Null for a subdirectory, which reads its own when it runs.
+        private final FileTime modified;
+        private final int depth;
+        private final Set<Object> seen;
+        private final SizeCache cache;
+
+        SizeTask(Path directory, FileTime modified, int depth, Set<Object> seen, SizeCache cache) {
+            this.directory = directory;
+            this.modified = modified;
+            this.depth = depth;
+            this.seen = seen;
+            this.cache = cache;
         }
 
-        if (Files.isDirectory(path)) {
-            long totalSize = 0;
-            try (Stream<Path> children = Files.list(path)) {
-                for (Path child : children.toArray(Path[]::new)) {
-                    totalSize += calculateDirectorySizeRecursive(child);
+        @Override
+        protected DirectorySize compute() {
+            try {
+                if (depth >= PARALLEL_DEPTH) {
+                    return walkSequentially(directory, seen);
+                }
+
+                FileTime modified = this.modified;
+                if (modified == null && cache != null) {
+                    try {
+                        modified = Files.readAttributes(directory, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS).lastModifiedTime();
+                    } catch (NoSuchFileException e) {
+                        // Removed since its parent was listed.
+                        cache.forget(directory);
+                        return new DirectorySize(0, 0, 0);
+                    }
+                }
+                Listing cached = cache != null ? cache.listings.get(directory) : null;
+                Listing listing = cached;
+                if (listing == null || !listing.modified.equals(modified)) {
+                    listing = list(directory, modified);
+                    if (cache != null) {
+                        cache.refreshed(directory, cached, listing);
+                    }
                 }
+
+                long logical = 0;
+                long physical = 0;
+                for (int i = 0; i < listing.sizes.length; i++) {
+                    logical += listing.sizes[i];
+                    if (listing.keys[i] == null || seen.add(listing.keys[i])) {
+                        physical += listing.sizes[i];
+                    }
+                }
+                DirectorySize total = new DirectorySize(listing.sizes.length, logical, physical);
+
+                List<SizeTask> subtasks = new ArrayList<>(listing.directories.length);
+                for (int i = 0; i < listing.directories.length; i++) {
+                    subtasks.add(new SizeTask(listing.directories[i], null, depth + 1, seen, cache));
+                }
+                for (SizeTask subtask : ForkJoinTask.invokeAll(subtasks)) {
+                    total = total.plus(subtask.join());
+                }
+                return total;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // One level of a directory, with the attributes walkFileTree reads for each entry anyway.
+    // modified is the directory's time read before listing it, or null when nothing is cached.
+    private static Listing list(Path directory, FileTime modified) throws IOException {
+        List<Long> sizes = new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        List<Path> directories = new ArrayList<>();
+        Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isDirectory()) {
+                    directories.add(file);
+                } else if (attrs.isRegularFile()) {
+                    sizes.add(attrs.size());
+                    keys.add(attrs.fileKey());
+                }
+                return FileVisitResult.CONTINUE;
             }
-            return totalSize;
+        });
+        long[] sizeArray = new long[sizes.size()];
+        for (int i = 0; i < sizeArray.length; i++) {
+            sizeArray[i] = sizes.get(i);
         }
+        return new Listing(modified, sizeArray, keys.toArray(), directories.toArray(new Path[0]));
+    }
 
-        return 0;
+    private static DirectorySize walkSequentially(Path directory, Set<Object> seen) throws IOException {
+        long[] totals = new long[3];
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    totals[0]++;
+                    totals[1] += attrs.size();
+                    Object key = attrs.fileKey();
+                    if (key == null || seen.add(key)) {
+                        totals[2] += attrs.size();
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new DirectorySize(totals[0], totals[1], totals[2]);
     }
 
 
@@ -0,0 +1,54 @@
+package edu.ccrm;
+
+import java.util.Objects;
+
+// Minimal support for the self-checking tests under test/, which run from a main method so
+// they need nothing beyond the JDK. Each case runs on its own; a failure is printed and the
+// run carries on, and finish exits with status 1 if any case failed.
+public final class Check {
+    @FunctionalInterface
+    public interface Case {
+        void run() throws Exception;
+    }
+
+    private static int passed;
+    private static int failed;
+
+    private Check() {}
+
+    public static void run(String name, Case test) {
+        try {
+            test.run();
+            passed++;
+            System.out.println("PASS " + name);
+        } catch (Exception | AssertionError e) {
+            failed++;
+            System.out.println("FAIL " + name + ": " + e);
+        }
+    }
+
+    public static void finish() {
+        System.out.println(passed + " passed, " + failed + " failed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    public static void isTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void equal(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void near(double expected, double actual, double tolerance, String message) {
+        if (Math.abs(expected - actual) > tolerance) {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package edu.ccrm.io;
+
+import edu.ccrm.Check;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BackupCatalogTest {
+    private static final String SHA = "0123456789abcdef".repeat(4);
+
+    public static void main(String[] args) {
+        Check.run("ADD, DELETE and STORE lines replay", BackupCatalogTest::linesReplay);
+        Check.run("compactIfSparse keeps the live entries and store total", BackupCatalogTest::compactKeepsTotals);
+        Check.run("a torn STORE line is skipped", BackupCatalogTest::tornStoreSkipped);
+        Check.run("an ADD line cut inside its checksum is skipped", BackupCatalogTest::tornAddSkipped);
+        Check.run("appending after a torn tail cuts the tail off", BackupCatalogTest::appendCutsTornTail);
+        Check.finish();
+    }
+
+    static void linesReplay() throws Exception {
+        withDirectory(dir -> {
+            BackupCatalog catalog = BackupCatalog.open(dir);
+            catalog.recordAdded(entry("backup_1", BackupCatalog.Kind.INCREMENTAL, 1, 500));
+            catalog.recordAdded(entry("backup_2", BackupCatalog.Kind.INCREMENTAL, 2, 300));
+            catalog.recordAdded(entry("backup_3.zip", BackupCatalog.Kind.ARCHIVE, 3, 700));
+            catalog.recordDeleted("backup_1");
+            catalog.recordStoreChange(-200);
+
+            BackupCatalog reopened = BackupCatalog.open(dir);
+            Check.equal(List.of("backup_2", "backup_3.zip"), names(reopened), "entries");
+            Check.equal(600L, reopened.getObjectStoreBytes(), "object store bytes");
+            Check.equal(1300L, reopened.getPhysicalBytes(), "physical bytes");
+            Check.equal(2000L, reopened.getLogicalBytes(), "logical bytes");
+        });
+    }
+
+    static void compactKeepsTotals() throws Exception {
+        withDirectory(dir -> {
+            BackupCatalog catalog = BackupCatalog.open(dir);
+            for (int i = 0; i < 40; i++) {
+                catalog.recordAdded(entry("backup_" + i, BackupCatalog.Kind.INCREMENTAL, i, 100));
+            }
+            for (int i = 0; i < 38; i++) {
+                catalog.recordDeleted("backup_" + i);
+            }
+            long storeBytes = catalog.getObjectStoreBytes();
+            catalog.compactIfSparse();
+
+            List<String> lines = Files.readAllLines(dir.resolve(BackupCatalog.FILE_NAME));
+            Check.equal(3, lines.size(), "lines after compaction");
+            BackupCatalog reopened = BackupCatalog.open(dir);
+            Check.equal(List.of("backup_38", "backup_39"), names(reopened), "entries");
+            Check.equal(storeBytes, reopened.getObjectStoreBytes(), "object store bytes");
+        });
+    }
+
+    static void tornStoreSkipped() throws Exception {
+        withDirectory(dir -> {
+            BackupCatalog catalog = BackupCatalog.open(dir);
+            catalog.recordAdded(entry("backup_1", BackupCatalog.Kind.INCREMENTAL, 1, 500));
+            tear(dir, "STORE 12345", "STORE 12".length());
+            Check.equal(500L, BackupCatalog.open(dir).getObjectStoreBytes(), "object store bytes");
+        });
+    }
+
+    static void tornAddSkipped() throws Exception {
+        withDirectory(dir -> {
+            BackupCatalog catalog = BackupCatalog.open(dir);
+            catalog.recordAdded(entry("backup_1", BackupCatalog.Kind.INCREMENTAL, 1, 500));
+            String line = "ADD backup_2 INCREMENTAL 2 1 1000 300 " + SHA;
+            tear(dir, line, line.length() - 10);
+            BackupCatalog reopened = BackupCatalog.open(dir);
+            Check.equal(List.of("backup_1"), names(reopened), "entries");
+            Check.equal(500L, reopened.getObjectStoreBytes(), "object store bytes");
+        });
+    }
+
+    static void appendCutsTornTail() throws Exception {
+        withDirectory(dir -> {
+            BackupCatalog catalog = BackupCatalog.open(dir);
+            catalog.recordAdded(entry("backup_1", BackupCatalog.Kind.INCREMENTAL, 1, 500));
+            tear(dir, "STORE 12345", "STORE 12".length());
+
+            BackupCatalog reopened = BackupCatalog.open(dir);
+            reopened.recordStoreChange(-100);
+            Check.equal(400L, reopened.getObjectStoreBytes(), "object store bytes after the append");
+            List<String> lines = Files.readAllLines(dir.resolve(BackupCatalog.FILE_NAME));
+            Check.equal("STORE -100", lines.get(lines.size() - 1), "last line");
+            Check.isTrue(!lines.contains("STORE 12"), "the torn line is gone: " + lines);
+            Check.equal(400L, BackupCatalog.open(dir).getObjectStoreBytes(), "object store bytes reopened");
+        });
+    }
+
+    private static BackupCatalog.Entry entry(String name, BackupCatalog.Kind kind, long created, long stored) {
+        return new BackupCatalog.Entry(name, kind, created, 1, 1000, stored, SHA);
+    }
+
+    // Appends the first length characters of line, as a crash mid-write would leave them.
+    private static void tear(Path dir, String line, int length) throws Exception {
+        Path file = dir.resolve(BackupCatalog.FILE_NAME);
+        Files.writeString(file, Files.readString(file) + line.substring(0, length), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> names(BackupCatalog catalog) {
+        List<String> names = new ArrayList<>();
+        for (BackupCatalog.Entry entry : catalog.list()) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    @FunctionalInterface
+    private interface InDirectory {
+        void run(Path dir) throws Exception;
+    }
+
+    private static void withDirectory(InDirectory test) throws Exception {
+        Path dir = Files.createTempDirectory("backup-catalog-test");
+        try {
+            test.run(dir);
+        } finally {
+            Files.deleteIfExists(dir.resolve(BackupCatalog.FILE_NAME + ".tmp"));
+            Files.deleteIfExists(dir.resolve(BackupCatalog.FILE_NAME));
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.ccrm.io;
+
+import edu.ccrm.Check;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvReaderTest {
+    // A stray quote inside an unquoted field, followed by a quoted field that spans lines: a
+    // splitter that tracks quote parity takes the stray quote as an opening one and then cuts
+    // inside the multi-line field.
+    private static final String MALFORMED = String.join("\n",
+            "id,name,note",
+            "S1,Alice,ok",
+            "S2,Bo\"b,stray quote",
+            "S3,Carol,\"first line",
+            "second \"\"quoted\"\" line\"",
+            "S4,Dan,after",
+            "S5,\"Eve\"x,junk after quote",
+            "S6,  \"Fay, Jr\"  ,padded",
+            "S7,Gus,\"a\r\nb\"\r",
+            "S8,Hal,last") + "\n";
+
+    public static void main(String[] args) {
+        Check.run("records parse as written", CsvReaderTest::recordsParseAsWritten);
+        Check.run("every chunk size gives the same records", CsvReaderTest::everyChunkSizeGivesSameRecords);
+        Check.run("chunks start on record boundaries", CsvReaderTest::chunksStartOnRecordBoundaries);
+        Check.finish();
+    }
+
+    static void recordsParseAsWritten() throws Exception {
+        List<String> records = read(MALFORMED, Integer.MAX_VALUE);
+        Check.equal(9, records.size(), "record count");
+        Check.equal("3:[S2, Bo\"b, stray quote]", records.get(2), "stray quote stays in its field");
+        Check.equal("4:[S3, Carol, first line\nsecond \"quoted\" line]", records.get(3), "multi-line field");
+        Check.equal("6:[S4, Dan, after]", records.get(4), "record after multi-line field");
+        Check.equal("7:[S5, Eve, junk after quote] Unexpected character after closing quote in field 2",
+                records.get(5), "junk after closing quote");
+        Check.equal("8:[S6, Fay, Jr, padded]", records.get(6), "quote after leading blanks");
+        Check.equal("11:[S8, Hal, last]", records.get(8), "last record");
+    }
+
+    static void everyChunkSizeGivesSameRecords() throws Exception {
+        List<String> expected = read(MALFORMED, Integer.MAX_VALUE);
+        int size = MALFORMED.getBytes(StandardCharsets.UTF_8).length;
+        for (int chunkSize = 1; chunkSize <= size; chunkSize++) {
+            Check.equal(expected, read(MALFORMED, chunkSize), "records with chunk size " + chunkSize);
+        }
+    }
+
+    static void chunksStartOnRecordBoundaries() throws Exception {
+        Path file = write(MALFORMED);
+        try (CsvReader reader = new CsvReader(file)) {
+            List<Long> starts = new ArrayList<>();
+            for (CsvReader.Chunk chunk : reader.split(1)) {
+                starts.add(chunk.getStart());
+            }
+            // One chunk per record: the split never lands inside S3's or S7's quoted field.
+            Check.equal(9, starts.size(), "chunk count");
+            Check.equal((long) MALFORMED.indexOf("S4"), starts.get(4), "chunk after multi-line field");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Each record as "line:[fields]" plus its error, if any.
+    private static List<String> read(String content, int chunkSize) throws Exception {
+        Path file = write(content);
+        List<String> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(file)) {
+            for (CsvReader.Chunk chunk : reader.split(chunkSize)) {
+                reader.read(chunk, row -> {
+                    List<String> fields = new ArrayList<>();
+                    for (int i = 0; i < row.size(); i++) {
+                        fields.add(row.get(i));
+                    }
+                    records.add(row.getLineNumber() + ":" + fields
+                            + (row.getError() == null ? "" : " " + row.getError()));
+                });
+            }
+        } finally {
+            Files.delete(file);
+        }
+        return records;
+    }
+
+    private static Path write(String content) throws Exception {
+        Path file = Files.createTempFile("csv-reader-test", ".csv");
+        Files.writeString(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,167 @@
+package edu.ccrm.io;
+
+import edu.ccrm.Check;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Name;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ImportExportServiceTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 8, 1, 9, 30, 15);
+
+    public static void main(String[] args) {
+        Check.run("students round trip", ImportExportServiceTest::studentsRoundTrip);
+        Check.run("courses round trip", ImportExportServiceTest::coursesRoundTrip);
+        Check.run("gzip export imports", ImportExportServiceTest::gzipExportImports);
+        Check.run("parallel gzip export imports", ImportExportServiceTest::parallelGzipExportImports);
+        Check.run("pipeline imports gzip export", ImportExportServiceTest::pipelineImportsGzipExport);
+        Check.run("older files import with defaults", ImportExportServiceTest::olderFilesImportWithDefaults);
+        Check.finish();
+    }
+
+    static void studentsRoundTrip() throws Exception {
+        List<Student> students = List.of(
+                new Student.Builder("S001", "REG001").fullName(new Name("Ada", "Lovelace, \"Countess\""))
+                        .email("ada@uni.edu").department("Mathematics").status(Student.Status.GRADUATED)
+                        .createdAt(CREATED).build(),
+                new Student.Builder("S002", "REG002").fullName(new Name("Alan", "Turing"))
+                        .email("alan@uni.edu").department("Computer Science").status(Student.Status.SUSPENDED)
+                        .createdAt(CREATED.plusDays(1)).build());
+        withDirectory(dir -> {
+            ImportExportService io = new ImportExportService();
+            List<Student> imported = new ArrayList<>();
+            ImportReport report = io.importStudents(io.exportStudents(students, dir, ExportOptions.defaults()),
+                    imported::add, ImportOptions.defaults());
+            Check.equal(0L, report.getErrorCount(), "errors");
+            Check.equal(describeStudents(students), describeStudents(imported), "students");
+        });
+    }
+
+    static void coursesRoundTrip() throws Exception {
+        List<Course> courses = courses(3);
+        withDirectory(dir -> {
+            ImportExportService io = new ImportExportService();
+            List<Course> imported = new ArrayList<>();
+            ImportReport report = io.importCourses(io.exportCourses(courses, dir, ExportOptions.defaults()),
+                    imported::add, ImportOptions.defaults());
+            Check.equal(0L, report.getErrorCount(), "errors");
+            Check.equal(describeCourses(courses), describeCourses(imported), "courses");
+        });
+    }
+
+    static void gzipExportImports() throws Exception {
+        List<Course> courses = courses(50);
+        withDirectory(dir -> {
+            ImportExportService io = new ImportExportService();
+            Path file = io.exportCourses(courses, dir, new ExportOptions.Builder().gzip(true).build());
+            Check.isTrue(CsvReader.isGzip(file), "export is gzip");
+            List<Course> imported = new ArrayList<>();
+            io.importCourses(file, imported::add, ImportOptions.defaults());
+            Check.equal(describeCourses(courses), describeCourses(imported), "courses");
+        });
+    }
+
+    // Each parallel chunk is its own gzip member.
+    static void parallelGzipExportImports() throws Exception {
+        List<Course> courses = courses(1000);
+        withDirectory(dir -> {
+            ImportExportService io = new ImportExportService();
+            Path file = io.exportCourses(courses, dir,
+                    new ExportOptions.Builder().gzip(true).parallel(true).chunkRows(64).build());
+            List<Course> imported = new ArrayList<>();
+            io.importCourses(file, imported::add, new ImportOptions.Builder().chunkSize(4096).build());
+            Check.equal(describeCourses(courses), describeCourses(imported), "courses");
+            try (Stream<Path> left = Files.list(dir)) {
+                Check.equal(1L, left.count(), "files left in the export directory");
+            }
+        });
+    }
+
+    static void pipelineImportsGzipExport() throws Exception {
+        List<Course> courses = courses(200);
+        withDirectory(dir -> {
+            Path file = new ImportExportService().exportCourses(courses, dir,
+                    new ExportOptions.Builder().gzip(true).parallel(true).chunkRows(50).build());
+            CourseService courseService = new CourseService();
+            ImportSummary summary = ImportPipeline.forCourses(courseService).build().run(file);
+            Check.equal(200L, summary.getInserted(), "inserted");
+            Check.equal(describeCourses(courses), describeCourses(courseService.getAllCourses()), "courses");
+        });
+    }
+
+    static void olderFilesImportWithDefaults() throws Exception {
+        withDirectory(dir -> {
+            Path file = Files.writeString(dir.resolve("courses.csv"),
+                    "Code,Title,Credits,Instructor,Department,Semester\nCS101,Intro,3,Dr. Smith,CS,FALL\n");
+            List<Course> imported = new ArrayList<>();
+            new ImportExportService().importCourses(file, imported::add, ImportOptions.defaults());
+            Check.equal(1, imported.size(), "courses");
+            Check.isTrue(imported.get(0).isActive(), "active by default");
+            Check.equal(Course.UNLIMITED_CAPACITY, imported.get(0).getCapacity(), "unlimited by default");
+        });
+    }
+
+    private static List<Course> courses(int count) {
+        Semester[] semesters = Semester.values();
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            courses.add(new Course.Builder("CS" + (1000 + i), "Topics, part \"" + i + "\"")
+                    .credits(1 + i % 4)
+                    .instructor("Dr. Grace " + i)
+                    .department(i % 2 == 0 ? "Computer Science" : "Mathematics")
+                    .semester(semesters[i % semesters.length])
+                    .capacity(i % 3 == 0 ? Course.UNLIMITED_CAPACITY : 10 + i)
+                    .active(i % 5 != 0)
+                    .createdAt(CREATED.plusMinutes(i))
+                    .build());
+        }
+        return courses;
+    }
+
+    private static List<String> describeStudents(List<Student> students) {
+        List<String> described = new ArrayList<>();
+        for (Student s : students) {
+            described.add(String.join("|", s.getId(), s.getRegNo(), s.getFullName().getFirstName(),
+                    s.getFullName().getLastName(), s.getEmail(), s.getDepartment(), s.getStatus().name(),
+                    String.valueOf(s.getCreatedAt())));
+        }
+        return described;
+    }
+
+    private static List<String> describeCourses(List<Course> courses) {
+        List<String> described = new ArrayList<>();
+        for (Course c : courses) {
+            described.add(String.join("|", c.getCode(), c.getTitle(), String.valueOf(c.getCredits()),
+                    c.getInstructor(), c.getDepartment(), c.getSemester().name(), String.valueOf(c.getCapacity()),
+                    String.valueOf(c.isActive()), String.valueOf(c.getCreatedAt())));
+        }
+        described.sort(null);
+        return described;
+    }
+
+    @FunctionalInterface
+    private interface InDirectory {
+        void run(Path dir) throws Exception;
+    }
+
+    private static void withDirectory(InDirectory test) throws Exception {
+        Path dir = Files.createTempDirectory("import-export-test");
+        try {
+            test.run(dir);
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+}
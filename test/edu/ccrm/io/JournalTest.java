@@ -0,0 +1,243 @@
+package edu.ccrm.io;
+
+import edu.ccrm.Check;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Name;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class JournalTest {
+    public static void main(String[] args) {
+        Check.run("replay cuts a truncated last record", JournalTest::truncatedLastRecord);
+        Check.run("replay cuts a corrupted last record", JournalTest::corruptedLastRecord);
+        Check.run("replay over a snapshot that already has the changes", JournalTest::replayOverSnapshot);
+        Check.run("a checkpoint deletes only the sealed segments", JournalTest::checkpointDeletesSealed);
+        Check.finish();
+    }
+
+    // One run of the application: services restored from the snapshot, if any, with the
+    // journal's earlier segments replayed on top and new changes logged to it.
+    private static final class Run implements AutoCloseable {
+        final StudentService students = new StudentService();
+        final CourseService courses = new CourseService();
+        final EnrollmentService enrollments = new EnrollmentService(students, courses);
+        final SnapshotService snapshots = new SnapshotService(students, courses, enrollments);
+        final Journal journal;
+        final Journal.ReplayResult replay;
+
+        Run(Path dir) throws IOException {
+            Path snapshot = dir.resolve("snapshot.bin");
+            if (Files.exists(snapshot)) {
+                snapshots.load(snapshot);
+            }
+            journal = new Journal.Builder(dir.resolve("journal")).open();
+            replay = journal.replay(students, courses, enrollments);
+            students.setMutationLog(journal);
+            courses.setMutationLog(journal);
+            enrollments.setMutationLog(journal);
+        }
+
+        void student(String id) throws Exception {
+            students.addStudent(new Student.Builder(id, "R" + id).fullName(new Name("First", id))
+                    .email(id.toLowerCase() + "@uni.edu").department("Physics").build());
+        }
+
+        void course(String code, int capacity) throws Exception {
+            courses.addCourse(new Course.Builder(code, "Course " + code).credits(3).instructor("I001")
+                    .department("CS").semester(Semester.FALL).capacity(capacity).build());
+        }
+
+        void saveSnapshot(Path dir) throws IOException {
+            snapshots.save(dir.resolve("snapshot.bin"), List.of());
+        }
+
+        // Everything replay should rebuild, as comparable strings.
+        List<String> describe() {
+            List<String> described = new ArrayList<>();
+            for (Student s : students.getAllStudents()) {
+                described.add(String.join("|", "student", s.getId(), s.getEmail(), s.getStatus().name()));
+            }
+            for (Course c : courses.getAllCourses()) {
+                described.add(String.join("|", "course", c.getCode(), c.getTitle(),
+                        String.valueOf(c.getCapacity()), String.valueOf(enrollments.getAvailableSeats(c.getCode()))));
+            }
+            for (EnrollmentService.EnrollmentRecord record : enrollments.getEnrollmentRecords()) {
+                Enrollment e = record.getEnrollment();
+                described.add(String.join("|", "enrollment", e.getStudent().getId(), e.getCourse().getCode(),
+                        e.hasGrade() ? String.valueOf(e.getMarks()) : "ungraded",
+                        String.valueOf(enrollments.getGpa(e.getStudent().getId()))));
+            }
+            for (Map.Entry<String, List<String>> waitlist : enrollments.getWaitlists().entrySet()) {
+                described.add("waitlist|" + waitlist.getKey() + "|" + waitlist.getValue());
+            }
+            described.sort(null);
+            return described;
+        }
+
+        @Override
+        public void close() throws IOException {
+            journal.close();
+        }
+    }
+
+    // Two students in a one-seat course, the second waitlisted, the first graded last.
+    private static List<String> writeHistory(Path dir) throws Exception {
+        try (Run run = new Run(dir)) {
+            run.course("CS101", 1);
+            run.student("S100");
+            run.student("S200");
+            run.enrollments.enrollStudent("S100", "CS101");
+            run.enrollments.enrollStudent("S200", "CS101");
+            List<String> beforeGrade = run.describe();
+            run.enrollments.recordGrade("S100", "CS101", 88);
+            return beforeGrade;
+        }
+    }
+
+    static void truncatedLastRecord() throws Exception {
+        withDirectory(dir -> {
+            List<String> beforeGrade = writeHistory(dir);
+            Path segment = segments(dir).get(0);
+            byte[] bytes = Files.readAllBytes(segment);
+            Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3));
+            checkTornTail(dir, segment, beforeGrade);
+        });
+    }
+
+    static void corruptedLastRecord() throws Exception {
+        withDirectory(dir -> {
+            List<String> beforeGrade = writeHistory(dir);
+            Path segment = segments(dir).get(0);
+            byte[] bytes = Files.readAllBytes(segment);
+            bytes[bytes.length - 2] ^= 0x5A;
+            Files.write(segment, bytes);
+            checkTornTail(dir, segment, beforeGrade);
+        });
+    }
+
+    // The damaged grade is dropped and cut from the segment, everything before it is kept,
+    // and the next run finds nothing left to cut.
+    private static void checkTornTail(Path dir, Path segment, List<String> beforeGrade) throws Exception {
+        long damagedSize = Files.size(segment);
+        try (Run run = new Run(dir)) {
+            Check.equal(beforeGrade, run.describe(), "state up to the damaged record");
+            Check.equal(5L, run.replay.getRecordCount(), "records replayed");
+            Check.isTrue(run.replay.getTruncatedBytes() > 0, "damaged bytes cut: " + run.replay);
+            Check.equal(damagedSize - run.replay.getTruncatedBytes(), Files.size(segment), "segment size after the cut");
+        }
+        try (Run run = new Run(dir)) {
+            Check.equal(beforeGrade, run.describe(), "state on the following run");
+            Check.equal(0L, run.replay.getTruncatedBytes(), "nothing cut on the following run");
+        }
+    }
+
+    // The snapshot is taken part way through without a checkpoint, so replay applies every
+    // change again, including those the snapshot already holds.
+    static void replayOverSnapshot() throws Exception {
+        withDirectory(dir -> {
+            List<String> expected;
+            try (Run run = new Run(dir)) {
+                run.course("CS101", 2);
+                run.course("CS102", 5);
+                for (String id : List.of("S100", "S200", "S300")) {
+                    run.student(id);
+                    run.enrollments.enrollStudent(id, "CS101");
+                }
+                run.enrollments.enrollStudent("S100", "CS102");
+                run.enrollments.recordGrade("S100", "CS102", 95);
+                run.saveSnapshot(dir);
+
+                run.enrollments.unenrollStudent("S200", "CS101");
+                run.enrollments.recordGrade("S300", "CS101", 72);
+                run.student("S400");
+                run.enrollments.enrollStudent("S400", "CS101");
+                Check.equal(List.of("S400"), run.enrollments.getWaitlist("CS101"), "S300 promoted, S400 waiting");
+                expected = run.describe();
+            }
+            try (Run run = new Run(dir)) {
+                Check.equal(expected, run.describe(), "snapshot plus replay");
+                Check.equal(List.of("S400"), run.enrollments.getWaitlist("CS101"), "waitlist after replay");
+            }
+            try (Run run = new Run(dir)) {
+                Check.equal(expected, run.describe(), "snapshot plus a second replay");
+            }
+        });
+    }
+
+    // Changes made while the snapshot is written go to the segment opened by the checkpoint;
+    // that segment and files that are not segments must survive it.
+    static void checkpointDeletesSealed() throws Exception {
+        withDirectory(dir -> {
+            try (Run run = new Run(dir)) {
+                run.course("CS101", Course.UNLIMITED_CAPACITY);
+                run.student("S100");
+            }
+            Files.createDirectories(dir.resolve("journal"));
+            Path unrelated = Files.writeString(dir.resolve("journal").resolve("journal-notes.log"), "keep");
+            List<String> expected;
+            try (Run run = new Run(dir)) {
+                run.enrollments.enrollStudent("S100", "CS101");
+                List<Path> before = segments(dir);
+                Check.equal(2, before.size(), "segments before the checkpoint");
+                run.journal.checkpoint(() -> {
+                    run.saveSnapshot(dir);
+                    try {
+                        run.student("S200");
+                        run.enrollments.enrollStudent("S200", "CS101");
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return null;
+                });
+                List<Path> after = segments(dir);
+                Check.equal(1, after.size(), "segments after the checkpoint");
+                Check.isTrue(!before.contains(after.get(0)), "the surviving segment is the new one");
+                Check.isTrue(Files.exists(unrelated), "other files left alone");
+                expected = run.describe();
+            }
+            try (Run run = new Run(dir)) {
+                Check.equal(expected, run.describe(), "snapshot plus the surviving segment");
+                Check.equal(2L, run.replay.getRecordCount(), "records replayed from the surviving segment");
+            }
+        });
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir.resolve("journal"), "journal-0*.log")) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    @FunctionalInterface
+    private interface WithDirectory {
+        void run(Path dir) throws Exception;
+    }
+
+    private static void withDirectory(WithDirectory test) throws Exception {
+        Path dir = Files.createTempDirectory("journal-test");
+        try {
+            test.run(dir);
+        } finally {
+            try (var walk = Files.walk(dir)) {
+                for (Path path : walk.sorted((a, b) -> b.compareTo(a)).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+}
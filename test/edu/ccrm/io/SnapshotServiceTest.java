@@ -0,0 +1,205 @@
+package edu.ccrm.io;
+
+import edu.ccrm.Check;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.Name;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SnapshotServiceTest {
+    public static void main(String[] args) {
+        Check.run("save and load round trip", SnapshotServiceTest::roundTrip);
+        Check.run("a damaged section fails the load and restores nothing", SnapshotServiceTest::damagedSection);
+        Check.run("a truncated file fails the load", SnapshotServiceTest::truncatedFile);
+        Check.run("saves taken while students enroll all load", SnapshotServiceTest::savesDuringEnrollment);
+        Check.finish();
+    }
+
+    private static final class Services {
+        final StudentService students = new StudentService();
+        final CourseService courses = new CourseService();
+        final EnrollmentService enrollments = new EnrollmentService(students, courses);
+        final SnapshotService snapshots = new SnapshotService(students, courses, enrollments);
+
+        Student student(String id) throws Exception {
+            Student student = new Student.Builder(id, "R" + id).fullName(new Name("First", id))
+                    .email(id.toLowerCase() + "@uni.edu").department("Physics").build();
+            students.addStudent(student);
+            return student;
+        }
+
+        void course(String code, int capacity) throws Exception {
+            courses.addCourse(new Course.Builder(code, "Course " + code).credits(3).instructor("I001")
+                    .department("CS").semester(Semester.FALL).capacity(capacity).build());
+        }
+
+        // Everything a snapshot should carry, as comparable strings.
+        List<String> describe() {
+            List<String> described = new ArrayList<>();
+            for (Student s : students.getAllStudents()) {
+                described.add(String.join("|", "student", s.getId(), s.getRegNo(), s.getFullName().getLastName(),
+                        s.getEmail(), s.getDepartment(), s.getStatus().name(), String.valueOf(s.getCreatedAt())));
+            }
+            for (Course c : courses.getAllCourses()) {
+                described.add(String.join("|", "course", c.getCode(), c.getTitle(), String.valueOf(c.getCredits()),
+                        c.getSemester().name(), String.valueOf(c.getCapacity()), String.valueOf(c.isActive())));
+            }
+            for (EnrollmentService.EnrollmentRecord record : enrollments.getEnrollmentRecords()) {
+                Enrollment e = record.getEnrollment();
+                described.add(String.join("|", "enrollment", e.getStudent().getId(), e.getCourse().getCode(),
+                        String.valueOf(record.getChargedCredits()), String.valueOf(e.getEnrollmentDate()),
+                        e.hasGrade() ? e.getMarks() + "@" + e.getGradeDate() : "ungraded",
+                        String.valueOf(enrollments.getGpa(e.getStudent().getId()))));
+            }
+            for (Map.Entry<String, List<String>> waitlist : enrollments.getWaitlists().entrySet()) {
+                described.add("waitlist|" + waitlist.getKey() + "|" + waitlist.getValue());
+            }
+            described.sort(null);
+            return described;
+        }
+    }
+
+    static void roundTrip() throws Exception {
+        Services saved = new Services();
+        saved.course("CS101", 1);
+        saved.course("CS102", Course.UNLIMITED_CAPACITY);
+        saved.course("CS103", 0);
+        for (String id : List.of("S001", "S002", "S003")) {
+            saved.student(id);
+            saved.enrollments.enrollStudent(id, "CS101");
+        }
+        saved.enrollments.enrollStudent("S001", "CS102");
+        saved.enrollments.recordGrade("S001", "CS102", 91.5);
+        saved.enrollments.recordGrade("S001", "CS101", 72);
+        Instructor instructor = new Instructor("I001", new Name("Grace", "Hopper"), "grace@uni.edu", "CS");
+
+        withFile(file -> {
+            SnapshotService.SnapshotInfo info = saved.snapshots.save(file, List.of(instructor));
+            Check.equal(3, info.getStudentCount(), "students saved");
+            Check.equal(2, info.getEnrollmentCount(), "enrollments saved");
+
+            Services loaded = new Services();
+            SnapshotService.SnapshotInfo read = loaded.snapshots.load(file);
+            Check.equal(saved.describe(), loaded.describe(), "restored state");
+            Check.equal(List.of("S002", "S003"), loaded.enrollments.getWaitlist("CS101"), "waitlist order");
+            Check.equal(1, read.getInstructors().size(), "instructors");
+            Check.equal("grace@uni.edu", read.getInstructors().get(0).getEmail(), "instructor email");
+        });
+    }
+
+    static void damagedSection() throws Exception {
+        Services saved = new Services();
+        saved.course("CS101", Course.UNLIMITED_CAPACITY);
+        for (int i = 0; i < 50; i++) {
+            saved.student(String.format("S%03d", i));
+            saved.enrollments.enrollStudent(String.format("S%03d", i), "CS101");
+        }
+        withFile(file -> {
+            saved.snapshots.save(file, List.of());
+            byte[] bytes = Files.readAllBytes(file);
+            // Well inside the payloads, past the header and string dictionary's start.
+            bytes[bytes.length * 3 / 4] ^= 0x5A;
+            Files.write(file, bytes);
+
+            Services loaded = new Services();
+            IOException failure = null;
+            try {
+                loaded.snapshots.load(file);
+            } catch (IOException e) {
+                failure = e;
+            }
+            Check.isTrue(failure != null && failure.getMessage().contains("Corrupt snapshot"),
+                    "load fails as corrupt: " + failure);
+            Check.equal(List.of(), loaded.describe(), "nothing restored");
+        });
+    }
+
+    static void truncatedFile() throws Exception {
+        Services saved = new Services();
+        saved.course("CS101", Course.UNLIMITED_CAPACITY);
+        saved.student("S001");
+        withFile(file -> {
+            saved.snapshots.save(file, List.of());
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 6));
+            try {
+                new Services().snapshots.load(file);
+                throw new AssertionError("load of a truncated file succeeded");
+            } catch (IOException e) {
+                Check.isTrue(e.getMessage().contains("Corrupt snapshot"), "load fails as corrupt: " + e);
+            }
+        });
+    }
+
+    // A student added and enrolled while a save runs must never leave an enrollment whose
+    // student the snapshot lacks.
+    static void savesDuringEnrollment() throws Exception {
+        Services saved = new Services();
+        saved.course("CS101", Course.UNLIMITED_CAPACITY);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20_000 && !stop.get(); i++) {
+                    String id = String.format("S%06d", i);
+                    saved.student(id);
+                    saved.enrollments.enrollStudent(id, "CS101");
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        try {
+            withFile(file -> {
+                for (int i = 0; i < 100 && writer.isAlive(); i++) {
+                    saved.snapshots.save(file, List.of());
+                    Services loaded = new Services();
+                    loaded.snapshots.load(file);
+                    Set<String> ids = new HashSet<>();
+                    for (Student student : loaded.students.getAllStudents()) {
+                        ids.add(student.getId());
+                    }
+                    for (Enrollment enrollment : loaded.enrollments.getCourseEnrollments("CS101")) {
+                        Check.isTrue(ids.contains(enrollment.getStudent().getId()),
+                                "enrolled student " + enrollment.getStudent().getId() + " was saved");
+                    }
+                }
+            });
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    @FunctionalInterface
+    private interface WithFile {
+        void run(Path file) throws Exception;
+    }
+
+    private static void withFile(WithFile test) throws Exception {
+        Path dir = Files.createTempDirectory("snapshot-test");
+        Path file = dir.resolve("ccrm.snapshot");
+        try {
+            test.run(file);
+        } finally {
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+}
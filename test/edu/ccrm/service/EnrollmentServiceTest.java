@@ -0,0 +1,215 @@
+package edu.ccrm.service;
+
+import edu.ccrm.Check;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Name;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.exceptions.CCRMException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class EnrollmentServiceTest {
+    public static void main(String[] args) {
+        Check.run("updateCourse raises the capacity", EnrollmentServiceTest::updateCourseRaisesCapacity);
+        Check.run("setCapacity promotes the waitlist in order", EnrollmentServiceTest::setCapacityPromotesInOrder);
+        Check.run("limiting a course counts its enrolled students", EnrollmentServiceTest::limitingCountsEnrolled);
+        Check.run("lowering the capacity below the enrolled", EnrollmentServiceTest::loweringBelowEnrolled);
+        Check.run("a capacity of 0 closes the course", EnrollmentServiceTest::zeroCapacityCloses);
+        Check.run("available seats of unknown and untouched courses", EnrollmentServiceTest::availableSeatsReads);
+        Check.run("concurrent enroll and unenroll keep seats consistent",
+                EnrollmentServiceTest::concurrentSeatsStayConsistent);
+        Check.finish();
+    }
+
+    private static final class Fixture {
+        final StudentService students = new StudentService();
+        final CourseService courses = new CourseService();
+        final EnrollmentService enrollments = new EnrollmentService(students, courses);
+
+        Course course(String code, int capacity) throws Exception {
+            Course course = new Course.Builder(code, "Course " + code).credits(3).instructor("Dr. Lee")
+                    .department("CS").semester(Semester.FALL).capacity(capacity).build();
+            courses.addCourse(course);
+            return course;
+        }
+
+        List<String> students(int count) throws Exception {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String id = "S" + (1000 + i);
+                students.addStudent(new Student.Builder(id, "R" + id).fullName(new Name("First", id))
+                        .email(id.toLowerCase() + "@uni.edu").build());
+                ids.add(id);
+            }
+            return ids;
+        }
+
+        Set<String> enrolled(String courseCode) {
+            Set<String> ids = new HashSet<>();
+            for (Enrollment enrollment : enrollments.getCourseEnrollments(courseCode)) {
+                ids.add(enrollment.getStudent().getId());
+            }
+            return ids;
+        }
+    }
+
+    static void updateCourseRaisesCapacity() throws Exception {
+        Fixture f = new Fixture();
+        Course course = f.course("CS101", 1);
+        List<String> ids = f.students(3);
+        for (String id : ids) {
+            f.enrollments.enrollStudent(id, "CS101");
+        }
+        Check.equal(0, f.enrollments.getAvailableSeats("CS101"), "seats when full");
+        Check.equal(2, f.enrollments.getWaitlist("CS101").size(), "waitlisted");
+
+        f.courses.updateCourse(new Course.Builder("CS101", course.getTitle()).credits(3).instructor("Dr. Lee")
+                .department("CS").semester(Semester.FALL).capacity(5).build());
+        Check.equal(Set.copyOf(ids), f.enrolled("CS101"), "enrolled after raising to 5");
+        Check.equal(0, f.enrollments.getWaitlist("CS101").size(), "waitlisted after raising to 5");
+        Check.equal(2, f.enrollments.getAvailableSeats("CS101"), "seats after raising to 5");
+    }
+
+    static void setCapacityPromotesInOrder() throws Exception {
+        Fixture f = new Fixture();
+        Course course = f.course("CS102", 1);
+        List<String> ids = f.students(4);
+        for (String id : ids) {
+            f.enrollments.enrollStudent(id, "CS102");
+        }
+        course.setCapacity(3);
+        Check.equal(Set.of(ids.get(0), ids.get(1), ids.get(2)), f.enrolled("CS102"), "first three enrolled");
+        Check.equal(List.of(ids.get(3)), f.enrollments.getWaitlist("CS102"), "last still waiting");
+
+        course.setCapacity(Course.UNLIMITED_CAPACITY);
+        Check.equal(Set.copyOf(ids), f.enrolled("CS102"), "all enrolled when unlimited");
+        Check.equal(Integer.MAX_VALUE, f.enrollments.getAvailableSeats("CS102"), "seats when unlimited");
+    }
+
+    static void limitingCountsEnrolled() throws Exception {
+        Fixture f = new Fixture();
+        Course course = f.course("CS103", Course.UNLIMITED_CAPACITY);
+        List<String> ids = f.students(4);
+        for (String id : ids.subList(0, 3)) {
+            f.enrollments.enrollStudent(id, "CS103");
+        }
+        course.setCapacity(3);
+        Check.equal(0, f.enrollments.getAvailableSeats("CS103"), "seats after limiting to the enrolled count");
+        Check.equal(EnrollmentOutcome.WAITLISTED, f.enrollments.enrollStudent(ids.get(3), "CS103"), "fourth student");
+    }
+
+    static void loweringBelowEnrolled() throws Exception {
+        Fixture f = new Fixture();
+        Course course = f.course("CS104", 4);
+        List<String> ids = f.students(5);
+        for (String id : ids) {
+            f.enrollments.enrollStudent(id, "CS104");
+        }
+        course.setCapacity(2);
+        Check.equal(4, f.enrolled("CS104").size(), "enrolled students keep their seats");
+
+        // Two seats must be given up before the waitlisted student gets one.
+        f.enrollments.unenrollStudent(ids.get(0), "CS104");
+        f.enrollments.unenrollStudent(ids.get(1), "CS104");
+        Check.equal(2, f.enrolled("CS104").size(), "enrolled at the lowered capacity");
+        Check.equal(List.of(ids.get(4)), f.enrollments.getWaitlist("CS104"), "still waiting");
+        f.enrollments.unenrollStudent(ids.get(2), "CS104");
+        Check.isTrue(f.enrolled("CS104").contains(ids.get(4)), "waitlisted student takes the freed seat");
+        Check.equal(0, f.enrollments.getAvailableSeats("CS104"), "seats at capacity");
+    }
+
+    static void zeroCapacityCloses() throws Exception {
+        Fixture f = new Fixture();
+        f.course("CS106", 0);
+        Course open = f.course("CS107", 2);
+        List<String> ids = f.students(3);
+        Check.equal(EnrollmentOutcome.WAITLISTED, f.enrollments.enrollStudent(ids.get(0), "CS106"),
+                "enrolling in a closed course");
+        Check.equal(0, f.enrollments.getAvailableSeats("CS106"), "seats in a closed course");
+
+        f.enrollments.enrollStudent(ids.get(1), "CS107");
+        open.setCapacity(0);
+        Check.equal(Set.of(ids.get(1)), f.enrolled("CS107"), "enrolled student keeps the seat after closing");
+        Check.equal(EnrollmentOutcome.WAITLISTED, f.enrollments.enrollStudent(ids.get(2), "CS107"),
+                "enrolling after closing");
+        open.setCapacity(Course.UNLIMITED_CAPACITY);
+        Check.equal(Set.of(ids.get(1), ids.get(2)), f.enrolled("CS107"), "waitlist promoted when reopened unlimited");
+    }
+
+    static void availableSeatsReads() throws Exception {
+        Fixture f = new Fixture();
+        f.course("CS108", 7);
+        f.course("CS109", Course.UNLIMITED_CAPACITY);
+        Check.equal(0, f.enrollments.getAvailableSeats("NOPE1"), "seats in an unknown course");
+        Check.equal(7, f.enrollments.getAvailableSeats("CS108"), "seats before any enrollment");
+        Check.equal(Integer.MAX_VALUE, f.enrollments.getAvailableSeats("CS109"), "unlimited before any enrollment");
+        f.enrollments.enrollStudent(f.students(1).get(0), "CS108");
+        Check.equal(6, f.enrollments.getAvailableSeats("CS108"), "seats after an enrollment");
+    }
+
+    // Students enroll and drop at random while the capacity moves. Nobody is ever both
+    // enrolled and waiting, and once things settle the seats taken match the enrollments.
+    static void concurrentSeatsStayConsistent() throws Exception {
+        Fixture f = new Fixture();
+        Course course = f.course("CS105", 5);
+        List<String> ids = f.students(40);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                done.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 4_000; i++) {
+                        String id = ids.get(random.nextInt(ids.size()));
+                        try {
+                            if (random.nextBoolean()) {
+                                f.enrollments.enrollStudent(id, "CS105");
+                            } else {
+                                f.enrollments.unenrollStudent(id, "CS105");
+                            }
+                        } catch (CCRMException e) {
+                            // Already enrolled, or not enrolled: expected under random traffic.
+                        }
+                        if (thread == 0 && i % 500 == 0) {
+                            course.setCapacity(3 + random.nextInt(6));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Set<String> enrolled = f.enrolled("CS105");
+        List<String> waiting = f.enrollments.getWaitlist("CS105");
+        for (String id : waiting) {
+            Check.isTrue(!enrolled.contains(id), id + " is both enrolled and waiting");
+        }
+        Check.equal(waiting.size(), new HashSet<>(waiting).size(), "waitlist entries are distinct");
+        int available = f.enrollments.getAvailableSeats("CS105");
+        Check.isTrue(enrolled.size() <= course.getCapacity() || available == 0, "over capacity with seats free");
+        if (enrolled.size() < course.getCapacity()) {
+            Check.equal(course.getCapacity() - enrolled.size(), available, "free seats");
+            Check.isTrue(waiting.isEmpty(), "students wait while seats are free");
+        }
+        for (String id : ids) {
+            boolean inLedger = f.enrollments.getStudentEnrollments(id).stream()
+                    .anyMatch(e -> e.getCourse().getCode().equals("CS105"));
+            Check.equal(enrolled.contains(id), inLedger, "ledger and course agree for " + id);
+        }
+    }
+}
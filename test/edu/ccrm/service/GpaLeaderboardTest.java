@@ -0,0 +1,145 @@
+package edu.ccrm.service;
+
+import edu.ccrm.Check;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Name;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class GpaLeaderboardTest {
+    public static void main(String[] args) {
+        Check.run("update moves a student between departments", GpaLeaderboardTest::updateMovesDepartment);
+        Check.run("update that deactivates unranks the student", GpaLeaderboardTest::updateDeactivates);
+        Check.run("a department named * is not every department", GpaLeaderboardTest::starDepartment);
+        Check.run("concurrent grades leave the newest GPA", GpaLeaderboardTest::concurrentGrades);
+        Check.finish();
+    }
+
+    private static final class Fixture {
+        final StudentService students = new StudentService();
+        final CourseService courses = new CourseService();
+        final EnrollmentService enrollments = new EnrollmentService(students, courses);
+        final GpaLeaderboard leaderboard = new GpaLeaderboard();
+        final GpaDistribution distribution = new GpaDistribution();
+
+        Fixture() throws Exception {
+            enrollments.addListener(leaderboard);
+            students.addListener(leaderboard);
+            enrollments.addListener(distribution);
+            students.addListener(distribution);
+            for (int i = 0; i < 4; i++) {
+                courses.addCourse(new Course.Builder("CS10" + i, "Course " + i).credits(3)
+                        .instructor("Dr. Lee").department("CS").semester(Semester.FALL).build());
+            }
+        }
+
+        Student student(String id, String department) throws Exception {
+            Student student = new Student.Builder(id, "R" + id).fullName(new Name("First", id))
+                    .email(id.toLowerCase() + "@uni.edu").department(department).build();
+            students.addStudent(student);
+            return student;
+        }
+
+        Student copy(Student student, String department, Student.Status status) {
+            return new Student.Builder(student.getId(), student.getRegNo()).fullName(student.getFullName())
+                    .email(student.getEmail()).department(department).status(status).build();
+        }
+    }
+
+    static void updateMovesDepartment() throws Exception {
+        Fixture f = new Fixture();
+        Student student = f.student("S100", "Physics");
+        f.enrollments.enrollStudent("S100", "CS100");
+        f.enrollments.recordGrade("S100", "CS100", 85);
+        Check.equal(1, f.leaderboard.getRankedCount(null, "Physics"), "ranked in Physics");
+
+        Student moved = f.copy(student, "Chemistry", Student.Status.ACTIVE);
+        f.students.updateStudent(moved);
+        Check.equal(0, f.leaderboard.getRankedCount(null, "Physics"), "ranked in Physics after the move");
+        Check.equal(1, f.leaderboard.getRankedCount(Semester.FALL, "Chemistry"), "ranked in Chemistry");
+        Check.isTrue(f.leaderboard.getTopStudents(1, null, "Chemistry").get(0).getStudent() == moved,
+                "ranking shows the registered instance");
+
+        f.enrollments.recordGrade("S100", "CS100", 95);
+        Check.equal(0, f.leaderboard.getRankedCount(null, "Physics"), "a later grade does not re-rank in Physics");
+        Check.equal(1, f.leaderboard.getRankedCount(null, "Chemistry"), "a later grade stays in Chemistry");
+    }
+
+    static void updateDeactivates() throws Exception {
+        Fixture f = new Fixture();
+        Student student = f.student("S200", "Physics");
+        f.enrollments.enrollStudent("S200", "CS100");
+        f.enrollments.recordGrade("S200", "CS100", 70);
+        Check.equal(1, f.distribution.getTotal(), "counted in the distribution");
+
+        f.students.updateStudent(f.copy(student, "Physics", Student.Status.INACTIVE));
+        Check.equal(0, f.leaderboard.getRankedCount(null, null), "ranked after deactivation");
+        Check.equal(0, f.distribution.getTotal(), "counted after deactivation");
+
+        f.students.updateStudent(f.copy(student, "Physics", Student.Status.ACTIVE));
+        Check.equal(1, f.leaderboard.getRankedCount(null, null), "ranked after reactivation");
+        Check.equal(1, f.distribution.getTotal(), "counted after reactivation");
+    }
+
+    static void starDepartment() throws Exception {
+        Fixture f = new Fixture();
+        f.student("S300", "*");
+        f.student("S301", "Physics");
+        for (String id : List.of("S300", "S301")) {
+            f.enrollments.enrollStudent(id, "CS100");
+            f.enrollments.recordGrade(id, "CS100", 80);
+        }
+        Check.equal(1, f.leaderboard.getRankedCount(null, "*"), "ranked in department *");
+        Check.equal(2, f.leaderboard.getRankedCount(null, null), "ranked in every department");
+        Check.equal(1, f.leaderboard.getRankedCount(Semester.FALL, "*"), "ranked in department * for FALL");
+    }
+
+    static void concurrentGrades() throws Exception {
+        Fixture f = new Fixture();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String id = "S40" + i;
+            f.student(id, "Physics");
+            for (int c = 0; c < 4; c++) {
+                f.enrollments.enrollStudent(id, "CS10" + c);
+            }
+            ids.add(id);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                done.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 5_000; i++) {
+                        f.enrollments.recordGrade(ids.get(random.nextInt(ids.size())),
+                                "CS10" + random.nextInt(4), random.nextInt(40, 101));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (GpaLeaderboard.Ranking ranking : f.leaderboard.getTopStudents(ids.size())) {
+            String id = ranking.getStudent().getId();
+            Check.near(f.enrollments.getGpa(id), ranking.getGpa(), 1e-9, "overall GPA of " + id);
+            Check.near(f.enrollments.getSemesterGpa(id, Semester.FALL),
+                    f.leaderboard.getTopStudents(ids.size(), Semester.FALL, null).stream()
+                            .filter(r -> r.getStudent().getId().equals(id)).findFirst().orElseThrow().getGpa(),
+                    1e-9, "FALL GPA of " + id);
+        }
+        Check.equal(ids.size(), f.leaderboard.getRankedCount(null, null), "ranked students");
+    }
+}
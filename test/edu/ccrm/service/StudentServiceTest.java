@@ -0,0 +1,95 @@
+package edu.ccrm.service;
+
+import edu.ccrm.Check;
+import edu.ccrm.domain.Name;
+import edu.ccrm.domain.Student;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class StudentServiceTest {
+    public static void main(String[] args) {
+        Check.run("concurrent updates of one student chain and index", StudentServiceTest::concurrentUpdates);
+        Check.finish();
+    }
+
+    // Each update sees the previous one's instance, as listeners are told.
+    private static final class Chain implements StudentListener {
+        Student last;
+        int broken;
+
+        @Override
+        public void onStudentUpdated(Student previous, Student current) {
+            if (previous != last) {
+                broken++;
+            }
+            last = current;
+        }
+    }
+
+    private static Student student(String id, String regNo, String email, Student.Status status) {
+        return new Student.Builder(id, regNo).fullName(new Name("First", id)).email(email).status(status).build();
+    }
+
+    static void concurrentUpdates() throws Exception {
+        StudentService service = new StudentService();
+        Student first = student("S100", "R-0", "s100@uni.edu", Student.Status.ACTIVE);
+        service.addStudent(first);
+        Chain chain = new Chain();
+        chain.last = first;
+        service.addListener(chain);
+
+        Set<String> regNos = ConcurrentHashMap.newKeySet();
+        regNos.add("R-0");
+        run(8, (thread, i) -> {
+            String regNo = "R-" + thread + "-" + i;
+            regNos.add(regNo);
+            service.updateStudent(student("S100", regNo, "s100-" + thread + "-" + i + "@uni.edu", Student.Status.ACTIVE));
+        });
+
+        Student current = service.findStudentById("S100");
+        Check.equal(0, chain.broken, "updates that saw a replaced instance");
+        Check.isTrue(chain.last == current, "last update seen is the registered instance");
+        for (String regNo : regNos) {
+            Student found = service.findStudentByRegNo(regNo);
+            Check.isTrue(regNo.equals(current.getRegNo()) ? found == current : found == null,
+                    "registration number " + regNo + " maps to " + found);
+        }
+        Check.isTrue(service.findStudentByEmail(current.getEmail()) == current, "current email");
+        Check.isTrue(service.findStudentByEmail("s100@uni.edu") == null, "first email released");
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run(int thread, int i) throws Exception;
+    }
+
+    private static void run(int threads, Step step) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        step.run(thread, i);
+                        if (ThreadLocalRandom.current().nextInt(64) == 0) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
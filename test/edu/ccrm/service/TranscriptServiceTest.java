@@ -0,0 +1,235 @@
+package edu.ccrm.service;
+
+import edu.ccrm.Check;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Name;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import java.util.List;
+import java.util.Locale;
+
+public class TranscriptServiceTest {
+    public static void main(String[] args) {
+        Check.run("setters after grading keep the transcript and GPA in step",
+                TranscriptServiceTest::settersAfterGrading);
+        Check.run("updateCourse after grading keeps the transcript and GPA in step",
+                TranscriptServiceTest::updateCourseAfterGrading);
+        Check.run("recordGrade drops the cached transcript", TranscriptServiceTest::gradeInvalidates);
+        Check.run("enrolling drops the cached transcript", TranscriptServiceTest::enrollInvalidates);
+        Check.run("unenrolling drops the cached transcript", TranscriptServiceTest::unenrollInvalidates);
+        Check.run("a waitlist hand-off drops the promoted student's transcript",
+                TranscriptServiceTest::handOffInvalidates);
+        Check.run("a course title or credit change drops the cached transcript",
+                TranscriptServiceTest::courseChangeInvalidates);
+        Check.run("hits, misses and evictions are counted", TranscriptServiceTest::cacheCounters);
+        Check.finish();
+    }
+
+    private static final class Fixture {
+        final StudentService students = new StudentService();
+        final CourseService courses = new CourseService();
+        final EnrollmentService enrollments = new EnrollmentService(students, courses);
+        final TranscriptService transcripts = new TranscriptService(enrollments);
+        final Student student;
+
+        // Two FALL courses graded A (85, 9 points) and C (65, 7 points) at 3 credits each.
+        Fixture() throws Exception {
+            student = new Student.Builder("S100", "RS100").fullName(new Name("Ada", "Lovelace"))
+                    .email("ada@uni.edu").build();
+            students.addStudent(student);
+            for (String code : new String[] {"CS101", "CS102"}) {
+                courses.addCourse(course(code, 3, Semester.FALL));
+                enrollments.enrollStudent("S100", code);
+            }
+            enrollments.recordGrade("S100", "CS101", 85);
+            enrollments.recordGrade("S100", "CS102", 65);
+        }
+
+        Course course(String code, int credits, Semester semester) {
+            return new Course.Builder(code, "Course " + code).credits(credits).instructor("Dr. Lee")
+                    .department("CS").semester(semester).build();
+        }
+
+        Student student(String id) throws Exception {
+            Student added = new Student.Builder(id, "R" + id).fullName(new Name("First", id))
+                    .email(id.toLowerCase() + "@uni.edu").build();
+            students.addStudent(added);
+            return added;
+        }
+
+        // Renders the transcript twice, so it is cached and the second render is a hit.
+        String cache() {
+            String transcript = transcripts.generateTranscript(student);
+            long hits = transcripts.getCacheStats().getHitCount();
+            transcripts.generateTranscript(student);
+            Check.equal(hits + 1, transcripts.getCacheStats().getHitCount(), "second render is a hit");
+            return transcript;
+        }
+
+        // The next render must miss, the cached copy having been dropped.
+        String checkDropped(long invalidationsBefore, String when) {
+            TranscriptService.CacheStats before = transcripts.getCacheStats();
+            Check.equal(invalidationsBefore + 1, before.getInvalidationCount(), "invalidations " + when);
+            Check.equal(0, before.getEntryCount(), "entries " + when);
+            String transcript = transcripts.generateTranscript(student);
+            Check.equal(before.getMissCount() + 1, transcripts.getCacheStats().getMissCount(), "render misses " + when);
+            return transcript;
+        }
+
+        // Renders first so the cached copy is the one that has to be dropped.
+        void checkAgrees(double gpa, int credits, String when) {
+            String transcript = transcripts.generateTranscript(student);
+            Check.near(gpa, transcripts.calculateGPA(student), 1e-9, "calculateGPA " + when);
+            Check.isTrue(transcript.contains(String.format(Locale.ROOT, "Overall GPA: %.2f\n", gpa)),
+                    "transcript GPA " + when + ":\n" + transcript);
+            Check.isTrue(transcript.contains("Total Credits: " + credits + "\n"),
+                    "transcript credits " + when + ":\n" + transcript);
+        }
+    }
+
+    static void settersAfterGrading() throws Exception {
+        Fixture f = new Fixture();
+        f.checkAgrees(8.0, 6, "before the change");
+
+        Course course = f.courses.findCourseByCode("CS101");
+        course.setCredits(5);
+        f.checkAgrees((9.0 * 5 + 7.0 * 3) / 8, 8, "after the credits change");
+
+        course.setSemester(Semester.SPRING);
+        f.checkAgrees((9.0 * 5 + 7.0 * 3) / 8, 8, "after the semester change");
+        Check.near(9.0, f.transcripts.calculateSemesterGPA(f.student, Semester.SPRING), 1e-9, "SPRING GPA");
+        Check.near(7.0, f.transcripts.calculateSemesterGPA(f.student, Semester.FALL), 1e-9, "FALL GPA");
+        Check.isTrue(f.transcripts.generateSemesterReport(f.student, Semester.SPRING).contains("CS101"),
+                "CS101 listed under SPRING");
+        Check.isTrue(!f.transcripts.generateSemesterReport(f.student, Semester.FALL).contains("CS101"),
+                "CS101 no longer listed under FALL");
+    }
+
+    static void updateCourseAfterGrading() throws Exception {
+        Fixture f = new Fixture();
+        f.checkAgrees(8.0, 6, "before the update");
+
+        f.courses.updateCourse(f.course("CS102", 1, Semester.SUMMER));
+        f.checkAgrees((9.0 * 3 + 7.0 * 1) / 4, 4, "after the update");
+        Check.near(7.0, f.transcripts.calculateSemesterGPA(f.student, Semester.SUMMER), 1e-9, "SUMMER GPA");
+        Check.isTrue(f.transcripts.generateSemesterReport(f.student, Semester.SUMMER).contains("CS102"),
+                "CS102 listed under SUMMER");
+
+        // Unenrolling releases the re-charged credits, not the ones charged at enrollment.
+        f.enrollments.unenrollStudent("S100", "CS102");
+        f.checkAgrees(9.0, 3, "after dropping the updated course");
+    }
+
+    static void gradeInvalidates() throws Exception {
+        Fixture f = new Fixture();
+        Check.isTrue(f.cache().contains(" 65.0 C\n"), "CS102 graded C");
+        long invalidations = f.transcripts.getCacheStats().getInvalidationCount();
+
+        f.enrollments.recordGrade("S100", "CS102", 93);
+        String transcript = f.checkDropped(invalidations, "after the grade");
+        Check.isTrue(transcript.contains(" 93.0 S\n"), "CS102 regraded S:\n" + transcript);
+        f.checkAgrees(9.5, 6, "after the grade");
+    }
+
+    static void enrollInvalidates() throws Exception {
+        Fixture f = new Fixture();
+        f.courses.addCourse(f.course("CS103", 4, Semester.FALL));
+        f.cache();
+        long invalidations = f.transcripts.getCacheStats().getInvalidationCount();
+
+        f.enrollments.enrollStudent("S100", "CS103");
+        f.checkDropped(invalidations, "after the enrollment");
+        f.enrollments.recordGrade("S100", "CS103", 95);
+        f.checkAgrees((9.0 * 3 + 7.0 * 3 + 10.0 * 4) / 10, 10, "after grading the new course");
+    }
+
+    static void unenrollInvalidates() throws Exception {
+        Fixture f = new Fixture();
+        Check.isTrue(f.cache().contains("CS102"), "CS102 listed");
+        long invalidations = f.transcripts.getCacheStats().getInvalidationCount();
+
+        f.enrollments.unenrollStudent("S100", "CS102");
+        String transcript = f.checkDropped(invalidations, "after the drop");
+        Check.isTrue(!transcript.contains("CS102"), "CS102 no longer listed:\n" + transcript);
+        f.checkAgrees(9.0, 3, "after the drop");
+    }
+
+    // S200 holds CS201's only seat and S100 waits for it; S100's transcript is cached while
+    // waiting and must be dropped when S200's drop hands the seat over.
+    static void handOffInvalidates() throws Exception {
+        Fixture f = new Fixture();
+        f.courses.addCourse(new Course.Builder("CS201", "Course CS201").credits(2).instructor("Dr. Lee")
+                .department("CS").semester(Semester.FALL).capacity(1).build());
+        f.student("S200");
+        f.enrollments.enrollStudent("S200", "CS201");
+        Check.equal(EnrollmentOutcome.WAITLISTED, f.enrollments.enrollStudent("S100", "CS201"), "S100 waitlisted");
+        f.cache();
+        long invalidations = f.transcripts.getCacheStats().getInvalidationCount();
+
+        f.enrollments.unenrollStudent("S200", "CS201");
+        Check.equal(List.of(), f.enrollments.getWaitlist("CS201"), "waitlist emptied");
+        f.checkDropped(invalidations, "after the hand-off");
+        f.enrollments.recordGrade("S100", "CS201", 95);
+        f.checkAgrees((9.0 * 3 + 7.0 * 3 + 10.0 * 2) / 8, 8, "after grading the handed-off course");
+    }
+
+    static void courseChangeInvalidates() throws Exception {
+        Fixture f = new Fixture();
+        f.cache();
+        long invalidations = f.transcripts.getCacheStats().getInvalidationCount();
+
+        Course course = f.courses.findCourseByCode("CS101");
+        course.setTitle("Structures");
+        String transcript = f.checkDropped(invalidations, "after the title change");
+        Check.isTrue(transcript.contains("CS101    Structures "), "new title listed:\n" + transcript);
+
+        f.cache();
+        invalidations = f.transcripts.getCacheStats().getInvalidationCount();
+        course.setCredits(1);
+        f.checkDropped(invalidations, "after the credit change");
+        f.checkAgrees((9.0 * 1 + 7.0 * 3) / 4, 4, "after the credit change");
+
+        f.cache();
+        invalidations = f.transcripts.getCacheStats().getInvalidationCount();
+        f.courses.updateCourse(new Course.Builder("CS102", "Algorithms").credits(3).instructor("Dr. Lee")
+                .department("CS").semester(Semester.FALL).build());
+        transcript = f.checkDropped(invalidations, "after updateCourse");
+        Check.isTrue(transcript.contains("CS102    Algorithms "), "updated title listed:\n" + transcript);
+    }
+
+    // Room for two entries: S200 is evicted as the least recently used when S300 arrives.
+    static void cacheCounters() throws Exception {
+        Fixture f = new Fixture();
+        TranscriptService transcripts = new TranscriptService(f.enrollments, 2, TranscriptService.DEFAULT_CACHE_CHARS);
+        Student s200 = f.student("S200");
+        Student s300 = f.student("S300");
+
+        transcripts.generateTranscript(f.student);
+        transcripts.generateTranscript(s200);
+        transcripts.generateTranscript(f.student);
+        transcripts.generateTranscript(s300);
+        TranscriptService.CacheStats stats = transcripts.getCacheStats();
+        Check.equal(1L, stats.getHitCount(), "hits");
+        Check.equal(3L, stats.getMissCount(), "misses");
+        Check.equal(1L, stats.getEvictionCount(), "evictions");
+        Check.equal(2, stats.getEntryCount(), "entries");
+
+        transcripts.generateTranscript(f.student);
+        transcripts.generateTranscript(s200);
+        stats = transcripts.getCacheStats();
+        Check.equal(2L, stats.getHitCount(), "hits after S100 again");
+        Check.equal(4L, stats.getMissCount(), "misses after S200 again");
+        Check.equal(2L, stats.getEvictionCount(), "S300 evicted for S200");
+        Check.near(2.0 / 6, stats.getHitRate(), 1e-9, "hit rate");
+
+        // A transcript longer than the whole character budget is rendered but never cached.
+        TranscriptService small = new TranscriptService(f.enrollments, 2, 10);
+        small.generateTranscript(f.student);
+        small.generateTranscript(f.student);
+        stats = small.getCacheStats();
+        Check.equal(0L, stats.getHitCount(), "hits over budget");
+        Check.equal(2L, stats.getMissCount(), "misses over budget");
+        Check.equal(0, stats.getEntryCount(), "entries over budget");
+        Check.equal(0L, stats.getCharCount(), "chars over budget");
+    }
+}
@@ -0,0 +1,80 @@
+package edu.ccrm.util;
+
+import edu.ccrm.Check;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class RecursiveUtilTest {
+    public static void main(String[] args) {
+        Check.run("cached measure sees a file added two levels down", RecursiveUtilTest::seesNestedAdd);
+        Check.run("cached measure sees a nested directory removed", RecursiveUtilTest::seesNestedRemove);
+        Check.run("hard links are charged once", RecursiveUtilTest::hardLinksChargedOnce);
+        Check.finish();
+    }
+
+    // Adding under objects/ab changes ab's time but not that of objects or the root.
+    static void seesNestedAdd() throws Exception {
+        Path root = Files.createTempDirectory("recursive-util-test");
+        try {
+            Path ab = Files.createDirectories(root.resolve("objects").resolve("ab"));
+            Files.write(ab.resolve("first"), new byte[100]);
+            RecursiveUtil.SizeCache cache = new RecursiveUtil.SizeCache();
+            Check.equal(100L, RecursiveUtil.measureDirectory(root, cache).getLogicalBytes(), "first measure");
+
+            Files.write(ab.resolve("second"), new byte[500]);
+            RecursiveUtil.DirectorySize cached = RecursiveUtil.measureDirectory(root, cache);
+            Check.equal(600L, cached.getLogicalBytes(), "cached measure after the add");
+            Check.equal(2L, cached.getFileCount(), "files after the add");
+            Check.equal(RecursiveUtil.measureDirectory(root).getPhysicalBytes(), cached.getPhysicalBytes(),
+                    "cached and uncached physical bytes");
+        } finally {
+            delete(root);
+        }
+    }
+
+    static void seesNestedRemove() throws Exception {
+        Path root = Files.createTempDirectory("recursive-util-test");
+        try {
+            Path objects = Files.createDirectories(root.resolve("objects"));
+            Files.write(Files.createDirectories(objects.resolve("ab")).resolve("a"), new byte[100]);
+            Path cd = Files.createDirectories(objects.resolve("cd").resolve("ef"));
+            Files.write(cd.resolve("b"), new byte[300]);
+            RecursiveUtil.SizeCache cache = new RecursiveUtil.SizeCache();
+            Check.equal(400L, RecursiveUtil.measureDirectory(root, cache).getLogicalBytes(), "first measure");
+
+            delete(cd);
+            Check.equal(100L, RecursiveUtil.measureDirectory(root, cache).getLogicalBytes(),
+                    "cached measure after the removal");
+        } finally {
+            delete(root);
+        }
+    }
+
+    static void hardLinksChargedOnce() throws Exception {
+        Path root = Files.createTempDirectory("recursive-util-test");
+        try {
+            Path file = Files.write(Files.createDirectories(root.resolve("one")).resolve("data"), new byte[200]);
+            try {
+                Files.createLink(Files.createDirectories(root.resolve("two")).resolve("data"), file);
+            } catch (UnsupportedOperationException | IOException e) {
+                return; // No hard links on this file system.
+            }
+            RecursiveUtil.DirectorySize size = RecursiveUtil.measureDirectory(root, new RecursiveUtil.SizeCache());
+            Check.equal(400L, size.getLogicalBytes(), "logical bytes");
+            Check.equal(200L, size.getPhysicalBytes(), "physical bytes");
+        } finally {
+            delete(root);
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}